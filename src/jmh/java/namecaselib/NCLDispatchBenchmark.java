@@ -0,0 +1,105 @@
+package namecaselib;
+
+import namecaselib.perf.NCLNameCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NCLDispatchBenchmark - сравнивает выбор правил склонения в текущей и эталонной
+ * ({@link namecaselib.perf.reference}) версиях библиотеки.
+ *
+ * При <var>languages</var> = 2 перед прогревом через общие методы {@link NCLNameCaseCore} прогоняется
+ * второй язык ({@link NCLNameCaseStub}), чтобы профиль мест вызова был таким же, как в приложении
+ * с несколькими языками. Каждый форк JVM начинает с чистого профиля. ФИО, на которых падают правила
+ * хотя бы одной версии, в измерение не попадают.
+ *
+ * Запуск: gradle jmh -PjmhInclude=NCLDispatchBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class NCLDispatchBenchmark {
+
+	/**
+	 * Сколько языков загружено и использовано до начала измерения
+	 */
+	@Param({"1", "2"})
+	public int languages;
+
+	private final NCLNameCaseUa current = new NCLNameCaseUa();
+	private final namecaselib.perf.reference.NCLNameCaseUa reference = new namecaselib.perf.reference.NCLNameCaseUa();
+	private String[] names;
+	private int position = 0;
+
+	@Setup
+	public void setUp() {
+		NCLNameCorpus corpus = new NCLNameCorpus(10000, 42, 1.0);
+		List<String> found = new ArrayList<>();
+		NCLNameCaseUa current = new NCLNameCaseUa();
+		namecaselib.perf.reference.NCLNameCaseUa reference = new namecaselib.perf.reference.NCLNameCaseUa();
+		for (int i = 0; i < corpus.size(); i++) {
+			String fullName = corpus.fullName(i);
+			try {
+				current.getFullNameFormat(fullName);
+				current.getSecondNameResult();
+				reference.getFullNameFormat(fullName);
+				reference.getSecondNameCase();
+			} catch (RuntimeException e) {
+				//ФИО, на которых падают правила, в измерение не попадают
+				continue;
+			}
+			found.add(fullName);
+		}
+		this.names = found.toArray(new String[0]);
+		if (this.languages > 1) {
+			NCLNameCaseStub stub = new NCLNameCaseStub();
+			namecaselib.perf.reference.NCLNameCaseStub referenceStub = new namecaselib.perf.reference.NCLNameCaseStub();
+			for (int i = 0; i < 200000; i++) {
+				String fullName = this.names[i % this.names.length];
+				stub.getFullNameFormat(fullName);
+				stub.getSecondNameResult();
+				referenceStub.getFullNameFormat(fullName);
+				referenceStub.getSecondNameCase();
+			}
+		}
+	}
+
+	private String nextName() {
+		String fullName = this.names[this.position];
+		this.position = (this.position + 1) % this.names.length;
+		return fullName;
+	}
+
+	@Benchmark
+	public void current(Blackhole blackhole) {
+		blackhole.consume(this.current.getFullNameFormat(this.nextName()));
+		blackhole.consume(this.current.getSecondNameResult());
+		blackhole.consume(this.current.getFirstNameResult());
+		blackhole.consume(this.current.getFatherNameResult());
+	}
+
+	@Benchmark
+	public void reference(Blackhole blackhole) {
+		blackhole.consume(this.reference.getFullNameFormat(this.nextName()));
+		blackhole.consume(this.reference.getSecondNameCase());
+		blackhole.consume(this.reference.getFirstNameCase());
+		blackhole.consume(this.reference.getFatherNameCase());
+	}
+}
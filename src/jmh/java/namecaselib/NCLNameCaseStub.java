@@ -0,0 +1,132 @@
+package namecaselib;
+
+import static namecaselib.NCL.Gender.MAN;
+import static namecaselib.NCL.Gender.WOMAN;
+
+/**
+ * NCLNameCaseStub - упрощенный второй язык для бенчмарков.
+ *
+ * Склоняет только по окончаниям и нужен для того, чтобы общие места вызова в {@link NCLNameCaseCore}
+ * видели больше одного класса языка, как в приложении, которое загружает несколько языков.
+ */
+public class NCLNameCaseStub extends NCLNameCaseCore {
+
+	private static final int[] manRules = {1, 2};
+	private static final int[] womanRules = {1};
+
+	@Override
+	protected boolean ruleMethod(String ruleMethod) {
+		switch (ruleMethod) {
+			case "manRule1": return this.manRule1();
+			case "manRule2": return this.manRule2();
+			case "womanRule1": return this.womanRule1();
+		}
+		return false;
+	}
+
+	/**
+	 * Слова на -й
+	 */
+	private boolean manRule1() {
+		if (this.last(1).equals("й")) {
+			this.wordForms(this.workingWord, array("я", "ю", "я", "ем", "е"), 1);
+			this.rule(101);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Слова на согласную
+	 */
+	private boolean manRule2() {
+		if (!this.in(this.last(1), "аеиоуыэюяіїєь’")) {
+			this.wordForms(this.workingWord, array("а", "у", "а", "ом", "е"));
+			this.rule(201);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Слова на -а
+	 */
+	private boolean womanRule1() {
+		if (this.last(1).equals("а")) {
+			this.wordForms(this.workingWord, array("ы", "е", "у", "ой", "е"), 1);
+			this.rule(101);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean manFirstName() {
+		return this.rulesChain(MAN, manRules);
+	}
+
+	@Override
+	protected boolean womanFirstName() {
+		return this.rulesChain(WOMAN, womanRules);
+	}
+
+	@Override
+	protected boolean manSecondName() {
+		return this.rulesChain(MAN, manRules);
+	}
+
+	@Override
+	protected boolean womanSecondName() {
+		return this.rulesChain(WOMAN, womanRules);
+	}
+
+	@Override
+	protected boolean manFatherName() {
+		return this.rulesChain(MAN, manRules);
+	}
+
+	@Override
+	protected boolean womanFatherName() {
+		return this.rulesChain(WOMAN, womanRules);
+	}
+
+	@Override
+	public int getCaseCount() {
+		return 6;
+	}
+
+	@Override
+	protected void genderByFirstName(NCLNameCaseWord word) {
+		this.genderByEnding(word);
+	}
+
+	@Override
+	protected void genderBySecondName(NCLNameCaseWord word) {
+		this.genderByEnding(word);
+	}
+
+	@Override
+	protected void genderByFatherName(NCLNameCaseWord word) {
+		this.genderByEnding(word);
+	}
+
+	private void genderByEnding(NCLNameCaseWord word) {
+		if (word.getWord().endsWith("а")) {
+			word.setGender(0, 1);
+		} else {
+			word.setGender(1, 0);
+		}
+	}
+
+	@Override
+	protected void detectNamePart(NCLNameCaseWord word) {
+		String name = word.getWord();
+		if (name.endsWith("ич") || name.endsWith("на")) {
+			word.setNamePart(NamePart.F);
+		} else if (name.endsWith("ко") || name.endsWith("ов") || name.endsWith("ова")) {
+			word.setNamePart(NamePart.S);
+		} else {
+			word.setNamePart(NamePart.N);
+		}
+	}
+}
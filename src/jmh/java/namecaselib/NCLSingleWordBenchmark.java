@@ -0,0 +1,102 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+import namecaselib.perf.NCLNameCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NCLSingleWordBenchmark - сравнивает склонение одного слова через qFirstName/qSecondName/qFatherName
+ * в текущей и эталонной ({@link namecaselib.perf.reference}) версиях библиотеки.
+ *
+ * Слова, их части ФИО и пол берутся из корпуса, каждый вызов просит один падеж, как в приложении,
+ * которое подставляет имя в текст.
+ *
+ * Запуск: gradle jmh -PjmhInclude=NCLSingleWordBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class NCLSingleWordBenchmark {
+
+	private final NCLNameCaseUa current = new NCLNameCaseUa();
+	private final namecaselib.perf.reference.NCLNameCaseUa reference = new namecaselib.perf.reference.NCLNameCaseUa();
+
+	private String[] words;
+	private NamePart[] nameParts;
+	private Gender[] genders;
+	private namecaselib.perf.reference.NCL.Gender[] referenceGenders;
+	private int position = 0;
+
+	@Setup
+	public void setUp() {
+		NCLNameCorpus corpus = new NCLNameCorpus(10000, 42, 1.0);
+		List<NCLNameCaseWord> found = new ArrayList<>();
+		NCLNameCaseUa detector = new NCLNameCaseUa();
+		for (int i = 0; i < corpus.size(); i++) {
+			try {
+				detector.getFullNameFormat(corpus.fullName(i));
+				detector.getFirstNameResult();
+				detector.getSecondNameResult();
+				detector.getFatherNameResult();
+			} catch (RuntimeException e) {
+				//Слова, на которых падают правила, в измерение не попадают
+				continue;
+			}
+			found.addAll(detector.getWordsArray());
+		}
+		this.words = new String[found.size()];
+		this.nameParts = new NamePart[found.size()];
+		this.genders = new Gender[found.size()];
+		this.referenceGenders = new namecaselib.perf.reference.NCL.Gender[found.size()];
+		for (int i = 0; i < this.words.length; i++) {
+			NCLNameCaseWord word = found.get(i);
+			this.words[i] = word.getWordOrig();
+			this.nameParts[i] = word.getNamePart();
+			this.genders[i] = word.gender();
+			this.referenceGenders[i] = namecaselib.perf.reference.NCL.Gender.valueOf(word.gender().name());
+		}
+	}
+
+	private int next() {
+		int index = this.position;
+		this.position = (this.position + 1) % this.words.length;
+		return index;
+	}
+
+	@Benchmark
+	public String current() {
+		int i = this.next();
+		switch (this.nameParts[i]) {
+			case N: return this.current.qFirstName(this.words[i], NCL.UaRodovyi, this.genders[i]);
+			case F: return this.current.qFatherName(this.words[i], NCL.UaRodovyi, this.genders[i]);
+			default: return this.current.qSecondName(this.words[i], NCL.UaRodovyi, this.genders[i]);
+		}
+	}
+
+	@Benchmark
+	public String reference() {
+		int i = this.next();
+		switch (this.nameParts[i]) {
+			case N: return this.reference.qFirstName(this.words[i], NCL.UaRodovyi, this.referenceGenders[i]);
+			case F: return this.reference.qFatherName(this.words[i], NCL.UaRodovyi, this.referenceGenders[i]);
+			default: return this.reference.qSecondName(this.words[i], NCL.UaRodovyi, this.referenceGenders[i]);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package namecaselib.perf.reference;
+
+/**
+ * NCLNameCaseStub - упрощенный второй язык для бенчмарков.
+ *
+ * Копия {@link namecaselib.NCLNameCaseStub} для эталонной версии библиотеки, чтобы сравнение
+ * с несколькими языками было честным для обеих версий.
+ */
+public class NCLNameCaseStub extends NCLNameCaseCore {
+
+	@Override
+	protected boolean ruleMethod(String ruleMethod) {
+		switch (ruleMethod) {
+			case "manRule1": return this.manRule1();
+			case "manRule2": return this.manRule2();
+			case "womanRule1": return this.womanRule1();
+		}
+		return false;
+	}
+
+	/**
+	 * Слова на -й
+	 */
+	private boolean manRule1() {
+		if (this.last(1).equals("й")) {
+			this.wordForms(this.workingWord, array("я", "ю", "я", "ем", "е"), 1);
+			this.rule(101);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Слова на согласную
+	 */
+	private boolean manRule2() {
+		if (!this.in(this.last(1), "аеиоуыэюяіїєь’")) {
+			this.wordForms(this.workingWord, array("а", "у", "а", "ом", "е"));
+			this.rule(201);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Слова на -а
+	 */
+	private boolean womanRule1() {
+		if (this.last(1).equals("а")) {
+			this.wordForms(this.workingWord, array("ы", "е", "у", "ой", "е"), 1);
+			this.rule(101);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean manFirstName() {
+		return this.rulesChain("man", array(1, 2));
+	}
+
+	@Override
+	protected boolean womanFirstName() {
+		return this.rulesChain("woman", array(1));
+	}
+
+	@Override
+	protected boolean manSecondName() {
+		return this.rulesChain("man", array(1, 2));
+	}
+
+	@Override
+	protected boolean womanSecondName() {
+		return this.rulesChain("woman", array(1));
+	}
+
+	@Override
+	protected boolean manFatherName() {
+		return this.rulesChain("man", array(1, 2));
+	}
+
+	@Override
+	protected boolean womanFatherName() {
+		return this.rulesChain("woman", array(1));
+	}
+
+	@Override
+	public int getCaseCount() {
+		return 6;
+	}
+
+	@Override
+	protected void genderByFirstName(NCLNameCaseWord word) {
+		this.genderByEnding(word);
+	}
+
+	@Override
+	protected void genderBySecondName(NCLNameCaseWord word) {
+		this.genderByEnding(word);
+	}
+
+	@Override
+	protected void genderByFatherName(NCLNameCaseWord word) {
+		this.genderByEnding(word);
+	}
+
+	private void genderByEnding(NCLNameCaseWord word) {
+		if (word.getWord().endsWith("а")) {
+			word.setGender(0, 1);
+		} else {
+			word.setGender(1, 0);
+		}
+	}
+
+	@Override
+	protected void detectNamePart(NCLNameCaseWord word) {
+		String name = word.getWord();
+		if (name.endsWith("ич") || name.endsWith("на")) {
+			word.setNamePart(NamePart.F);
+		} else if (name.endsWith("ко") || name.endsWith("ов") || name.endsWith("ова")) {
+			word.setNamePart(NamePart.S);
+		} else {
+			word.setNamePart(NamePart.N);
+		}
+	}
+}
@@ -20,7 +20,7 @@ public class NCL {
      * - <b>S</b> - прізвище
      * - <b>F</b> - по-батькові
      */
-    enum NamePart {
+    public enum NamePart {
         N, F, S
     }
 
@@ -0,0 +1,237 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * NCLAffectedSet - какие сохраненные результаты склонения нужно пересчитать после изменения правил.
+ *
+ * Результат (слово, часть ФИО, пол, номер правила) затронут, если:
+ * - слово заканчивается на затронутое окончание этой части ФИО и пола (от 1 до <var>suffixLength</var> букв)
+ * - слово - затронутое слово-исключение для этой части ФИО и пола
+ * - номер правила больше не используется новыми правилами
+ *
+ * Набор строится сравнением двух версий правил (namecaselib.perf.NCLRedecline) и хранится в текстовом файле:
+ * <pre>
+ * suffix-length 3
+ * suffix N MAN ко
+ * word S WOMAN ігор
+ * rule 304
+ * </pre>
+ * Слова и окончания хранятся в нижнем регистре. Строки с '#' - комментарии.
+ */
+public class NCLAffectedSet {
+
+	private final int suffixLength;
+
+	/**
+	 * Окончания и слова по части ФИО и полу: индекс namePart * 2 + gender
+	 */
+	private final Set<String>[] suffixes;
+	private final Set<String>[] words;
+	private final Set<Integer> rules = new TreeSet<>();
+
+	/**
+	 * @param suffixLength наибольшая длина окончаний, по которым проверяются слова
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public NCLAffectedSet(int suffixLength) {
+		if (suffixLength < 1) {
+			throw new IllegalArgumentException("suffixLength < 1");
+		}
+		this.suffixLength = suffixLength;
+		int size = NamePart.values().length * Gender.values().length;
+		this.suffixes = new Set[size];
+		this.words = new Set[size];
+		for (int i = 0; i < size; i++) {
+			this.suffixes[i] = new HashSet<>();
+			this.words[i] = new HashSet<>();
+		}
+	}
+
+	private static int index(NamePart namePart, Gender gender) {
+		return namePart.ordinal() * Gender.values().length + gender.ordinal();
+	}
+
+	/**
+	 * Отмечает окончание затронутым
+	 * @param suffix окончание от 1 до <var>suffixLength</var> букв
+	 * @return NCLAffectedSet
+	 */
+	public NCLAffectedSet addSuffix(NamePart namePart, Gender gender, String suffix) {
+		if (suffix.isEmpty() || suffix.length() > this.suffixLength) {
+			throw new IllegalArgumentException("Окончание должно быть от 1 до " + this.suffixLength + " букв: " + suffix);
+		}
+		this.suffixes[index(namePart, gender)].add(suffix.toLowerCase());
+		return this;
+	}
+
+	/**
+	 * Отмечает слово-исключение затронутым
+	 * @return NCLAffectedSet
+	 */
+	public NCLAffectedSet addWord(NamePart namePart, Gender gender, String word) {
+		this.words[index(namePart, gender)].add(word.toLowerCase());
+		return this;
+	}
+
+	/**
+	 * Отмечает номер правила, который больше не используется
+	 * @return NCLAffectedSet
+	 */
+	public NCLAffectedSet addRule(int rule) {
+		this.rules.add(rule);
+		return this;
+	}
+
+	/**
+	 * Проверяет, нужно ли пересчитать сохраненный результат
+	 * @param word слово
+	 * @param namePart часть ФИО
+	 * @param gender пол
+	 * @param rule сохраненный номер правила
+	 * @return boolean true - если результат затронут изменением правил
+	 */
+	public boolean affects(String word, NamePart namePart, Gender gender, int rule) {
+		if (this.rules.contains(rule)) {
+			return true;
+		}
+		int index = index(namePart, gender);
+		if (this.suffixes[index].isEmpty() && this.words[index].isEmpty()) {
+			return false;
+		}
+		String lower = word.toLowerCase();
+		Set<String> suffixes = this.suffixes[index];
+		if (!suffixes.isEmpty()) {
+			int length = lower.length();
+			for (int count = 1; count <= this.suffixLength && count <= length; count++) {
+				if (suffixes.contains(lower.substring(length - count))) {
+					return true;
+				}
+			}
+		}
+		return this.words[index].contains(lower);
+	}
+
+	/**
+	 * Возвращает наибольшую длину окончаний
+	 */
+	public int getSuffixLength() {
+		return this.suffixLength;
+	}
+
+	/**
+	 * Возвращает количество затронутых окончаний по всем частям ФИО и полам
+	 */
+	public int getSuffixCount() {
+		int count = 0;
+		for (Set<String> set : this.suffixes) {
+			count += set.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Возвращает количество затронутых слов-исключений по всем частям ФИО и полам
+	 */
+	public int getWordCount() {
+		int count = 0;
+		for (Set<String> set : this.words) {
+			count += set.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Возвращает номера правил, которые больше не используются
+	 */
+	public Set<Integer> getRules() {
+		return new TreeSet<>(this.rules);
+	}
+
+	/**
+	 * Проверяет, что изменение правил ничего не затрагивает
+	 */
+	public boolean isEmpty() {
+		return this.rules.isEmpty() && this.getSuffixCount() == 0 && this.getWordCount() == 0;
+	}
+
+	/**
+	 * Записывает набор в текстовом формате. Поток не закрывается
+	 */
+	public void write(Writer out) {
+		PrintWriter writer = new PrintWriter(out);
+		writer.println("suffix-length " + this.suffixLength);
+		for (NamePart namePart : NamePart.values()) {
+			for (Gender gender : Gender.values()) {
+				int index = index(namePart, gender);
+				for (String suffix : new TreeSet<>(this.suffixes[index])) {
+					writer.println("suffix " + namePart + " " + gender + " " + suffix);
+				}
+				for (String word : new TreeSet<>(this.words[index])) {
+					writer.println("word " + namePart + " " + gender + " " + word);
+				}
+			}
+		}
+		for (int rule : this.rules) {
+			writer.println("rule " + rule);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Читает набор в текстовом формате. Поток не закрывается
+	 * @throws IOException если чтение не удалось или формат неверный
+	 */
+	public static NCLAffectedSet read(Reader in) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		NCLAffectedSet set = null;
+		String line;
+		int number = 0;
+		while ((line = reader.readLine()) != null) {
+			number++;
+			line = line.trim();
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			String[] fields = line.split(" ");
+			try {
+				if (set == null) {
+					if (!fields[0].equals("suffix-length")) {
+						throw new IOException("Строка " + number + ": ожидается suffix-length");
+					}
+					set = new NCLAffectedSet(Integer.parseInt(fields[1]));
+					continue;
+				}
+				switch (fields[0]) {
+					case "suffix":
+						set.addSuffix(NamePart.valueOf(fields[1]), Gender.valueOf(fields[2]), fields[3]);
+						break;
+					case "word":
+						set.addWord(NamePart.valueOf(fields[1]), Gender.valueOf(fields[2]), fields[3]);
+						break;
+					case "rule":
+						set.addRule(Integer.parseInt(fields[1]));
+						break;
+					default:
+						throw new IOException("Строка " + number + ": неизвестная запись " + fields[0]);
+				}
+			} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+				throw new IOException("Строка " + number + ": " + line, e);
+			}
+		}
+		if (set == null) {
+			throw new IOException("Пустой набор затронутых результатов");
+		}
+		return set;
+	}
+}
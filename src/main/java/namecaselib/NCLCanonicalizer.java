@@ -0,0 +1,234 @@
+package namecaselib;
+
+/**
+ * NCLCanonicalizer - приводит входную строку к каноническому виду за один проход:
+ * - все варианты апострофа (', ʼ, `, ‘, ´, ′) заменяются на ’, который используют правила склонения
+ * - латинские буквы, похожие на кириллические (a, e, i, o, p, c, x, ...), заменяются кириллическими,
+ *   но только внутри слов, в которых есть кириллица
+ * - при включенном <var>foldCase</var> все буквы переводятся в нижний регистр
+ *
+ * Обьект накапливает отчет о сделанных заменах до вызова {@link #clearReport()}.
+ * Обьект не потокобезопасен.
+ */
+public class NCLCanonicalizer {
+
+	/**
+	 * Апостроф, который используют правила склонения
+	 */
+	public static final char APOSTROPHE = '’';
+
+	/**
+	 * Переводить ли все буквы в нижний регистр
+	 */
+	private boolean foldCase = false;
+
+	/**
+	 * Буфер для результата
+	 */
+	private final StringBuilder buffer = new StringBuilder();
+
+	/**
+	 * Позиции латинских букв в текущем слове. Заменяются, если в слове встретится кириллица
+	 */
+	private int[] homoglyphPositions = new int[16];
+	private int homoglyphCount = 0;
+
+	/**
+	 * Отчет: сколько апострофов заменено
+	 */
+	private int apostrophes = 0;
+
+	/**
+	 * Отчет: сколько латинских букв заменено кириллическими
+	 */
+	private int homoglyphs = 0;
+
+	/**
+	 * Отчет: сколько букв переведено в нижний регистр
+	 */
+	private int foldedLetters = 0;
+
+	/**
+	 * Включает или выключает перевод в нижний регистр
+	 * @param foldCase true - переводить все буквы в нижний регистр
+	 * @return NCLCanonicalizer
+	 */
+	public NCLCanonicalizer setFoldCase(boolean foldCase) {
+		this.foldCase = foldCase;
+		return this;
+	}
+
+	public boolean isFoldCase() {
+		return this.foldCase;
+	}
+
+	/**
+	 * Приводит строку к каноническому виду
+	 * @param text исходная строка
+	 * @return строка в каноническом виде. Если ничего не изменилось и <var>text</var> - строка, возвращается она же
+	 */
+	public String canonicalize(CharSequence text) {
+		int changesBefore = this.getChanges();
+		this.buffer.setLength(0);
+		this.homoglyphCount = 0;
+		boolean cyrillicWord = false;
+
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (NCLTokenizer.isSpace(c)) {
+				this.flushWord(cyrillicWord);
+				cyrillicWord = false;
+				this.buffer.append(c);
+				continue;
+			}
+			if (isApostrophe(c)) {
+				if (c != APOSTROPHE) {
+					c = APOSTROPHE;
+					this.apostrophes++;
+				}
+				this.buffer.append(c);
+				continue;
+			}
+			if (this.foldCase && Character.isUpperCase(c)) {
+				c = Character.toLowerCase(c);
+				this.foldedLetters++;
+			}
+			if (isCyrillic(c)) {
+				cyrillicWord = true;
+			} else if (cyrillicHomoglyph(c) != 0) {
+				if (this.homoglyphCount == this.homoglyphPositions.length) {
+					int[] grown = new int[this.homoglyphPositions.length * 2];
+					System.arraycopy(this.homoglyphPositions, 0, grown, 0, this.homoglyphCount);
+					this.homoglyphPositions = grown;
+				}
+				this.homoglyphPositions[this.homoglyphCount++] = this.buffer.length();
+			}
+			this.buffer.append(c);
+		}
+		this.flushWord(cyrillicWord);
+
+		if (this.getChanges() == changesBefore && text instanceof String) {
+			return (String) text;
+		}
+		return this.buffer.toString();
+	}
+
+	/**
+	 * Слово закончилось: если в нем была кириллица, заменяем запомненные латинские буквы
+	 */
+	private void flushWord(boolean cyrillicWord) {
+		if (cyrillicWord) {
+			for (int i = 0; i < this.homoglyphCount; i++) {
+				int position = this.homoglyphPositions[i];
+				this.buffer.setCharAt(position, cyrillicHomoglyph(this.buffer.charAt(position)));
+			}
+			this.homoglyphs += this.homoglyphCount;
+		}
+		this.homoglyphCount = 0;
+	}
+
+	/**
+	 * Проверяет, является ли символ одним из вариантов апострофа
+	 */
+	public static boolean isApostrophe(char c) {
+		switch (c) {
+			case '\'':
+			case '’':
+			case 'ʼ':
+			case '`':
+			case '‘':
+			case '´':
+			case '′':
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isCyrillic(char c) {
+		return c >= 'Ѐ' && c <= 'ӿ';
+	}
+
+	/**
+	 * Возвращает кириллическую букву, похожую на латинскую букву <var>c</var>, или 0, если такой нет
+	 */
+	static char cyrillicHomoglyph(char c) {
+		switch (c) {
+			case 'A': return 'А';
+			case 'a': return 'а';
+			case 'B': return 'В';
+			case 'C': return 'С';
+			case 'c': return 'с';
+			case 'E': return 'Е';
+			case 'e': return 'е';
+			case 'H': return 'Н';
+			case 'I': return 'І';
+			case 'i': return 'і';
+			case 'Ï': return 'Ї';
+			case 'ï': return 'ї';
+			case 'K': return 'К';
+			case 'k': return 'к';
+			case 'M': return 'М';
+			case 'O': return 'О';
+			case 'o': return 'о';
+			case 'P': return 'Р';
+			case 'p': return 'р';
+			case 'T': return 'Т';
+			case 'X': return 'Х';
+			case 'x': return 'х';
+			case 'y': return 'у';
+		}
+		return 0;
+	}
+
+	/**
+	 * Возвращает количество замененных апострофов
+	 */
+	public int getApostrophes() {
+		return this.apostrophes;
+	}
+
+	/**
+	 * Возвращает количество латинских букв, замененных кириллическими
+	 */
+	public int getHomoglyphs() {
+		return this.homoglyphs;
+	}
+
+	/**
+	 * Возвращает количество букв, переведенных в нижний регистр
+	 */
+	public int getFoldedLetters() {
+		return this.foldedLetters;
+	}
+
+	/**
+	 * Возвращает общее количество изменений с момента последнего {@link #clearReport()}
+	 */
+	public int getChanges() {
+		return this.apostrophes + this.homoglyphs + this.foldedLetters;
+	}
+
+	/**
+	 * Было ли что-то изменено с момента последнего {@link #clearReport()}
+	 */
+	public boolean isChanged() {
+		return this.getChanges() > 0;
+	}
+
+	/**
+	 * Очищает отчет об изменениях
+	 * @return NCLCanonicalizer
+	 */
+	public NCLCanonicalizer clearReport() {
+		this.apostrophes = 0;
+		this.homoglyphs = 0;
+		this.foldedLetters = 0;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "apostrophes=" + this.apostrophes + ", homoglyphs=" + this.homoglyphs + ", foldedLetters=" + this.foldedLetters;
+	}
+}
@@ -0,0 +1,36 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+/**
+ * NCLDeclensionCache - кеш результатов склонения отдельных слов.
+ *
+ * Ключ - слово в нижнем регистре (как его видят правила), часть ФИО и пол. Значение - падежи
+ * в нижнем регистре и номер правила: регистр исходного слова восстанавливается уже после кеша,
+ * поэтому "ШЕВЧЕНКО" и "Шевченко" используют одну запись.
+ *
+ * Кеш подключается через {@link NCLNameCaseCore#setCache(NCLDeclensionCache)} и должен хранить
+ * результаты только одного языка. Если кеш используется из нескольких потоков, он сам отвечает
+ * за синхронизацию.
+ */
+public interface NCLDeclensionCache {
+
+	/**
+	 * Ищет результат склонения
+	 * @param word слово в нижнем регистре
+	 * @param namePart часть ФИО
+	 * @param gender пол
+	 * @return результат или null, если его нет в кеше
+	 */
+	NCLDeclensionResult get(String word, NamePart namePart, Gender gender);
+
+	/**
+	 * Сохраняет результат склонения
+	 * @param word слово в нижнем регистре
+	 * @param namePart часть ФИО
+	 * @param gender пол
+	 * @param result результат, падежи в нижнем регистре
+	 */
+	void put(String word, NamePart namePart, Gender gender, NCLDeclensionResult result);
+}
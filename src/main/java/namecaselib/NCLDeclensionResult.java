@@ -0,0 +1,287 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NCLDeclensionResult - неизменяемый результат склонения слова или части ФИО.
+ *
+ * Хранит все падежи в массиве фиксированного размера (количество падежей языка),
+ * номер правила, по которому склонялось слово, и пол, по правилам которого оно склонялось.
+ *
+ * Если часть ФИО состоит из нескольких слов, падежи не собираются заранее: {@link #form(int)}
+ * возвращает представление поверх падежей отдельных слов, {@link #appendTo(int, Appendable)}
+ * пишет слова прямо в буфер, а строка собирается только при вызове {@link #get(int)} и запоминается.
+ */
+public final class NCLDeclensionResult {
+
+	/**
+	 * Все падежи, индекс массива - номер падежа. Для нескольких слов заполняется при первом обращении
+	 */
+	private final String[] forms;
+
+	/**
+	 * Результаты склонения отдельных слов, если часть ФИО состоит из нескольких слов, иначе null
+	 */
+	private final NCLDeclensionResult[] parts;
+
+	/**
+	 * Номер правила склонения. -1 - ни одно правило не подошло
+	 */
+	private final int rule;
+
+	/**
+	 * Пол, по правилам которого склонялось слово
+	 */
+	private final Gender gender;
+
+	/**
+	 * Представление падежей в виде списка, создается при первом обращении
+	 */
+	private List<String> list = null;
+
+	/**
+	 * Создает результат склонения. Массив <var>forms</var> не копируется и не должен меняться после вызова.
+	 * @param forms все падежи
+	 * @param rule номер правила
+	 * @param gender пол
+	 */
+	public NCLDeclensionResult(String[] forms, int rule, Gender gender) {
+		this(forms, null, rule, gender);
+	}
+
+	private NCLDeclensionResult(String[] forms, NCLDeclensionResult[] parts, int rule, Gender gender) {
+		this.forms = forms;
+		this.parts = parts;
+		this.rule = rule;
+		this.gender = gender;
+	}
+
+	/**
+	 * Создает результат для части ФИО из нескольких слов: каждый падеж - падежи слов через пробел.
+	 * Падежи не собираются сразу, а только при обращении к ним.
+	 * Если слово одно, возвращается его результат без копирования.
+	 * @param parts результаты склонения слов в порядке их следования
+	 * @param caseCount количество падежей языка
+	 * @return результат для всей части ФИО
+	 */
+	static NCLDeclensionResult join(List<NCLDeclensionResult> parts, int caseCount) {
+		if (parts.size() == 1) {
+			return parts.get(0);
+		}
+		String[] forms = new String[caseCount];
+		if (parts.isEmpty()) {
+			Arrays.fill(forms, "");
+			return new NCLDeclensionResult(forms, 0, null);
+		}
+		NCLDeclensionResult first = parts.get(0);
+		return new NCLDeclensionResult(forms, parts.toArray(new NCLDeclensionResult[0]), first.rule, first.gender);
+	}
+
+	/**
+	 * Возвращает количество падежей
+	 */
+	public int size() {
+		return this.forms.length;
+	}
+
+	/**
+	 * Возвращает строку с нужным падежом
+	 * @param caseNumber номер падежа
+	 * @return строка с падежом
+	 */
+	public String get(int caseNumber) {
+		String form = this.forms[caseNumber];
+		if (form == null) {
+			StringBuilder builder = new StringBuilder(this.length(caseNumber));
+			this.appendParts(caseNumber, builder);
+			form = builder.toString();
+			this.forms[caseNumber] = form;
+		}
+		return form;
+	}
+
+	/**
+	 * Возвращает нужный падеж без сборки строки. Для одного слова - сама строка,
+	 * для нескольких слов - представление поверх падежей отдельных слов.
+	 * @param caseNumber номер падежа
+	 * @return падеж
+	 */
+	public CharSequence form(int caseNumber) {
+		String form = this.forms[caseNumber];
+		if (form != null) {
+			return form;
+		}
+		return new JoinedForm(caseNumber);
+	}
+
+	/**
+	 * Возвращает длину нужного падежа, не собирая строку
+	 * @param caseNumber номер падежа
+	 * @return количество символов
+	 */
+	public int length(int caseNumber) {
+		String form = this.forms[caseNumber];
+		if (form != null) {
+			return form.length();
+		}
+		int length = this.parts.length - 1;
+		for (NCLDeclensionResult part : this.parts) {
+			length += part.length(caseNumber);
+		}
+		return length;
+	}
+
+	/**
+	 * Дописывает нужный падеж в <var>out</var>, не собирая промежуточную строку
+	 * @param caseNumber номер падежа
+	 * @param out буфер, в который нужно дописать падеж
+	 * @return <var>out</var>
+	 */
+	public <A extends Appendable> A appendTo(int caseNumber, A out) throws IOException {
+		String form = this.forms[caseNumber];
+		if (form != null) {
+			out.append(form);
+		} else {
+			this.appendParts(caseNumber, out);
+		}
+		return out;
+	}
+
+	/**
+	 * Дописывает нужный падеж в <var>out</var>, не собирая промежуточную строку
+	 * @param caseNumber номер падежа
+	 * @param out буфер, в который нужно дописать падеж
+	 * @return <var>out</var>
+	 */
+	public StringBuilder appendTo(int caseNumber, StringBuilder out) {
+		String form = this.forms[caseNumber];
+		if (form != null) {
+			out.append(form);
+		} else {
+			this.appendParts(caseNumber, out);
+		}
+		return out;
+	}
+
+	private void appendParts(int caseNumber, StringBuilder out) {
+		for (int i = 0; i < this.parts.length; i++) {
+			if (i > 0) {
+				out.append(' ');
+			}
+			this.parts[i].appendTo(caseNumber, out);
+		}
+	}
+
+	private void appendParts(int caseNumber, Appendable out) throws IOException {
+		for (int i = 0; i < this.parts.length; i++) {
+			if (i > 0) {
+				out.append(' ');
+			}
+			this.parts[i].appendTo(caseNumber, out);
+		}
+	}
+
+	/**
+	 * Символ с номером <var>index</var> в нужном падеже, без сборки строки
+	 */
+	private char charAt(int caseNumber, int index) {
+		String form = this.forms[caseNumber];
+		if (form != null) {
+			return form.charAt(index);
+		}
+		for (int i = 0; i < this.parts.length; i++) {
+			if (i > 0) {
+				if (index == 0) {
+					return ' ';
+				}
+				index--;
+			}
+			int length = this.parts[i].length(caseNumber);
+			if (index < length) {
+				return this.parts[i].charAt(caseNumber, index);
+			}
+			index -= length;
+		}
+		throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Возвращает номер правила, по которому склонялось слово. Для нескольких слов - номер правила первого слова.
+	 * -1 - ни одно правило не подошло
+	 */
+	public int getRule() {
+		return this.rule;
+	}
+
+	/**
+	 * Возвращает пол, по правилам которого склонялось слово
+	 */
+	public Gender getGender() {
+		return this.gender;
+	}
+
+	/**
+	 * Возвращает все падежи неизменяемым списком
+	 */
+	public List<String> toList() {
+		if (this.list == null) {
+			this.list = new AbstractList<String>() {
+				@Override
+				public String get(int index) {
+					return NCLDeclensionResult.this.get(index);
+				}
+
+				@Override
+				public int size() {
+					return NCLDeclensionResult.this.size();
+				}
+			};
+		}
+		return this.list;
+	}
+
+	@Override
+	public String toString() {
+		return this.toList().toString();
+	}
+
+	/**
+	 * Падеж части ФИО из нескольких слов в виде CharSequence поверх падежей отдельных слов
+	 */
+	private final class JoinedForm implements CharSequence {
+
+		private final int caseNumber;
+
+		JoinedForm(int caseNumber) {
+			this.caseNumber = caseNumber;
+		}
+
+		@Override
+		public int length() {
+			return NCLDeclensionResult.this.length(this.caseNumber);
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0) {
+				throw new IndexOutOfBoundsException();
+			}
+			return NCLDeclensionResult.this.charAt(this.caseNumber, index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return this.toString().subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return NCLDeclensionResult.this.get(this.caseNumber);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+/**
+ * NCLDetection - результат определения формата ФИО и пола без склонения
+ * ({@link NCLNameCaseCore#detect(CharSequence, NCLDetection)}).
+ *
+ * Для каждого слова хранятся часть ФИО и границы слова в исходной строке, для всего ФИО - пол
+ * и уверенность (то же, что <var>genderKoef</var> после genderAutoDetect). Обьект переиспользуется:
+ * массивы растут только если слов больше, чем было раньше, поэтому на каждую строку ничего не создается.
+ */
+public class NCLDetection {
+
+	private NamePart[] nameParts = new NamePart[4];
+	private int[] starts = new int[4];
+	private int[] ends = new int[4];
+	private int size = 0;
+
+	private Gender gender = null;
+	private double confidence = 0;
+
+	/**
+	 * Удаляет результат предыдущей строки
+	 */
+	void clear() {
+		this.size = 0;
+		this.gender = null;
+		this.confidence = 0;
+	}
+
+	/**
+	 * Добавляет слово
+	 */
+	void add(NamePart namePart, int start, int end) {
+		if (this.size == this.nameParts.length) {
+			int capacity = this.size * 2;
+			NamePart[] nameParts = new NamePart[capacity];
+			int[] starts = new int[capacity];
+			int[] ends = new int[capacity];
+			System.arraycopy(this.nameParts, 0, nameParts, 0, this.size);
+			System.arraycopy(this.starts, 0, starts, 0, this.size);
+			System.arraycopy(this.ends, 0, ends, 0, this.size);
+			this.nameParts = nameParts;
+			this.starts = starts;
+			this.ends = ends;
+		}
+		this.nameParts[this.size] = namePart;
+		this.starts[this.size] = start;
+		this.ends[this.size] = end;
+		this.size++;
+	}
+
+	void setGender(Gender gender, double confidence) {
+		this.gender = gender;
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Возвращает количество слов
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Возвращает часть ФИО слова <var>index</var>
+	 */
+	public NamePart getNamePart(int index) {
+		this.check(index);
+		return this.nameParts[index];
+	}
+
+	/**
+	 * Возвращает начало слова <var>index</var> в исходной строке
+	 */
+	public int getStart(int index) {
+		this.check(index);
+		return this.starts[index];
+	}
+
+	/**
+	 * Возвращает конец слова <var>index</var> в исходной строке (не включительно)
+	 */
+	public int getEnd(int index) {
+		this.check(index);
+		return this.ends[index];
+	}
+
+	/**
+	 * Возвращает пол или null, если в строке нет слов
+	 */
+	public Gender getGender() {
+		return this.gender;
+	}
+
+	/**
+	 * Возвращает уверенность в поле: наибольшая разница оценок мужского и женского пола среди слов
+	 */
+	public double getConfidence() {
+		return this.confidence;
+	}
+
+	/**
+	 * Дописывает формат в том же виде, что и getFullNameFormat: "S N F "
+	 * @param out буфер
+	 * @return <var>out</var>
+	 */
+	public StringBuilder appendFormat(StringBuilder out) {
+		for (int i = 0; i < this.size; i++) {
+			out.append(this.nameParts[i]).append(' ');
+		}
+		return out;
+	}
+
+	/**
+	 * Возвращает формат строкой, как getFullNameFormat. Создает новую строку при каждом вызове
+	 */
+	public String getFormat() {
+		return this.appendFormat(new StringBuilder(this.size * 2)).toString();
+	}
+
+	private void check(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Слово " + index + ", всего слов " + this.size);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getFormat() + this.gender + " " + this.confidence;
+	}
+}
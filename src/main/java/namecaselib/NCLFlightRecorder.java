@@ -0,0 +1,247 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NCLFlightRecorder - события JDK Flight Recorder для склонения и определения частей ФИО и пола.
+ *
+ * События:
+ * - namecaselib.WordCase - склонение одного слова
+ * - namecaselib.DetectNamePart - определение части ФИО слова
+ * - namecaselib.DetectGender - определение пола по всем словам
+ * - namecaselib.FullName - склонение всех слов ФИО
+ * Поля: часть ФИО, пол, номер правила (-1 если нет), длина слова или сумма длин слов, а также
+ * длительность события.
+ *
+ * События выключены, пока не вызван {@link #enable()}. В выключенном состоянии каждая точка
+ * записи стоит одно чтение volatile поля, а типы событий jdk.jfr даже не создаются. Порог
+ * длительности и запись стека задаются обычными настройками JFR для каждого события (threshold,
+ * stackTrace в .jfc или Recording.enable), по умолчанию порог 0 и стек не пишется.
+ * {@link #setSampling(int)} дополнительно оставляет только каждое n-е событие каждого типа.
+ *
+ * Библиотека собирается под Java 8, где jdk.jfr может отсутствовать, поэтому события создаются
+ * динамически через jdk.jfr.EventFactory, а все обращения к jdk.jfr идут через MethodHandle.
+ * Если JFR в JVM нет, {@link #isAvailable()} возвращает false и enable() ничего не включает.
+ */
+public final class NCLFlightRecorder {
+
+	static final int WORD_CASE = 0;
+	static final int DETECT_NAME_PART = 1;
+	static final int DETECT_GENDER = 2;
+	static final int FULL_NAME = 3;
+
+	private static final String[] NAMES = {"WordCase", "DetectNamePart", "DetectGender", "FullName"};
+	private static final String[] LABELS = {"Склонение слова", "Определение части ФИО", "Определение пола", "Склонение ФИО"};
+
+	private static volatile boolean enabled = false;
+	private static volatile int sampling = 1;
+	private static final AtomicInteger[] counters = new AtomicInteger[NAMES.length];
+
+	static {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * Типы событий и MethodHandle для jdk.jfr. Создание типов событий занимает сотни миллисекунд,
+	 * поэтому класс загружается только при {@link #enable()} или {@link #isAvailable()},
+	 * а не при первом склонении
+	 */
+	private static final class Events {
+
+		private static final Object[] FACTORIES = new Object[NAMES.length];
+		private static final MethodHandle NEW_EVENT;
+		private static final MethodHandle GET_EVENT_TYPE;
+		private static final MethodHandle TYPE_ENABLED;
+		private static final MethodHandle BEGIN;
+		private static final MethodHandle END;
+		private static final MethodHandle SHOULD_COMMIT;
+		private static final MethodHandle COMMIT;
+		private static final MethodHandle SET;
+
+		static {
+			MethodHandle newEvent = null;
+			MethodHandle getEventType = null;
+			MethodHandle typeEnabled = null;
+			MethodHandle begin = null;
+			MethodHandle end = null;
+			MethodHandle shouldCommit = null;
+			MethodHandle commit = null;
+			MethodHandle set = null;
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+				Class<?> eventClass = Class.forName("jdk.jfr.Event");
+				Class<?> typeClass = Class.forName("jdk.jfr.EventType");
+				Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+				Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+				MethodHandle annotation = lookup.findConstructor(annotationClass,
+						MethodType.methodType(void.class, Class.class, Object.class));
+				MethodHandle value = lookup.findConstructor(valueClass,
+						MethodType.methodType(void.class, Class.class, String.class, List.class));
+				MethodHandle create = lookup.findStatic(factoryClass, "create",
+						MethodType.methodType(factoryClass, List.class, List.class));
+
+				List<Object> fields = new ArrayList<>();
+				fields.add(value.invoke(String.class, "namePart", labels(annotation, "Часть ФИО")));
+				fields.add(value.invoke(String.class, "gender", labels(annotation, "Пол")));
+				fields.add(value.invoke(int.class, "rule", labels(annotation, "Правило")));
+				fields.add(value.invoke(int.class, "wordLength", labels(annotation, "Длина слова")));
+
+				for (int i = 0; i < NAMES.length; i++) {
+					List<Object> annotations = new ArrayList<>();
+					annotations.add(annotation.invoke(jfrAnnotation("Name"), "namecaselib." + NAMES[i]));
+					annotations.add(annotation.invoke(jfrAnnotation("Label"), LABELS[i]));
+					annotations.add(annotation.invoke(jfrAnnotation("Category"), new String[]{"NameCaseLib"}));
+					annotations.add(annotation.invoke(jfrAnnotation("Threshold"), "0 ns"));
+					annotations.add(annotation.invoke(jfrAnnotation("StackTrace"), false));
+					FACTORIES[i] = create.invoke(annotations, fields);
+				}
+
+				MethodType objectToVoid = MethodType.methodType(void.class, Object.class);
+				MethodType objectToBoolean = MethodType.methodType(boolean.class, Object.class);
+				newEvent = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass))
+						.asType(MethodType.methodType(Object.class, Object.class));
+				getEventType = lookup.findVirtual(factoryClass, "getEventType", MethodType.methodType(typeClass))
+						.asType(MethodType.methodType(Object.class, Object.class));
+				typeEnabled = lookup.findVirtual(typeClass, "isEnabled", MethodType.methodType(boolean.class))
+						.asType(objectToBoolean);
+				begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class)).asType(objectToVoid);
+				end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class)).asType(objectToVoid);
+				shouldCommit = lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class))
+						.asType(objectToBoolean);
+				commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class)).asType(objectToVoid);
+				set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class))
+						.asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+			} catch (Throwable e) {
+				//Нет JFR: события недоступны
+				newEvent = null;
+				Arrays.fill(FACTORIES, null);
+			}
+			NEW_EVENT = newEvent;
+			GET_EVENT_TYPE = getEventType;
+			TYPE_ENABLED = typeEnabled;
+			BEGIN = begin;
+			END = end;
+			SHOULD_COMMIT = shouldCommit;
+			COMMIT = commit;
+			SET = set;
+		}
+
+		private Events() {
+		}
+	}
+
+	private NCLFlightRecorder() {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Annotation> jfrAnnotation(String name) throws ClassNotFoundException {
+		return (Class<? extends Annotation>) Class.forName("jdk.jfr." + name);
+	}
+
+	private static List<Object> labels(MethodHandle annotation, String label) throws Throwable {
+		return Collections.singletonList(annotation.invoke(jfrAnnotation("Label"), label));
+	}
+
+	/**
+	 * Проверяет, есть ли в JVM Flight Recorder
+	 */
+	public static boolean isAvailable() {
+		return Events.NEW_EVENT != null;
+	}
+
+	/**
+	 * Включает события. Записываются они только во время записи JFR, в которой эти события включены
+	 * @return true, если JFR доступен
+	 */
+	public static boolean enable() {
+		enabled = isAvailable();
+		return enabled;
+	}
+
+	/**
+	 * Выключает события
+	 */
+	public static void disable() {
+		enabled = false;
+	}
+
+	/**
+	 * Проверяет, включены ли события
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Оставляет каждое <var>n</var>-е событие каждого типа. 1 - все события
+	 */
+	public static void setSampling(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("sampling < 1");
+		}
+		sampling = n;
+	}
+
+	/**
+	 * Начинает событие <var>type</var>
+	 * @return событие или null, если события выключены, не попали в выборку или не записываются
+	 */
+	static Object begin(int type) {
+		if (!enabled) {
+			return null;
+		}
+		int n = sampling;
+		if (n > 1 && counters[type].incrementAndGet() % n != 0) {
+			return null;
+		}
+		try {
+			Object factory = Events.FACTORIES[type];
+			if (!(boolean) Events.TYPE_ENABLED.invokeExact(Events.GET_EVENT_TYPE.invokeExact(factory))) {
+				return null;
+			}
+			Object event = Events.NEW_EVENT.invokeExact(factory);
+			Events.BEGIN.invokeExact(event);
+			return event;
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Завершает событие и записывает его, если оно длиннее порога
+	 * @param event событие из {@link #begin(int)}
+	 * @param namePart часть ФИО или null
+	 * @param gender пол или null
+	 * @param rule номер правила или -1
+	 * @param wordLength длина слова
+	 */
+	static void commit(Object event, NamePart namePart, Gender gender, int rule, int wordLength) {
+		try {
+			Events.END.invokeExact(event);
+			if ((boolean) Events.SHOULD_COMMIT.invokeExact(event)) {
+				Events.SET.invokeExact(event, 0, (Object) (namePart == null ? null : namePart.name()));
+				Events.SET.invokeExact(event, 1, (Object) (gender == null ? null : gender.name()));
+				Events.SET.invokeExact(event, 2, (Object) rule);
+				Events.SET.invokeExact(event, 3, (Object) wordLength);
+				Events.COMMIT.invokeExact(event);
+			}
+		} catch (Throwable e) {
+			//Событие необязательно, склонение продолжается
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package namecaselib;
+
+import namecaselib.NCL.NamePart;
+
+/**
+ * NCLFormBuffer - переиспользуемый буфер форм для {@link NCLFormsGenerator}.
+ *
+ * Все формы записываются подряд в один char[], для каждой формы хранятся ее начало, длина,
+ * часть ФИО и номер падежа. Массивы растут только если не хватает места, {@link #clear()}
+ * только сбрасывает счетчики, поэтому буфер можно использовать для каждого документа заново.
+ */
+public class NCLFormBuffer implements NCLFormConsumer {
+
+	private char[] chars = new char[256];
+	private int charCount = 0;
+
+	private int[] offsets = new int[32];
+	private int[] lengths = new int[32];
+	private int[] caseNumbers = new int[32];
+	private NamePart[] nameParts = new NamePart[32];
+	private int size = 0;
+
+	@Override
+	public void form(char[] buffer, int offset, int length, NamePart namePart, int caseNumber) {
+		if (this.charCount + length > this.chars.length) {
+			char[] grown = new char[Math.max(this.charCount + length, this.chars.length * 2)];
+			System.arraycopy(this.chars, 0, grown, 0, this.charCount);
+			this.chars = grown;
+		}
+		if (this.size == this.offsets.length) {
+			int capacity = this.size * 2;
+			int[] offsets = new int[capacity];
+			int[] lengths = new int[capacity];
+			int[] caseNumbers = new int[capacity];
+			NamePart[] nameParts = new NamePart[capacity];
+			System.arraycopy(this.offsets, 0, offsets, 0, this.size);
+			System.arraycopy(this.lengths, 0, lengths, 0, this.size);
+			System.arraycopy(this.caseNumbers, 0, caseNumbers, 0, this.size);
+			System.arraycopy(this.nameParts, 0, nameParts, 0, this.size);
+			this.offsets = offsets;
+			this.lengths = lengths;
+			this.caseNumbers = caseNumbers;
+			this.nameParts = nameParts;
+		}
+		System.arraycopy(buffer, offset, this.chars, this.charCount, length);
+		this.offsets[this.size] = this.charCount;
+		this.lengths[this.size] = length;
+		this.caseNumbers[this.size] = caseNumber;
+		this.nameParts[this.size] = namePart;
+		this.charCount += length;
+		this.size++;
+	}
+
+	/**
+	 * Удаляет все формы, не освобождая память
+	 * @return NCLFormBuffer
+	 */
+	public NCLFormBuffer clear() {
+		this.charCount = 0;
+		this.size = 0;
+		return this;
+	}
+
+	/**
+	 * Возвращает количество форм в буфере
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Возвращает массив с символами всех форм
+	 */
+	public char[] getChars() {
+		return this.chars;
+	}
+
+	/**
+	 * Возвращает начало формы <var>index</var> в {@link #getChars()}
+	 */
+	public int getOffset(int index) {
+		this.check(index);
+		return this.offsets[index];
+	}
+
+	/**
+	 * Возвращает длину формы <var>index</var>
+	 */
+	public int getLength(int index) {
+		this.check(index);
+		return this.lengths[index];
+	}
+
+	/**
+	 * Возвращает часть ФИО формы <var>index</var>
+	 */
+	public NamePart getNamePart(int index) {
+		this.check(index);
+		return this.nameParts[index];
+	}
+
+	/**
+	 * Возвращает номер первого падежа, в котором встречается форма <var>index</var>
+	 */
+	public int getCaseNumber(int index) {
+		this.check(index);
+		return this.caseNumbers[index];
+	}
+
+	/**
+	 * Возвращает форму <var>index</var> строкой. Создает новую строку при каждом вызове
+	 */
+	public String getForm(int index) {
+		this.check(index);
+		return new String(this.chars, this.offsets[index], this.lengths[index]);
+	}
+
+	private void check(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Форма " + index + ", всего форм " + this.size);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < this.size; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(this.nameParts[i]).append(this.caseNumbers[i]).append('=');
+			builder.append(this.chars, this.offsets[i], this.lengths[i]);
+		}
+		return builder.append(']').toString();
+	}
+}
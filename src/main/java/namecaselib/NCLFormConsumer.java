@@ -0,0 +1,22 @@
+package namecaselib;
+
+import namecaselib.NCL.NamePart;
+
+/**
+ * NCLFormConsumer - получатель падежных форм от {@link NCLFormsGenerator}.
+ *
+ * Форма передается как часть массива <var>buffer</var>, который генератор использует повторно,
+ * поэтому после возврата из метода массив читать нельзя: нужные символы нужно скопировать.
+ */
+public interface NCLFormConsumer {
+
+	/**
+	 * Получает очередную форму
+	 * @param buffer массив с символами формы
+	 * @param offset начало формы в <var>buffer</var>
+	 * @param length длина формы
+	 * @param namePart часть ФИО: N - имя, S - фамилия, F - отчество
+	 * @param caseNumber номер первого падежа, в котором встречается эта форма
+	 */
+	void form(char[] buffer, int offset, int length, NamePart namePart, int caseNumber);
+}
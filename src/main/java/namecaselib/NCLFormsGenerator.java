@@ -0,0 +1,142 @@
+package namecaselib;
+
+import namecaselib.NCL.NamePart;
+
+/**
+ * NCLFormsGenerator - выдает все разные падежные формы каждой части ФИО, например для поискового индекса.
+ *
+ * ФИО разбивается на слова и склоняется, после чего для фамилии, имени и отчества по очереди
+ * все падежи записываются в один буфер, одинаковые формы (например родительный и винительный
+ * падеж мужских имен) отбрасываются сравнением участков буфера, а оставшиеся передаются
+ * в {@link NCLFormConsumer} вместе с частью ФИО и номером первого падежа, в котором они встретились.
+ *
+ * Буферы переиспользуются, поэтому после прогрева генератор не создает обьектов, кроме тех,
+ * которые создает само склонение. Обьект не потокобезопасен.
+ */
+public class NCLFormsGenerator {
+
+	/**
+	 * Порядок, в котором выдаются части ФИО
+	 */
+	private static final NamePart[] PARTS = {NamePart.S, NamePart.N, NamePart.F};
+
+	/**
+	 * Обьект склонения
+	 */
+	private final NCLNameCaseCore nameCase;
+
+	/**
+	 * Падежи текущей части ФИО, записанные подряд
+	 */
+	private final StringBuilder scratch = new StringBuilder();
+
+	/**
+	 * Символы из <var>scratch</var>, которые передаются получателю
+	 */
+	private char[] buffer = new char[256];
+
+	/**
+	 * Начало каждого падежа в буфере, последний элемент - конец последнего падежа
+	 */
+	private final int[] offsets;
+
+	/**
+	 * @param nameCase обьект склонения нужного языка
+	 */
+	public NCLFormsGenerator(NCLNameCaseCore nameCase) {
+		this.nameCase = nameCase;
+		this.offsets = new int[nameCase.getCaseCount() + 1];
+	}
+
+	/**
+	 * Склоняет ФИО <var>fullName</var> и передает в <var>consumer</var> все разные формы каждой части ФИО
+	 * @param fullName ФИО в любом порядке
+	 * @param consumer получатель форм
+	 * @return количество переданных форм
+	 */
+	public int generate(CharSequence fullName, NCLFormConsumer consumer) {
+		return this.generate(fullName, 0, fullName.length(), consumer);
+	}
+
+	/**
+	 * Склоняет ФИО, записанное в <var>text</var> от <var>from</var> до <var>to</var>,
+	 * и передает в <var>consumer</var> все разные формы каждой части ФИО
+	 * @param text буфер с ФИО
+	 * @param from начало ФИО
+	 * @param to конец ФИО (не включительно)
+	 * @param consumer получатель форм
+	 * @return количество переданных форм
+	 */
+	public int generate(CharSequence text, int from, int to, NCLFormConsumer consumer) {
+		this.nameCase.declineFullName(text, from, to);
+		int count = 0;
+		for (NamePart namePart : PARTS) {
+			count += this.generate(this.result(namePart), namePart, consumer);
+		}
+		return count;
+	}
+
+	private NCLDeclensionResult result(NamePart namePart) {
+		switch (namePart) {
+			case N: return this.nameCase.getFirstNameResult();
+			case F: return this.nameCase.getFatherNameResult();
+			default: return this.nameCase.getSecondNameResult();
+		}
+	}
+
+	/**
+	 * Записывает все падежи части ФИО в буфер и передает получателю те, которых еще не было
+	 */
+	private int generate(NCLDeclensionResult result, NamePart namePart, NCLFormConsumer consumer) {
+		if (result.length(0) == 0) {
+			//Этой части ФИО нет
+			return 0;
+		}
+		int caseCount = result.size();
+		this.scratch.setLength(0);
+		for (int c = 0; c < caseCount; c++) {
+			this.offsets[c] = this.scratch.length();
+			result.appendTo(c, this.scratch);
+		}
+		this.offsets[caseCount] = this.scratch.length();
+
+		int length = this.scratch.length();
+		if (this.buffer.length < length) {
+			this.buffer = new char[Math.max(length, this.buffer.length * 2)];
+		}
+		this.scratch.getChars(0, length, this.buffer, 0);
+
+		int count = 0;
+		for (int c = 0; c < caseCount; c++) {
+			if (!this.seenBefore(c)) {
+				consumer.form(this.buffer, this.offsets[c], this.offsets[c + 1] - this.offsets[c], namePart, c);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Проверяет, совпадает ли падеж <var>caseNumber</var> с одним из предыдущих падежей
+	 */
+	private boolean seenBefore(int caseNumber) {
+		int start = this.offsets[caseNumber];
+		int length = this.offsets[caseNumber + 1] - start;
+		for (int previous = 0; previous < caseNumber; previous++) {
+			int previousStart = this.offsets[previous];
+			if (this.offsets[previous + 1] - previousStart == length && this.sameChars(start, previousStart, length)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean sameChars(int first, int second, int length) {
+		for (int i = 0; i < length; i++) {
+			if (this.buffer[first + i] != this.buffer[second + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
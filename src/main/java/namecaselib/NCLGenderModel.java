@@ -0,0 +1,317 @@
+package namecaselib;
+
+import namecaselib.NCL.NamePart;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * NCLGenderModel - обученная модель пола по окончаниям слова (n-граммы из 1-{@link #MAX_ORDER} последних букв).
+ *
+ * Для каждой части ФИО хранится обратное префиксное дерево: от корня идут последние буквы слова,
+ * каждый узел - одно окончание. В корне лежит общий вес части ФИО, в узле - поправка к весу родителя,
+ * поэтому сумма весов по пути равна оценке самого длинного известного окончания. Оценка - логарифм
+ * отношения шансов: больше нуля - мужчина, меньше нуля - женщина.
+ *
+ * Дерево хранится плоскими массивами в порядке обхода в ширину: буква узла (char), начало детей (int)
+ * и вес, квантованный в байт с общим масштабом. Дети узла лежат подряд и отсортированы по букве,
+ * поэтому поиск - двоичный поиск без создания обьектов. Обьект неизменяемый и может использоваться
+ * из нескольких потоков и обьектов склонения.
+ *
+ * Модель создается {@link Builder} (например, программой обучения namecaselib.perf.NCLGenderTrainer),
+ * сохраняется {@link #write(OutputStream)} и читается {@link #read(InputStream)} или {@link #load(Path)}.
+ * Подключается к склонению через {@link NCLNameCaseCore#setGenderModel(NCLGenderModel, double)}.
+ */
+public final class NCLGenderModel {
+
+	/**
+	 * Самое длинное окончание
+	 */
+	public static final int MAX_ORDER = 5;
+
+	private static final int MAGIC = 0x4E434C47;
+	private static final int FORMAT = 1;
+
+	/**
+	 * Буква, по которой в узел приходят из родителя (у корней - 0)
+	 */
+	private final char[] labels;
+
+	/**
+	 * Дети узла i - узлы от children[i] до children[i + 1] (не включительно)
+	 */
+	private final int[] children;
+
+	/**
+	 * Квантованные веса узлов, вес = weights[i] * scale
+	 */
+	private final byte[] weights;
+
+	private final float scale;
+
+	private NCLGenderModel(char[] labels, int[] children, byte[] weights, float scale) {
+		this.labels = labels;
+		this.children = children;
+		this.weights = weights;
+		this.scale = scale;
+	}
+
+	/**
+	 * Оценивает слово в нижнем регистре
+	 * @param word слово
+	 * @param namePart часть ФИО
+	 * @return логарифм отношения шансов: больше нуля - мужчина, меньше нуля - женщина
+	 */
+	public double score(CharSequence word, NamePart namePart) {
+		int node = namePart.ordinal();
+		int sum = this.weights[node];
+		int length = word.length();
+		for (int i = length - 1; i >= 0 && length - i <= MAX_ORDER; i--) {
+			node = this.child(node, word.charAt(i));
+			if (node < 0) {
+				break;
+			}
+			sum += this.weights[node];
+		}
+		return sum * this.scale;
+	}
+
+	/**
+	 * Оценивает слово в нижнем регистре из буфера
+	 * @param word буфер со словом
+	 * @param length длина слова
+	 * @param namePart часть ФИО
+	 * @return логарифм отношения шансов: больше нуля - мужчина, меньше нуля - женщина
+	 */
+	public double score(char[] word, int length, NamePart namePart) {
+		int node = namePart.ordinal();
+		int sum = this.weights[node];
+		for (int i = length - 1; i >= 0 && length - i <= MAX_ORDER; i--) {
+			node = this.child(node, word[i]);
+			if (node < 0) {
+				break;
+			}
+			sum += this.weights[node];
+		}
+		return sum * this.scale;
+	}
+
+	/**
+	 * Двоичный поиск ребенка узла <var>node</var> с буквой <var>letter</var>
+	 * @return номер узла или -1
+	 */
+	private int child(int node, char letter) {
+		int low = this.children[node];
+		int high = this.children[node + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = this.labels[middle];
+			if (label < letter) {
+				low = middle + 1;
+			} else if (label > letter) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Возвращает количество узлов всех деревьев
+	 */
+	public int getNodeCount() {
+		return this.weights.length;
+	}
+
+	/**
+	 * Возвращает размер таблиц модели в байтах (без заголовков массивов)
+	 */
+	public int getTableSize() {
+		return this.labels.length * 2 + this.children.length * 4 + this.weights.length;
+	}
+
+	/**
+	 * Возвращает шаг квантования весов
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * Записывает модель в поток. Поток не закрывается
+	 * @param out поток
+	 * @throws IOException если запись не удалась
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT);
+		data.writeByte(NamePart.values().length);
+		data.writeFloat(this.scale);
+		data.writeInt(this.weights.length);
+		for (char label : this.labels) {
+			data.writeChar(label);
+		}
+		for (int child : this.children) {
+			data.writeInt(child);
+		}
+		data.write(this.weights);
+		data.flush();
+	}
+
+	/**
+	 * Читает модель из потока. Поток не закрывается
+	 * @param in поток
+	 * @return NCLGenderModel
+	 * @throws IOException если чтение не удалось или поток не содержит модель
+	 */
+	public static NCLGenderModel read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Это не модель пола NCLGenderModel");
+		}
+		int format = data.readInt();
+		if (format != FORMAT) {
+			throw new IOException("Неизвестный формат модели пола: " + format);
+		}
+		if (data.readByte() != NamePart.values().length) {
+			throw new IOException("Модель построена для другого набора частей ФИО");
+		}
+		float scale = data.readFloat();
+		int count = data.readInt();
+		if (count < NamePart.values().length) {
+			throw new IOException("Неверное количество узлов модели пола: " + count);
+		}
+		char[] labels = new char[count];
+		for (int i = 0; i < count; i++) {
+			labels[i] = data.readChar();
+		}
+		int[] children = new int[count + 1];
+		for (int i = 0; i <= count; i++) {
+			children[i] = data.readInt();
+			if (children[i] < 0 || children[i] > count || i > 0 && children[i] < children[i - 1]) {
+				throw new IOException("Поврежденная модель пола: узел " + i);
+			}
+		}
+		byte[] weights = new byte[count];
+		data.readFully(weights);
+		return new NCLGenderModel(labels, children, weights, scale);
+	}
+
+	/**
+	 * Читает модель из файла
+	 * @param file файл модели
+	 * @return NCLGenderModel
+	 * @throws IOException если файл нельзя прочитать или он не содержит модель
+	 */
+	public static NCLGenderModel load(Path file) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Builder - собирает модель из весов окончаний и квантует их
+	 */
+	public static final class Builder {
+
+		private static final class Node {
+			private final TreeMap<Character, Node> children = new TreeMap<>();
+			private double weight = 0;
+		}
+
+		private final Node[] roots = new Node[NamePart.values().length];
+
+		public Builder() {
+			for (int i = 0; i < this.roots.length; i++) {
+				this.roots[i] = new Node();
+			}
+		}
+
+		/**
+		 * Устанавливает общий вес части ФИО (вес корня)
+		 * @return Builder
+		 */
+		public Builder bias(NamePart namePart, double weight) {
+			this.roots[namePart.ordinal()].weight = weight;
+			return this;
+		}
+
+		/**
+		 * Устанавливает поправку окончания <var>suffix</var> к весу его родителя (окончания без первой буквы).
+		 * Промежуточные окончания, для которых вес не задан, получают вес 0
+		 * @param namePart часть ФИО
+		 * @param suffix окончание в нижнем регистре, от 1 до {@link #MAX_ORDER} букв
+		 * @param weight поправка
+		 * @return Builder
+		 */
+		public Builder put(NamePart namePart, CharSequence suffix, double weight) {
+			if (suffix.length() == 0 || suffix.length() > MAX_ORDER) {
+				throw new IllegalArgumentException("Окончание должно быть от 1 до " + MAX_ORDER + " букв: " + suffix);
+			}
+			Node node = this.roots[namePart.ordinal()];
+			for (int i = suffix.length() - 1; i >= 0; i--) {
+				node = node.children.computeIfAbsent(suffix.charAt(i), letter -> new Node());
+			}
+			node.weight = weight;
+			return this;
+		}
+
+		/**
+		 * Строит неизменяемую модель
+		 * @return NCLGenderModel
+		 */
+		public NCLGenderModel build() {
+			List<Node> nodes = new ArrayList<>();
+			List<Character> labels = new ArrayList<>();
+			Deque<Node> queue = new ArrayDeque<>();
+			for (Node root : this.roots) {
+				nodes.add(root);
+				labels.add((char) 0);
+				queue.add(root);
+			}
+			//Обход в ширину: дети каждого узла попадают в массив подряд
+			List<Integer> firstChild = new ArrayList<>();
+			while (!queue.isEmpty()) {
+				Node node = queue.poll();
+				firstChild.add(nodes.size());
+				for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+					nodes.add(entry.getValue());
+					labels.add(entry.getKey());
+					queue.add(entry.getValue());
+				}
+			}
+
+			int count = nodes.size();
+			double max = 0;
+			for (Node node : nodes) {
+				max = Math.max(max, Math.abs(node.weight));
+			}
+			float scale = max == 0 ? 1f : (float) (max / Byte.MAX_VALUE);
+
+			char[] labelArray = new char[count];
+			int[] children = new int[count + 1];
+			byte[] weights = new byte[count];
+			for (int i = 0; i < count; i++) {
+				labelArray[i] = labels.get(i);
+				children[i] = firstChild.get(i);
+				weights[i] = (byte) Math.round(nodes.get(i).weight / scale);
+			}
+			children[count] = count;
+			return new NCLGenderModel(labelArray, children, weights, scale);
+		}
+	}
+}
@@ -0,0 +1,400 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * NCLInverseIndex - обратный индекс склонения: по любой форме слова находит его именительный падеж.
+ *
+ * Правила склонения записаны кодом, а не таблицами, поэтому индекс учится у обьекта склонения:
+ * для каждого слова-образца склоняются все части ФИО для обоих полов, и для каждого падежа
+ * запоминается замена окончания (сколько букв убрать с конца формы и что дописать), которая
+ * возвращает форму в именительный падеж. Замены хранятся в дереве обратных суффиксов:
+ * ключ - окончание формы вместе с несколькими буквами основы перед ним, записанное с конца.
+ *
+ * Поиск проходит дерево по буквам формы с конца, поэтому число шагов не больше длины слова.
+ * Каждая найденная замена дает кандидата, одинаковые кандидаты отсеиваются через хеш-таблицу.
+ * Проверка прямым склонением - отдельный шаг ({@link #verify(CharSequence, List)} или
+ * {@link #setVerify(boolean)}): кандидат остается, только если в нужном падеже он действительно
+ * дает исходную форму. Она стоит одного склонения на кандидата, поэтому по умолчанию выключена.
+ *
+ * Обьект не потокобезопасен: и обучение, и проверка кандидатов используют обьект склонения.
+ */
+public class NCLInverseIndex {
+
+	/**
+	 * Сколько букв основы перед окончанием входит в ключ замены
+	 */
+	private static final int CONTEXT = 2;
+
+	/**
+	 * Буквы, из которых составляются окончания при переборе {@link #learnSuffixes(int)}
+	 */
+	private static final String ALPHABET = "абвгґдеєжзиіїйклмнопрстуфхцчшщьюя’";
+
+	/**
+	 * Основа, к которой дописываются перебираемые окончания
+	 */
+	private static final String PROBE_STEM = "Бо";
+
+	/**
+	 * Обьект склонения, у которого учится индекс и которым проверяются кандидаты
+	 */
+	private final NCLNameCaseCore nameCase;
+
+	/**
+	 * Корень дерева обратных суффиксов
+	 */
+	private final Node root = new Node();
+
+	/**
+	 * Проверять ли кандидатов прямым склонением
+	 */
+	private boolean verify = false;
+
+	/**
+	 * Количество разных замен в индексе
+	 */
+	private int size = 0;
+
+	/**
+	 * @param nameCase обьект склонения нужного языка
+	 */
+	public NCLInverseIndex(NCLNameCaseCore nameCase) {
+		this.nameCase = nameCase;
+	}
+
+	/**
+	 * Включает или выключает проверку кандидатов прямым склонением в {@link #find(CharSequence)}.
+	 * По умолчанию выключена: поиск возвращает все кандидаты, которые допускают окончания
+	 * @param verify true - проверять
+	 * @return NCLInverseIndex
+	 */
+	public NCLInverseIndex setVerify(boolean verify) {
+		this.verify = verify;
+		return this;
+	}
+
+	public boolean isVerify() {
+		return this.verify;
+	}
+
+	/**
+	 * Возвращает количество разных замен окончаний в индексе
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Добавляет в индекс все формы слова <var>nominative</var>: имя, фамилию и отчество обоих полов.
+	 * Так индекс узнает об исключениях, которые правила проверяют по всему слову.
+	 * @param nominative слово в именительном падеже
+	 * @return NCLInverseIndex
+	 */
+	public NCLInverseIndex learn(String nominative) {
+		this.learn(nominative, 0);
+		return this;
+	}
+
+	/**
+	 * Добавляет в индекс все слова из <var>nominatives</var>
+	 * @param nominatives слова в именительном падеже
+	 * @return NCLInverseIndex
+	 */
+	public NCLInverseIndex learn(Iterable<String> nominatives) {
+		for (String nominative : nominatives) {
+			this.learn(nominative, 0);
+		}
+		return this;
+	}
+
+	/**
+	 * Перебирает все окончания длиной до <var>length</var> букв и добавляет в индекс их формы.
+	 * Так индекс узнает все замены, которые правила делают только по окончанию слова.
+	 * Основа перебираемых слов не входит в ключи замен.
+	 * @param length максимальная длина окончания, обычно 3
+	 * @return NCLInverseIndex
+	 */
+	public NCLInverseIndex learnSuffixes(int length) {
+		char[] suffix = new char[length];
+		for (int current = 1; current <= length; current++) {
+			this.learnSuffixes(suffix, 0, current);
+		}
+		return this;
+	}
+
+	private void learnSuffixes(char[] suffix, int position, int length) {
+		if (position == length) {
+			this.learn(PROBE_STEM + new String(suffix, 0, length), PROBE_STEM.length());
+			return;
+		}
+		for (int i = 0; i < ALPHABET.length(); i++) {
+			suffix[position] = ALPHABET.charAt(i);
+			this.learnSuffixes(suffix, position + 1, length);
+		}
+	}
+
+	/**
+	 * Склоняет слово всеми способами и добавляет замены для каждого падежа
+	 * @param nominative слово в именительном падеже
+	 * @param stemLength сколько первых букв слова нельзя использовать в ключе
+	 */
+	private void learn(String nominative, int stemLength) {
+		for (NamePart namePart : NamePart.values()) {
+			for (Gender gender : Gender.values()) {
+				NCLDeclensionResult result;
+				try {
+					result = this.nameCase.qNameResult(nominative, namePart, gender);
+				} catch (RuntimeException e) {
+					//Слово не склоняется по этим правилам
+					continue;
+				}
+				for (int caseNumber = 0; caseNumber < result.size(); caseNumber++) {
+					this.add(result.get(caseNumber), nominative, stemLength, namePart, gender, caseNumber);
+				}
+			}
+		}
+	}
+
+	private void add(String form, String nominative, int stemLength, NamePart namePart, Gender gender, int caseNumber) {
+		int common = 0;
+		int limit = Math.min(form.length(), nominative.length());
+		while (common < limit && Character.toLowerCase(form.charAt(common)) == Character.toLowerCase(nominative.charAt(common))) {
+			common++;
+		}
+		int strip = form.length() - common;
+		int context = Math.max(0, Math.min(CONTEXT, common - stemLength));
+		String ending = nominative.substring(common).toLowerCase();
+
+		Node node = this.root;
+		for (int i = form.length() - 1; i >= form.length() - strip - context; i--) {
+			node = node.child(Character.toLowerCase(form.charAt(i)), true);
+		}
+		if (node.add(new Replacement(strip, ending, namePart, gender, caseNumber))) {
+			this.size++;
+		}
+	}
+
+	/**
+	 * Ищет все возможные именительные падежи для формы <var>form</var>
+	 * @param form слово в любом падеже
+	 * @return список кандидатов, пустой, если ничего не найдено
+	 */
+	public List<Candidate> find(CharSequence form) {
+		Set<Candidate> candidates = new LinkedHashSet<>();
+		String text = form.toString();
+		int length = text.length();
+		Node node = this.root;
+		for (int k = 0; k < node.count; k++) {
+			this.addCandidate(candidates, text, node.replacements[k]);
+		}
+		for (int i = length - 1; i >= 0 && node != null; i--) {
+			node = node.child(Character.toLowerCase(text.charAt(i)), false);
+			if (node != null) {
+				for (int k = 0; k < node.count; k++) {
+					this.addCandidate(candidates, text, node.replacements[k]);
+				}
+			}
+		}
+		List<Candidate> found = new ArrayList<>(candidates);
+		return this.verify ? this.verify(text, found) : found;
+	}
+
+	private void addCandidate(Set<Candidate> candidates, String form, Replacement replacement) {
+		int keep = form.length() - replacement.strip;
+		if (keep <= 0) {
+			return;
+		}
+		String ending = replacement.ending;
+		if (Character.isUpperCase(form.charAt(keep - 1)) && keep > 1) {
+			ending = ending.toUpperCase();
+		}
+		candidates.add(new Candidate(form.substring(0, keep) + ending, replacement.namePart, replacement.gender, replacement.caseNumber, 0));
+	}
+
+	/**
+	 * Проверяет кандидатов прямым склонением: остаются только те, которые в своем падеже дают <var>form</var>
+	 * @param form исходная форма
+	 * @param candidates кандидаты из {@link #find(CharSequence)}
+	 * @return проверенные кандидаты с номером правила
+	 */
+	public List<Candidate> verify(CharSequence form, List<Candidate> candidates) {
+		String text = form.toString();
+		List<Candidate> verified = new ArrayList<>();
+		for (Candidate candidate : candidates) {
+			try {
+				NCLDeclensionResult result = this.nameCase.qNameResult(candidate.nominative, candidate.namePart, candidate.gender);
+				if (!result.get(candidate.caseNumber).equalsIgnoreCase(text)) {
+					continue;
+				}
+				int rule = result.getRule();
+				//Слово, к которому не подошло ни одно правило, совпадает с формой во всех падежах:
+				//оставляем только именительный, иначе каждое слово было бы кандидатом для любого падежа
+				if (rule == -1 && candidate.caseNumber != 0) {
+					continue;
+				}
+				verified.add(new Candidate(candidate.nominative, candidate.namePart, candidate.gender, candidate.caseNumber, rule));
+			} catch (RuntimeException e) {
+				//Кандидат не склоняется по этим правилам
+			}
+		}
+		return verified;
+	}
+
+	/**
+	 * Замена окончания: убрать <var>strip</var> букв с конца формы и дописать <var>ending</var>
+	 */
+	private static final class Replacement {
+
+		final int strip;
+		final String ending;
+		final NamePart namePart;
+		final Gender gender;
+		final int caseNumber;
+
+		Replacement(int strip, String ending, NamePart namePart, Gender gender, int caseNumber) {
+			this.strip = strip;
+			this.ending = ending;
+			this.namePart = namePart;
+			this.gender = gender;
+			this.caseNumber = caseNumber;
+		}
+
+		boolean same(Replacement other) {
+			return this.strip == other.strip && this.caseNumber == other.caseNumber && this.namePart == other.namePart
+					&& this.gender == other.gender && this.ending.equals(other.ending);
+		}
+	}
+
+	/**
+	 * Узел дерева обратных суффиксов. Дети хранятся в параллельных массивах букв и узлов
+	 */
+	private static final class Node {
+
+		private char[] letters = new char[0];
+		private Node[] children = new Node[0];
+		private Replacement[] replacements = new Replacement[0];
+		private int count = 0;
+
+		Node child(char letter, boolean create) {
+			for (int i = 0; i < this.letters.length; i++) {
+				if (this.letters[i] == letter) {
+					return this.children[i];
+				}
+			}
+			if (!create) {
+				return null;
+			}
+			int size = this.letters.length;
+			char[] letters = new char[size + 1];
+			Node[] children = new Node[size + 1];
+			System.arraycopy(this.letters, 0, letters, 0, size);
+			System.arraycopy(this.children, 0, children, 0, size);
+			letters[size] = letter;
+			children[size] = new Node();
+			this.letters = letters;
+			this.children = children;
+			return children[size];
+		}
+
+		boolean add(Replacement replacement) {
+			for (int i = 0; i < this.count; i++) {
+				if (this.replacements[i].same(replacement)) {
+					return false;
+				}
+			}
+			if (this.count == this.replacements.length) {
+				Replacement[] grown = new Replacement[Math.max(2, this.count * 2)];
+				System.arraycopy(this.replacements, 0, grown, 0, this.count);
+				this.replacements = grown;
+			}
+			this.replacements[this.count++] = replacement;
+			return true;
+		}
+	}
+
+	/**
+	 * Кандидат в именительный падеж: слово, часть ФИО, пол и падеж, в котором была найденная форма
+	 */
+	public static final class Candidate {
+
+		private final String nominative;
+		private final NamePart namePart;
+		private final Gender gender;
+		private final int caseNumber;
+		private final int rule;
+
+		Candidate(String nominative, NamePart namePart, Gender gender, int caseNumber, int rule) {
+			this.nominative = nominative;
+			this.namePart = namePart;
+			this.gender = gender;
+			this.caseNumber = caseNumber;
+			this.rule = rule;
+		}
+
+		/**
+		 * Возвращает слово в именительном падеже
+		 */
+		public String getNominative() {
+			return this.nominative;
+		}
+
+		/**
+		 * Возвращает часть ФИО: N - имя, S - фамилия, F - отчество
+		 */
+		public NamePart getNamePart() {
+			return this.namePart;
+		}
+
+		/**
+		 * Возвращает пол, по правилам которого форма получается из именительного падежа
+		 */
+		public Gender getGender() {
+			return this.gender;
+		}
+
+		/**
+		 * Возвращает номер падежа найденной формы
+		 */
+		public int getCaseNumber() {
+			return this.caseNumber;
+		}
+
+		/**
+		 * Возвращает номер правила склонения. 0 - кандидат не проверялся, -1 - слово не склоняется
+		 */
+		public int getRule() {
+			return this.rule;
+		}
+
+		/**
+		 * Кандидаты равны, если совпадают слово, часть ФИО, пол и падеж. Номер правила не сравнивается
+		 */
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Candidate)) {
+				return false;
+			}
+			Candidate candidate = (Candidate) other;
+			return this.caseNumber == candidate.caseNumber && this.namePart == candidate.namePart
+					&& this.gender == candidate.gender && this.nominative.equals(candidate.nominative);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.nominative, this.namePart, this.gender, this.caseNumber);
+		}
+
+		@Override
+		public String toString() {
+			return this.nominative + " " + this.namePart + " " + this.gender + " " + this.caseNumber;
+		}
+	}
+}
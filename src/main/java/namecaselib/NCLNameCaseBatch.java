@@ -0,0 +1,364 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+/**
+ * NCLNameCaseBatch - пакетное склонение большого количества ФИО, записанных в одном буфере.
+ *
+ * Входные ФИО лежат подряд в одном char[] (или любом CharSequence, например CharBuffer), их границы
+ * заданы массивами начал и длин. Для каждого ФИО склоняются все слова, и каждый падеж полного ФИО
+ * (слова в исходном порядке через пробел) записывается во второй буфер. Падежи одного ФИО лежат
+ * в буфере подряд, а их границы хранятся в одной таблице:
+ * <pre>
+ * начало падежа c строки i = getFormOffsets()[i * caseCount + c]
+ * конец падежа c строки i  = getFormOffsets()[i * caseCount + c + 1]
+ * </pre>
+ *
+ * Буферы и таблицы переиспользуются между вызовами и растут только если не хватает места,
+ * поэтому результат действителен до следующего вызова {@link #decline(CharSequence, int[], int[], int)}.
+ * Если ФИО не удалось просклонять, во все падежи записывается исходная строка, а пол равен null.
+ *
+ * Состояние обьекта склонения (список и обьекты слов, индекс частей ФИО) тоже переиспользуется от строки
+ * к строке ({@link NCLNameCaseCore#declineFullName(CharSequence, int, int)}). Правила, которые работают
+ * с символами ({@link NCLNameCaseCore#charRules()}), пишут падежи в буферы слов, и падежи копируются
+ * в буфер пакета с восстановлением регистра по маске, поэтому строка склоняется без выделения памяти.
+ * Строки все же создаются, если настроен кеш падежей или в слове есть символы, регистр которых
+ * не восстанавливается посимвольно.
+ *
+ * Если все строки записаны в одном порядке (колонка "фамилия имя отчество" из таблицы), можно включить
+ * {@link #setColumnLayout(int, double)}: перед склонением по выборке строк пакета определяется раскладка
+ * ({@link NCLNameLayout}), и части ФИО всех строк берутся из нее. Строки, которые раскладке противоречат,
+ * склоняются с определением частей ФИО по словам, их количество возвращает {@link #getLayoutFallbacks()}.
+ *
+ * Обьект не потокобезопасен, для каждого потока нужен свой обьект и свой обьект склонения.
+ */
+public class NCLNameCaseBatch {
+
+	/**
+	 * Обьект склонения, который используется для всех строк
+	 */
+	private final NCLNameCaseCore nameCase;
+
+	/**
+	 * Количество падежей языка
+	 */
+	private final int caseCount;
+
+	/**
+	 * Буфер с падежами всех строк
+	 */
+	private char[] forms = new char[4096];
+
+	/**
+	 * Сколько символов буфера <var>forms</var> занято
+	 */
+	private int formsLength = 0;
+
+	/**
+	 * Таблица начал падежей в буфере <var>forms</var>, последний элемент - конец последнего падежа
+	 */
+	private int[] formOffsets = new int[1];
+
+	/**
+	 * Пол каждой строки
+	 */
+	private Gender[] genders = new Gender[0];
+
+	/**
+	 * Количество строк в последнем пакете
+	 */
+	private int count = 0;
+
+	/**
+	 * Количество строк, которые не удалось просклонять
+	 */
+	private int errors = 0;
+
+	/**
+	 * Раскладка, заданная заранее, или null
+	 */
+	private NCLNameLayout fixedLayout = null;
+
+	/**
+	 * Сколько строк проверять для определения раскладки, 0 - раскладка не определяется
+	 */
+	private int layoutSample = 0;
+
+	/**
+	 * Наименьшая уверенность, при которой определенная раскладка применяется
+	 */
+	private double layoutConfidence = 0;
+
+	/**
+	 * Раскладка последнего пакета или null, если строки склонялись с определением частей ФИО по словам
+	 */
+	private NCLNameLayout layout = null;
+
+	/**
+	 * Количество строк последнего пакета, которые противоречили раскладке
+	 */
+	private int layoutFallbacks = 0;
+
+	/**
+	 * @param nameCase обьект склонения нужного языка. Во время работы пакета его нельзя использовать отдельно
+	 */
+	public NCLNameCaseBatch(NCLNameCaseCore nameCase) {
+		this.nameCase = nameCase;
+		this.caseCount = nameCase.getCaseCount();
+	}
+
+	/**
+	 * Включает определение раскладки колонки для каждого пакета
+	 * @param sampleSize сколько строк пакета проверять, 0 - выключить
+	 * @param minConfidence наименьшая уверенность от 0 до 1, при которой раскладка применяется
+	 * @return NCLNameCaseBatch
+	 */
+	public NCLNameCaseBatch setColumnLayout(int sampleSize, double minConfidence) {
+		if (sampleSize < 0) {
+			throw new IllegalArgumentException("sampleSize < 0");
+		}
+		if (!(minConfidence >= 0 && minConfidence <= 1)) {
+			throw new IllegalArgumentException("Уверенность должна быть от 0 до 1: " + minConfidence);
+		}
+		this.layoutSample = sampleSize;
+		this.layoutConfidence = minConfidence;
+		return this;
+	}
+
+	/**
+	 * Устанавливает раскладку, известную заранее. Она применяется ко всем пакетам без выборки
+	 * @param layout раскладка или null, чтобы выключить ее
+	 * @return NCLNameCaseBatch
+	 */
+	public NCLNameCaseBatch setLayout(NCLNameLayout layout) {
+		this.fixedLayout = layout;
+		return this;
+	}
+
+	/**
+	 * Склоняет <var>count</var> ФИО из массива <var>names</var>
+	 * @param names буфер с ФИО
+	 * @param offsets начало каждого ФИО в <var>names</var>
+	 * @param lengths длина каждого ФИО
+	 * @param count количество ФИО
+	 * @return NCLNameCaseBatch
+	 */
+	public NCLNameCaseBatch decline(char[] names, int[] offsets, int[] lengths, int count) {
+		return this.decline(CharBuffer.wrap(names), offsets, lengths, count);
+	}
+
+	/**
+	 * Склоняет <var>count</var> ФИО из буфера <var>names</var>.
+	 * Для CharBuffer начала отсчитываются от его текущей позиции.
+	 * @param names буфер с ФИО
+	 * @param offsets начало каждого ФИО в <var>names</var>
+	 * @param lengths длина каждого ФИО
+	 * @param count количество ФИО
+	 * @return NCLNameCaseBatch
+	 */
+	public NCLNameCaseBatch decline(CharSequence names, int[] offsets, int[] lengths, int count) {
+		int tableSize = count * this.caseCount + 1;
+		if (this.formOffsets.length < tableSize) {
+			this.formOffsets = new int[tableSize];
+		}
+		if (this.genders.length < count) {
+			this.genders = new Gender[count];
+		}
+		this.count = count;
+		this.formsLength = 0;
+		this.errors = 0;
+		this.layoutFallbacks = 0;
+		this.layout = this.fixedLayout;
+		if (this.layout == null && this.layoutSample > 0) {
+			NCLNameLayout inferred = NCLNameLayout.infer(this.nameCase, names, offsets, lengths, count, this.layoutSample);
+			if (inferred != null && inferred.getConfidence() >= this.layoutConfidence) {
+				this.layout = inferred;
+			}
+		}
+
+		for (int row = 0; row < count; row++) {
+			this.declineRow(names, offsets[row], offsets[row] + lengths[row], row);
+		}
+		this.formOffsets[count * this.caseCount] = this.formsLength;
+		return this;
+	}
+
+	/**
+	 * Склоняет одно ФИО и записывает все его падежи в буфер
+	 */
+	private void declineRow(CharSequence names, int from, int to, int row) {
+		int base = row * this.caseCount;
+		try {
+			List<NCLNameCaseWord> words;
+			if (this.layout == null) {
+				words = this.nameCase.declineFullName(names, from, to);
+			} else {
+				if (!this.nameCase.declineByLayout(names, from, to, this.layout.parts())) {
+					this.layoutFallbacks++;
+				}
+				words = this.nameCase.getWordsArray();
+			}
+			//Сначала проверяем, что все падежи есть, чтобы не записать строку наполовину
+			for (int k = 0; k < words.size(); k++) {
+				NCLNameCaseWord word = words.get(k);
+				if (word.getNameCaseLength(this.caseCount - 1) < 0) {
+					throw new IllegalStateException("Слово " + word.getWord() + " не просклонялось");
+				}
+			}
+			for (int c = 0; c < this.caseCount; c++) {
+				this.formOffsets[base + c] = this.formsLength;
+				for (int k = 0; k < words.size(); k++) {
+					if (k > 0) {
+						this.append(' ');
+					}
+					this.append(words.get(k), c);
+				}
+			}
+			this.genders[row] = words.isEmpty() ? null : words.get(0).gender();
+		} catch (RuntimeException e) {
+			this.errors++;
+			for (int c = 0; c < this.caseCount; c++) {
+				this.formOffsets[base + c] = this.formsLength;
+				this.append(names, from, to);
+			}
+			this.genders[row] = null;
+		}
+	}
+
+	private void ensureCapacity(int extra) {
+		int needed = this.formsLength + extra;
+		if (needed > this.forms.length) {
+			char[] grown = new char[Math.max(needed, this.forms.length * 2)];
+			System.arraycopy(this.forms, 0, grown, 0, this.formsLength);
+			this.forms = grown;
+		}
+	}
+
+	private void append(char c) {
+		this.ensureCapacity(1);
+		this.forms[this.formsLength++] = c;
+	}
+
+	private void append(NCLNameCaseWord word, int caseNumber) {
+		int length = word.getNameCaseLength(caseNumber);
+		this.ensureCapacity(length);
+		word.getNameCaseChars(caseNumber, this.forms, this.formsLength);
+		this.formsLength += length;
+	}
+
+	private void append(CharSequence text, int from, int to) {
+		this.ensureCapacity(to - from);
+		for (int i = from; i < to; i++) {
+			this.forms[this.formsLength++] = text.charAt(i);
+		}
+	}
+
+	/**
+	 * Возвращает количество строк в последнем пакете
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Возвращает количество строк, которые не удалось просклонять
+	 */
+	public int getErrors() {
+		return this.errors;
+	}
+
+	/**
+	 * Возвращает раскладку, по которой склонялся последний пакет, или null, если она не применялась
+	 */
+	public NCLNameLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Возвращает количество строк последнего пакета, которые противоречили раскладке
+	 * и склонялись с определением частей ФИО по словам
+	 */
+	public int getLayoutFallbacks() {
+		return this.layoutFallbacks;
+	}
+
+	/**
+	 * Возвращает количество падежей каждой строки
+	 */
+	public int getCaseCount() {
+		return this.caseCount;
+	}
+
+	/**
+	 * Возвращает буфер с падежами всех строк. Занята только часть до {@link #getFormsLength()}
+	 */
+	public char[] getForms() {
+		return this.forms;
+	}
+
+	/**
+	 * Возвращает количество занятых символов в буфере {@link #getForms()}
+	 */
+	public int getFormsLength() {
+		return this.formsLength;
+	}
+
+	/**
+	 * Возвращает таблицу начал падежей, см. описание класса
+	 */
+	public int[] getFormOffsets() {
+		return this.formOffsets;
+	}
+
+	/**
+	 * Возвращает начало падежа <var>caseNumber</var> строки <var>row</var> в буфере {@link #getForms()}
+	 */
+	public int formStart(int row, int caseNumber) {
+		return this.formOffsets[this.formIndex(row, caseNumber)];
+	}
+
+	/**
+	 * Возвращает длину падежа <var>caseNumber</var> строки <var>row</var>
+	 */
+	public int formLength(int row, int caseNumber) {
+		int index = this.formIndex(row, caseNumber);
+		return this.formOffsets[index + 1] - this.formOffsets[index];
+	}
+
+	/**
+	 * Дописывает падеж <var>caseNumber</var> строки <var>row</var> в <var>out</var>
+	 * @return <var>out</var>
+	 */
+	public StringBuilder appendTo(int row, int caseNumber, StringBuilder out) {
+		int index = this.formIndex(row, caseNumber);
+		return out.append(this.forms, this.formOffsets[index], this.formOffsets[index + 1] - this.formOffsets[index]);
+	}
+
+	/**
+	 * Возвращает падеж <var>caseNumber</var> строки <var>row</var> строкой. Создает новую строку при каждом вызове
+	 */
+	public String getForm(int row, int caseNumber) {
+		int index = this.formIndex(row, caseNumber);
+		return new String(this.forms, this.formOffsets[index], this.formOffsets[index + 1] - this.formOffsets[index]);
+	}
+
+	/**
+	 * Возвращает пол строки <var>row</var> или null, если ФИО не удалось просклонять
+	 */
+	public Gender getGender(int row) {
+		if (row < 0 || row >= this.count) {
+			throw new IndexOutOfBoundsException("Строка " + row + ", всего строк " + this.count);
+		}
+		return this.genders[row];
+	}
+
+	private int formIndex(int row, int caseNumber) {
+		if (row < 0 || row >= this.count || caseNumber < 0 || caseNumber >= this.caseCount) {
+			throw new IndexOutOfBoundsException("Строка " + row + ", падеж " + caseNumber);
+		}
+		return row * this.caseCount + caseNumber;
+	}
+}
@@ -2,12 +2,12 @@ package namecaselib;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Supplier;
 
 import static namecaselib.NCL.Gender.MAN;
 import static namecaselib.NCL.Gender.WOMAN;
@@ -54,12 +54,20 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * @var string
 	 */
 	protected String workingWord = "";
+	/**
+	 * Текущее слово посимвольно в нижнем регистре, занята часть до <var>workingLength</var>.
+	 * Для языков с правилами на символах ({@link #charRules()}) строка <var>workingWord</var> не заполняется
+	 */
+	protected char[] workingChars = new char[32];
+	protected int workingLength = 0;
 	/**
 	 * Метод Last() вырезает подстроки разной длины. Посколько одинаковых вызовов бывает несколько,
-	 * то все результаты выполнения кешируются в этом массиве.
+	 * то все результаты выполнения кешируются в этом массиве: ячейка length * LAST_CACHE_SIZE + stopAfter.
+	 * Массив один на обьект склонения и очищается для каждого слова, подстроки длиннее LAST_CACHE_SIZE не кешируются.
 	 * @var array
 	 */
-	protected Map<Integer, Map<Integer, String>> workindLastCache = new HashMap<>();
+	protected final String[] workindLastCache = new String[LAST_CACHE_SIZE * LAST_CACHE_SIZE];
+	protected static final int LAST_CACHE_SIZE = 8;
 	/**
 	 * Номер последнего использованого правила, устанавливается методом Rule()
 	 * @var int
@@ -69,7 +77,20 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * Массив содержит результат склонения слова - слово во всех падежах
 	 * @var array
 	 */
-	protected List<String> lastResult = new ArrayList<>();
+	protected String[] lastResult = NO_RESULT;
+	private static final String[] NO_RESULT = new String[0];
+	/**
+	 * Результат склонения слова правилами на символах ({@link #beginForms(char[], int)}):
+	 * символы всех падежей подряд и конец каждого падежа
+	 */
+	private char[] formChars = new char[128];
+	private int[] formEnds = new int[0];
+	private int formCount = 0;
+	/**
+	 * Основа, от которой {@link #addForm(String)} строит падежи
+	 */
+	private char[] stem = null;
+	private int stemLength = 0;
 	/**
 	 * Массив содержит информацию о том какие слова из массива <var>this.words</var> относятся к
 	 * фамилии, какие к отчеству а какие к имени. Массив нужен потому, что при добавлении слов мы не
@@ -77,16 +98,69 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * индексов для быстрого поиска в дальнейшем.
 	 * @var array
 	 */
-	private Map<NamePart, List<Integer>> index = new HashMap<>();
+	private final Map<NamePart, List<Integer>> index = new EnumMap<>(NamePart.class);
+
+	/**
+	 * Список и обьекты слов для {@link #declineFullName(CharSequence, int, int)} и
+	 * {@link #declineByLayout(CharSequence, int, int, NamePart[])}: переиспользуются от строки к строке
+	 */
+	private final List<NCLNameCaseWord> rowWords = new ArrayList<>();
+	private final List<NCLNameCaseWord> rowWordPool = new ArrayList<>();
+
+	/**
+	 * Собранные результаты склонения для каждой части ФИО. Заполняется при первом обращении после склонения,
+	 * чтобы повторные вызовы не собирали падежи заново.
+	 */
+	private final Map<NamePart, NCLDeclensionResult> connected = new EnumMap<>(NamePart.class);
 
 	public double genderKoef = 0;//вероятность автоопредления пола [0..10]. Достаточно точно при 0.1
 
+	/**
+	 * Разбивает полное ФИО на слова. Используется повторно для каждой строки
+	 */
+	private final NCLTokenizer tokenizer = new NCLTokenizer();
+
+	/**
+	 * Необязательная стадия канонизации входных строк (апострофы, латинские буквы в кириллических словах).
+	 * null - строки используются как есть
+	 */
+	private NCLCanonicalizer canonicalizer = null;
+
+	/**
+	 * Необязательный кеш результатов склонения слов. null - каждое слово склоняется правилами
+	 */
+	private NCLDeclensionCache cache = null;
+
+	/**
+	 * Буфер для слова в нижнем регистре и оценки пола слова при {@link #detect(CharSequence, NCLDetection)}
+	 */
+	private char[] detectBuffer = new char[32];
+	private final double[] detectGender = new double[2];
+	private final double[] wordGender = new double[2];
+
+	/**
+	 * Необязательная обученная модель пола и ее доля в оценке пола слова. null - пол определяют только правила
+	 */
+	private NCLGenderModel genderModel = null;
+	private double genderModelWeight = 0;
+
+	/**
+	 * Необязательный сбор слов без правила и слов с неуверенным полом или частью ФИО. null - слова не собираются
+	 */
+	private NCLWordSink wordSink = null;
+
+	/**
+	 * Необязательное обьединение одновременных одинаковых запросов из разных потоков. null - каждый поток склоняет сам
+	 */
+	private NCLSingleFlight singleFlight = null;
+
 	/**
 	 * Метод очищает результаты последнего склонения слова. Нужен при склонении нескольких слов.
 	 */
 	private void reset() {
 		this.lastRule = 0;
-		this.lastResult = new ArrayList<>();
+		this.lastResult = NO_RESULT;
+		this.formCount = 0;
 	}
 
 	/**
@@ -95,22 +169,138 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * @return NCLNameCaseCore
 	 */
 	public NCLNameCaseCore fullReset() {
-		this.words = new ArrayList<>();;
-		this.index = new HashMap<>();
-		this.index.put(N, new ArrayList<>());
-		this.index.put(F, new ArrayList<>());
-		this.index.put(S, new ArrayList<>());
+		this.words = new ArrayList<>();
+		this.clearIndex();
 		this.reset();
 		this.notReady();
+		if (this.canonicalizer != null) {
+			this.canonicalizer.clearReport();
+		}
+		return this;
+	}
+
+	/**
+	 * Включает канонизацию всех входных строк перед склонением. Канонизация заменяет символы один к одному,
+	 * поэтому границы слов (NCLNameCaseWord.getStart/getEnd) совпадают с исходной строкой.
+	 * Отчет об изменениях накапливается в <var>canonicalizer</var> до следующего {@link #fullReset()}.
+	 * @param canonicalizer обьект канонизации или null, чтобы выключить ее
+	 * @return NCLNameCaseCore
+	 */
+	public NCLNameCaseCore setCanonicalizer(NCLCanonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+		return this;
+	}
+
+	/**
+	 * Возвращает текущий обьект канонизации, в котором хранится отчет об изменениях
+	 * @return NCLCanonicalizer или null, если канонизация выключена
+	 */
+	public NCLCanonicalizer getCanonicalizer() {
+		return this.canonicalizer;
+	}
+
+	/**
+	 * Подключает кеш результатов склонения слов. Перед применением правил слово ищется в кеше,
+	 * а результат правил сохраняется в кеш. Кеш должен использоваться только для этого языка.
+	 * @param cache кеш или null, чтобы выключить его
+	 * @return NCLNameCaseCore
+	 */
+	public NCLNameCaseCore setCache(NCLDeclensionCache cache) {
+		this.cache = cache;
 		return this;
 	}
 
+	/**
+	 * Возвращает подключенный кеш результатов склонения
+	 * @return NCLDeclensionCache или null, если кеш выключен
+	 */
+	public NCLDeclensionCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Подключает обученную модель пола. Оценки правил genderBy* смешиваются с оценкой модели:
+	 * мужчина = (1 - weight) * правила + weight * max(модель, 0), женщина - так же с -модель.
+	 * Модель применяется и при склонении, и в {@link #detect(CharSequence, NCLDetection)}
+	 * @param model модель или null, чтобы выключить ее
+	 * @param weight доля модели от 0 (только правила) до 1 (только модель)
+	 * @return NCLNameCaseCore
+	 */
+	public NCLNameCaseCore setGenderModel(NCLGenderModel model, double weight) {
+		if (!(weight >= 0 && weight <= 1)) {
+			throw new IllegalArgumentException("Доля модели пола должна быть от 0 до 1: " + weight);
+		}
+		this.genderModel = model;
+		this.genderModelWeight = weight;
+		return this;
+	}
+
+	/**
+	 * Возвращает подключенную модель пола
+	 * @return NCLGenderModel или null, если пол определяют только правила
+	 */
+	public NCLGenderModel getGenderModel() {
+		return this.genderModel;
+	}
+
+	/**
+	 * Подключает сбор слов, для которых не нашлось правила, и слов, у которых пол всего ФИО или часть ФИО
+	 * определены с отрывом меньше порогов <var>sink</var>. Слова из кеша с номером правила -1 тоже собираются.
+	 * {@link #detect(CharSequence, NCLDetection)} слова не собирает: он не создает строк слов
+	 * @param sink обьект сбора или null, чтобы выключить его
+	 * @return NCLNameCaseCore
+	 */
+	public NCLNameCaseCore setWordSink(NCLWordSink sink) {
+		this.wordSink = sink;
+		return this;
+	}
+
+	/**
+	 * Возвращает подключенный обьект сбора слов
+	 * @return NCLWordSink или null, если слова не собираются
+	 */
+	public NCLWordSink getWordSink() {
+		return this.wordSink;
+	}
+
+	/**
+	 * Подключает обьединение одновременных запросов: если другой поток с тем же <var>singleFlight</var>
+	 * уже склоняет это слово с той же частью ФИО и полом, результат берется у него. Проверяется после кеша
+	 * @param singleFlight общий для потоков обьект или null, чтобы выключить обьединение
+	 * @return NCLNameCaseCore
+	 */
+	public NCLNameCaseCore setSingleFlight(NCLSingleFlight singleFlight) {
+		this.singleFlight = singleFlight;
+		return this;
+	}
+
+	/**
+	 * Возвращает подключенный обьект обьединения запросов
+	 * @return NCLSingleFlight или null, если обьединение выключено
+	 */
+	public NCLSingleFlight getSingleFlight() {
+		return this.singleFlight;
+	}
+
+	/**
+	 * Приводит строку к каноническому виду, если канонизация включена
+	 * @param text исходная строка
+	 * @return строка, с которой будет работать система
+	 */
+	private String canonical(CharSequence text) {
+		if (this.canonicalizer == null) {
+			return text.toString();
+		}
+		return this.canonicalizer.canonicalize(text);
+	}
+
 	/**
 	 * Устанавливает флаги о том, что система не готово и слова еще не были просклонены
 	 */
 	private void notReady() {
 		this.ready = false;
 		this.finished = false;
+		this.connected.clear();
 	}
 
 	/**
@@ -130,18 +320,52 @@ public abstract class NCLNameCaseCore extends NCL {
 		this.reset();
 		//Ставим слово
 		this.workingWord = word;
+		this.growWorkingChars(word.length());
+		word.getChars(0, word.length(), this.workingChars, 0);
+		this.workingLength = word.length();
 		//Чистим кеш
-		this.workindLastCache = new HashMap<>();
+		Arrays.fill(this.workindLastCache, null);
+	}
+
+	/**
+	 * Устанавливает текущим слово <var>word</var> из системы. Для языков с правилами на символах
+	 * слово копируется в <var>workingChars</var> без создания строки
+	 * @param word слово, которое нужно установить
+	 */
+	private void setWorkingWord(NCLNameCaseWord word) {
+		if (this.charRules()) {
+			this.reset();
+			this.growWorkingChars(word.getLength());
+			System.arraycopy(word.getChars(), 0, this.workingChars, 0, word.getLength());
+			this.workingLength = word.getLength();
+		} else {
+			this.setWorkingWord(word.getWord());
+		}
+	}
+
+	private void growWorkingChars(int length) {
+		if (this.workingChars.length < length) {
+			this.workingChars = new char[Math.max(length, this.workingChars.length * 2)];
+		}
+	}
+
+	/**
+	 * Правила языка работают с символами текущего слова (<var>workingChars</var>) и строят падежи
+	 * через {@link #beginForms(char[], int)} и {@link #addForm(String)}, а не через строки <var>workingWord</var>,
+	 * last() и wordForms(). Тогда при склонении слов системы не создаются ни строка слова, ни строки падежей.
+	 * По умолчанию false
+	 * @return boolean true - если правила языка работают с символами
+	 */
+	protected boolean charRules() {
+		return false;
 	}
 
 	/**
 	 * Если не нужно склонять слово, делает результат таким же как и именительный падеж
 	 */
 	protected void makeResultTheSame() {
-		List<String> array = new ArrayList<>();
-		for (int i = 0; i < this.getCaseCount(); i++) {
-			array.add(this.workingWord);
-		}
+		String[] array = new String[this.getCaseCount()];
+		Arrays.fill(array, this.workingWord);
 		this.lastResult = array;
 	}
 
@@ -165,14 +389,18 @@ public abstract class NCLNameCaseCore extends NCL {
 			cut = stopAfter;
 		}
 
+		if (length < 0 || length >= LAST_CACHE_SIZE || stopAfter < 0 || stopAfter >= LAST_CACHE_SIZE) {
+			return substring(this.workingWord, -1 * length, cut);
+		}
 		//Проверяем кеш
-		if (!(this.workindLastCache.containsKey(length) && this.workindLastCache.get(length).containsKey(stopAfter))) {
-			this.workindLastCache.computeIfAbsent(length, (key) -> new HashMap<>());
+		int slot = length * LAST_CACHE_SIZE + stopAfter;
+		String substr = this.workindLastCache[slot];
+		if (substr == null) {
 			//this.workindLastCache[length][stopAfter] = NCLStr::substr(this.workingWord, -length, cut);
-			String substr = substring(this.workingWord, -1 * length, cut);
-			this.workindLastCache.get(length).put(stopAfter, substr);
+			substr = substring(this.workingWord, -1 * length, cut);
+			this.workindLastCache[slot] = substr;
 		}
-		return this.workindLastCache.get(length).get(stopAfter);
+		return substr;
 	}
 
 	/**
@@ -194,6 +422,34 @@ public abstract class NCLNameCaseCore extends NCL {
 
 	protected abstract boolean ruleMethod(String ruleMethod);
 
+	/**
+	 * Над текущим словом (<var>this.workingWord</var>) выполняются правила в порядке указаном в <var>rulesArray</var>.
+	 * В отличие от {@link #rulesChain(String, List)} не собирает имя метода строкой, а вызывает
+	 * {@link #ruleMethod(Gender, int)} по номеру правила.
+	 * @param gender пол, правила которого нужно использовать
+	 * @param rulesArray массив, порядок выполнения правил
+	 * @return boolean если правило было задествовано, тогда true, если нет - тогда false
+	 */
+	protected boolean rulesChain(Gender gender, int[] rulesArray) {
+		for (int ruleId: rulesArray) {
+			if (this.ruleMethod(gender, ruleId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Выполняет правило номер <var>ruleId</var> для пола <var>gender</var>.
+	 * По умолчанию вызывает {@link #ruleMethod(String)}, языки могут переопределить метод таблицей без строк.
+	 * @param gender пол, правила которого нужно использовать
+	 * @param ruleId номер правила
+	 * @return boolean если правило было задествовано, тогда true, если нет - тогда false
+	 */
+	protected boolean ruleMethod(Gender gender, int ruleId) {
+		return this.ruleMethod((gender == MAN ? "man" : "woman") + "Rule" + ruleId);
+	}
+
 	protected boolean in(String letter, String string) {
 		return letter != null && !letter.isEmpty() && string.contains(letter);
 	}
@@ -225,14 +481,14 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	protected void wordForms(String word, List<String> endings, int replaceLast) {
 		//Создаем массив с именительный падежом
-		List<String> result = new ArrayList<>();
-		result.add(this.workingWord);
+		String[] result = new String[this.getCaseCount()];
+		result[0] = this.workingWord;
 		//Убираем в окончание лишние буквы
 		word = substring(word, 0, word.length() - replaceLast);
 
 		//Добавляем окончания
-		for (int i = 1; i < this.getCaseCount(); i++) {
-			result.add(word + endings.get(i - 1));
+		for (int i = 1; i < result.length; i++) {
+			result[i] = word + endings.get(i - 1);
 		}
 
 		this.lastResult = result;
@@ -242,6 +498,168 @@ public abstract class NCLNameCaseCore extends NCL {
 		wordForms(word, endings, 0);
 	}
 
+	/**
+	 * Возвращает букву номер <var>count</var> с конца текущего слова (<var>workingChars</var>),
+	 * как last(count, 1), но без создания строки
+	 * @param count номер буквы с конца, 1 - последняя
+	 * @return char буква
+	 */
+	protected char lastChar(int count) {
+		return lastChar(this.workingChars, this.workingLength, count);
+	}
+
+	/**
+	 * Возвращает букву номер <var>count</var> с конца слова в буфере. Как и last(), бросает
+	 * StringIndexOutOfBoundsException, если в слове меньше <var>count</var> букв
+	 * @param word буфер со словом
+	 * @param length длина слова
+	 * @param count номер буквы с конца, 1 - последняя
+	 * @return char буква
+	 */
+	protected static char lastChar(char[] word, int length, int count) {
+		if (count < 1 || count > length) {
+			throw new StringIndexOutOfBoundsException("begin " + (length - count) + ", length " + length);
+		}
+		return word[length - count];
+	}
+
+	/**
+	 * Проверяет, заканчивается ли текущее слово (<var>workingChars</var>) на <var>ending</var>,
+	 * как ending.equals(last(ending.length()))
+	 * @param ending окончание
+	 * @return boolean true - если слово заканчивается на <var>ending</var>
+	 */
+	protected boolean lastIs(String ending) {
+		return lastIs(this.workingChars, this.workingLength, ending);
+	}
+
+	/**
+	 * Проверяет, заканчивается ли слово в буфере на <var>ending</var>. Как и last(), бросает
+	 * StringIndexOutOfBoundsException, если слово короче окончания
+	 * @param word буфер со словом
+	 * @param length длина слова
+	 * @param ending окончание
+	 * @return boolean true - если слово заканчивается на <var>ending</var>
+	 */
+	protected static boolean lastIs(char[] word, int length, String ending) {
+		int count = ending.length();
+		if (count > length) {
+			throw new StringIndexOutOfBoundsException("begin " + (length - count) + ", length " + length);
+		}
+		for (int i = 0; i < count; i++) {
+			if (word[length - count + i] != ending.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Проверяет, совпадает ли текущее слово (<var>workingChars</var>) со словом <var>name</var> в нижнем регистре
+	 * @param name слово в нижнем регистре
+	 * @return boolean true - если слова совпадают
+	 */
+	protected boolean wordIs(String name) {
+		if (name.length() != this.workingLength) {
+			return false;
+		}
+		for (int i = 0; i < this.workingLength; i++) {
+			if (this.workingChars[i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Начинает падежи текущего слова для правил на символах ({@link #charRules()}): именительный падеж -
+	 * само слово, каждый следующий падеж {@link #addForm(String)} строит из первых <var>stemLength</var> символов
+	 * <var>stem</var>. Как и wordForms(), бросает StringIndexOutOfBoundsException, если основа отрицательной длины
+	 * @param stem буфер с основой, не должен меняться, пока строятся падежи
+	 * @param stemLength длина основы
+	 */
+	protected void beginForms(char[] stem, int stemLength) {
+		if (stemLength < 0) {
+			throw new StringIndexOutOfBoundsException("begin 0, end " + stemLength);
+		}
+		if (this.formEnds.length < this.getCaseCount()) {
+			this.formEnds = new int[this.getCaseCount()];
+		}
+		this.formCount = 0;
+		this.stem = this.workingChars;
+		this.stemLength = this.workingLength;
+		this.addForm("");
+		this.stem = stem;
+		this.stemLength = stemLength;
+	}
+
+	/**
+	 * Добавляет следующий падеж: основу из {@link #beginForms(char[], int)} и окончание <var>ending</var>
+	 * @param ending окончание
+	 */
+	protected void addForm(String ending) {
+		int start = this.growForms(ending.length());
+		ending.getChars(0, ending.length(), this.formChars, start);
+		this.formEnds[this.formCount++] = start + ending.length();
+	}
+
+	/**
+	 * Добавляет следующий падеж: основу из {@link #beginForms(char[], int)}, букву <var>letter</var>
+	 * и окончание <var>ending</var>
+	 * @param letter буква после основы, например основа с чередованием
+	 * @param ending окончание
+	 */
+	protected void addForm(char letter, String ending) {
+		int start = this.growForms(1 + ending.length());
+		this.formChars[start] = letter;
+		ending.getChars(0, ending.length(), this.formChars, start + 1);
+		this.formEnds[this.formCount++] = start + 1 + ending.length();
+	}
+
+	/**
+	 * Копирует основу в конец падежей, оставив после нее место для <var>extra</var> символов
+	 * @return позиция после основы
+	 */
+	private int growForms(int extra) {
+		int start = this.formCount == 0 ? 0 : this.formEnds[this.formCount - 1];
+		int end = start + this.stemLength + extra;
+		if (end > this.formChars.length) {
+			this.formChars = Arrays.copyOf(this.formChars, Math.max(end, this.formChars.length * 2));
+		}
+		System.arraycopy(this.stem, 0, this.formChars, start, this.stemLength);
+		return start + this.stemLength;
+	}
+
+	/**
+	 * Если ни одно правило не подошло, все падежи равны самому слову
+	 */
+	private void sameForms() {
+		if (this.charRules()) {
+			this.beginForms(this.workingChars, this.workingLength);
+			for (int i = 1; i < this.getCaseCount(); i++) {
+				this.addForm("");
+			}
+		} else {
+			this.makeResultTheSame();
+		}
+	}
+
+	/**
+	 * Возвращает падежи последнего склонения строками в нижнем регистре. Для правил на символах
+	 * строки создаются, иначе возвращается <var>lastResult</var>
+	 */
+	private String[] resultForms() {
+		if (!this.charRules()) {
+			return this.lastResult;
+		}
+		String[] forms = new String[this.formCount];
+		for (int i = 0; i < forms.length; i++) {
+			int start = i == 0 ? 0 : this.formEnds[i - 1];
+			forms[i] = new String(this.formChars, start, this.formEnds[i] - start);
+		}
+		return forms;
+	}
+
 	public abstract int getCaseCount();
 
 	/**
@@ -252,7 +670,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	public NCLNameCaseCore setFirstName(String firstname) {
 		if (isNotEmpty(firstname)) {
-			NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(firstname);
+			NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(this.canonical(firstname));
 			this.words.add(nameCaseWord);
 			nameCaseWord.setNamePart(N);
 			this.notReady();
@@ -268,7 +686,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	public NCLNameCaseCore setLastName(String secondname) {
 		if (isNotEmpty(secondname)) {
-			NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(secondname);
+			NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(this.canonical(secondname));
 			this.words.add(nameCaseWord);
 			nameCaseWord.setNamePart(S);
 			this.notReady();
@@ -284,7 +702,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	public NCLNameCaseCore setFatherName(String fathername) {
 		if (isNotEmpty(fathername)) {
-			NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(fathername);
+			NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(this.canonical(fathername));
 			this.words.add(nameCaseWord);
 			nameCaseWord.setNamePart(F);
 			this.notReady();
@@ -327,7 +745,15 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	private void prepareNamePart(NCLNameCaseWord word) {
 		if (word.getNamePart() == null) {
+			Object event = NCLFlightRecorder.begin(NCLFlightRecorder.DETECT_NAME_PART);
 			this.detectNamePart(word);
+			if (event != null) {
+				NCLFlightRecorder.commit(event, word.getNamePart(), null, -1, word.getLength());
+			}
+			NCLWordSink sink = this.wordSink;
+			if (sink != null && word.getNamePartKoef() < sink.getNamePartThreshold()) {
+				sink.offer(NCLWordSink.Kind.LOW_NAME_PART, word.getWord(), word.getNamePart(), null, word.getNamePartKoef());
+			}
 		}
 	}
 
@@ -346,41 +772,77 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	private void prepareGender(NCLNameCaseWord word) {
 		if (!word.isGenderSolved()) {
-			NamePart namePart = word.getNamePart();
-			switch (namePart) {
-				case N: this.genderByFirstName(word);
-					break;
-				case F: this.genderByFatherName(word);
-					break;
-				case S: this.genderBySecondName(word);
-					break;
+			this.genderByNamePart(word);
+			if (this.genderModel != null) {
+				double[] score = this.wordGender;
+				score[0] = word.getGenderMan();
+				score[1] = word.getGenderWoman();
+				this.blendGender(this.genderModel.score(word.getChars(), word.getLength(), word.getNamePart()), score);
+				word.setGender(score[0], score[1]);
 			}
 		}
 	}
 
+	/**
+	 * Оценивает пол слова правилами его части ФИО
+	 * @param word слово с известной частью ФИО
+	 */
+	private void genderByNamePart(NCLNameCaseWord word) {
+		switch (word.getNamePart()) {
+			case N: this.genderByFirstName(word);
+				break;
+			case F: this.genderByFatherName(word);
+				break;
+			case S: this.genderBySecondName(word);
+				break;
+		}
+	}
+
+	/**
+	 * Смешивает оценку правил с оценкой модели пола
+	 * @param logit оценка модели: больше нуля - мужчина, меньше нуля - женщина
+	 * @param score оценки правил [0] - мужчина, [1] - женщина, сюда же записывается результат
+	 */
+	private void blendGender(double logit, double[] score) {
+		double weight = this.genderModelWeight;
+		score[0] = (1 - weight) * score[0] + weight * Math.max(logit, 0);
+		score[1] = (1 - weight) * score[1] + weight * Math.max(-logit, 0);
+	}
+
 	/**
 	 * Для всех слов проверяет определен ли пол, если нет - определяет его
 	 * После этого расчитывает пол для всех слов и устанавливает такой пол всем словам
 	 * @return bool был ли определен пол
 	 */
 	private boolean solveGender() {
+		Object event = NCLFlightRecorder.begin(NCLFlightRecorder.DETECT_GENDER);
+		this.solveGenderWords();
+		if (event != null) {
+			NCLFlightRecorder.commit(event, null, this.wordsGender(), -1, this.wordsLength());
+		}
+		return true;
+	}
+
+	/**
+	 * Определяет пол по словам и устанавливает его
+	 */
+	private void solveGenderWords() {
 		//Ищем, может гдето пол уже установлен
 		for (NCLNameCaseWord word: this.words) {
 			if (word.isGenderSolved()) {
 				this.setGender(word.gender());
-				return true;
+				return;
 			}
 		}
 
 		//Если нет тогда определяем у каждого слова и потом сумируем
-		int man = 0;
-		int woman = 0;
+		double man = 0;
+		double woman = 0;
 
 		for (NCLNameCaseWord word: this.words) {
 			this.prepareGender(word);
-			Map<Gender, Double> gender = word.getGender();
-			man += gender.get(MAN);
-			woman += gender.get(WOMAN);
+			man += word.getGenderMan();
+			woman += word.getGenderWoman();
 		}
 
 		if (man > woman) {
@@ -389,7 +851,31 @@ public abstract class NCLNameCaseCore extends NCL {
 			this.setGender(WOMAN);
 		}
 
-		return true;
+		NCLWordSink sink = this.wordSink;
+		double koef = Math.abs(man - woman);
+		if (sink != null && koef < sink.getGenderThreshold()) {
+			for (NCLNameCaseWord word : this.words) {
+				sink.offer(NCLWordSink.Kind.LOW_GENDER, word.getWord(), word.getNamePart(), word.gender(), koef);
+			}
+		}
+	}
+
+	/**
+	 * Пол первого слова (после solveGender он одинаковый у всех слов), нужен для событий JFR
+	 */
+	private Gender wordsGender() {
+		return this.words.isEmpty() ? null : this.words.get(0).gender();
+	}
+
+	/**
+	 * Сумма длин всех слов, нужна для событий JFR
+	 */
+	private int wordsLength() {
+		int length = 0;
+		for (NCLNameCaseWord word : this.words) {
+			length += word.getLength();
+		}
+		return length;
 	}
 
 	/**
@@ -399,10 +885,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * индексов для быстрого поиска в дальнейшем.
 	 */
 	private void generateIndex() {
-		this.index = new HashMap<>();
-		this.index.put(N, new ArrayList<>());
-		this.index.put(F, new ArrayList<>());
-		this.index.put(S, new ArrayList<>());
+		this.clearIndex();
 
 		for (int i = 0; i < this.words.size(); i++) {
 			NCLNameCaseWord word = this.words.get(i);
@@ -411,6 +894,21 @@ public abstract class NCLNameCaseCore extends NCL {
 		}
 	}
 
+	/**
+	 * Очищает индекс, не создавая списки заново
+	 */
+	private void clearIndex() {
+		if (this.index.isEmpty()) {
+			this.index.put(N, new ArrayList<>());
+			this.index.put(F, new ArrayList<>());
+			this.index.put(S, new ArrayList<>());
+		} else {
+			this.index.get(N).clear();
+			this.index.get(F).clear();
+			this.index.get(S).clear();
+		}
+	}
+
 	/**
 	 * Выполнет все необходимые подготовления для склонения.
 	 * Все слова идентфицируются. Определяется пол.
@@ -435,33 +933,20 @@ public abstract class NCLNameCaseCore extends NCL {
 	public Gender genderAutoDetect() {
 		this.prepareEverything();
 
-		if (!this.words.isEmpty()){
-			int n = -1;
-			double maxKoef = -1;
-			for (int k = 0; k < this.words.size(); k++) {
-				NCLNameCaseWord word = this.words.get(k);
-				Map<Gender, Double> genders = word.getGender();
-				// TODO check nullability
-				double min = genders.values().stream().min(Double::compareTo).get();
-				double max = genders.values().stream().max(Double::compareTo).get();
-
-				double koef = max - min;
-				if (koef > maxKoef) {
-					maxKoef=koef;
-					n=k;
-				}
+		NCLNameCaseWord best = null;
+		double maxKoef = -1;
+		for (int k = 0; k < this.words.size(); k++) {
+			NCLNameCaseWord word = this.words.get(k);
+			double koef = word.getGenderKoef();
+			if (koef > maxKoef) {
+				maxKoef = koef;
+				best = word;
 			}
+		}
 
-			if (n >= 0){
-				if (this.words.size() > n) {
-					NCLNameCaseWord word = this.words.get(n);
-					Map<Gender, Double> genders = word.getGender();
-					double min = genders.values().stream().min(Double::compareTo).get();
-					double max = genders.values().stream().max(Double::compareTo).get();
-					this.genderKoef = max - min;
-					return word.gender();
-				}
-			}
+		if (best != null) {
+			this.genderKoef = maxKoef;
+			return best.gender();
 		}
 		return null;
 	}
@@ -472,22 +957,58 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * - S - Фамилия
 	 * - N - Имя
 	 * - F - Отчество
+	 * Словом считается все, что стоит между пробельными символами (пробел, табуляция, неразрывный пробел).
+	 * Каждое слово запоминает свои границы в <var>fullname</var>.
 	 * @param fullname строка, для которой необходимо определить формат
 	 * @return array формат в котором записано имя массив типа <var>this.words</var>
 	 */
-	private List<NCLNameCaseWord> splitFullName(String fullname) {
-
-		fullname = fullname.trim();
-		List<String> list = Arrays.asList(fullname.split(" "));
-
-		for (String word: list) {
-			this.words.add(new NCLNameCaseWord(word));
-		}
+	private List<NCLNameCaseWord> splitFullName(CharSequence fullname) {
+		return this.splitFullName(fullname, 0, fullname.length());
+	}
 
+	/**
+	 * Разбивает часть строки <var>text</var> от <var>from</var> до <var>to</var> на слова, не копируя ее.
+	 * Границы слов запоминаются относительно всего <var>text</var>.
+	 * Если включена канонизация, часть строки копируется и границы считаются относительно копии.
+	 * @param text строка, в которой записано ФИО
+	 * @param from начало ФИО
+	 * @param to конец ФИО (не включительно)
+	 * @return array слова ФИО
+	 */
+	private List<NCLNameCaseWord> splitFullName(CharSequence text, int from, int to) {
+		this.tokenizeFullName(text, from, to);
 		this.prepareEverything();
 		return this.words;
 	}
 
+	/**
+	 * Добавляет слова части строки <var>text</var> от <var>from</var> до <var>to</var> в <var>this.words</var>,
+	 * не определяя их тип и пол
+	 */
+	private void tokenizeFullName(CharSequence text, int from, int to) {
+		if (this.canonicalizer == null) {
+			this.tokenizer.reset(text, from, to);
+		} else {
+			this.tokenizer.reset(this.canonical(text.subSequence(from, to)));
+		}
+		boolean pooled = this.words == this.rowWords;
+		while (this.tokenizer.next()) {
+			NCLNameCaseWord word;
+			int position = this.words.size();
+			if (!pooled) {
+				word = new NCLNameCaseWord(this.tokenizer.token());
+			} else if (position < this.rowWordPool.size()) {
+				word = this.rowWordPool.get(position);
+				word.reset(this.tokenizer.text(), this.tokenizer.start(), this.tokenizer.end());
+			} else {
+				word = new NCLNameCaseWord(this.tokenizer.token());
+				this.rowWordPool.add(word);
+			}
+			word.setPosition(this.tokenizer.start(), this.tokenizer.end());
+			this.words.add(word);
+		}
+	}
+
 	/**
 	 * Разбивает строку <var>fullname</var> на слова и возвращает формат в котором записано имя
 	 * <b>Формат:</b>
@@ -507,36 +1028,185 @@ public abstract class NCLNameCaseCore extends NCL {
 		return format.toString();
 	}
 
+	/**
+	 * Разбивает часть строки <var>text</var> от <var>from</var> до <var>to</var> на слова, определяет
+	 * их тип и пол и склоняет все слова. Нужен для пакетной обработки, когда много ФИО записано
+	 * в одном буфере: строка для всего ФИО не создается.
+	 * @param text буфер, в котором записано ФИО
+	 * @param from начало ФИО
+	 * @param to конец ФИО (не включительно)
+	 * Состояние системы не создается заново, как при {@link #fullReset()}: список слов, обьекты слов и индекс
+	 * переиспользуются от вызова к вызову, поэтому возвращенный список и его слова действительны только
+	 * до следующего вызова этого метода или {@link #declineByLayout(CharSequence, int, int, NamePart[])}.
+	 * Если правила работают с символами ({@link #charRules()}), строки слов и падежей не создаются:
+	 * падежи лежат в буферах слов ({@link NCLNameCaseWord#getNameCaseChars(int, char[], int)}).
+	 * @return array просклоненные слова в порядке их следования
+	 */
+	public List<NCLNameCaseWord> declineFullName(CharSequence text, int from, int to) {
+		this.rowReset();
+		this.splitFullName(text, from, to);
+		this.allWordCases();
+		return this.words;
+	}
+
+	/**
+	 * Склоняет ФИО как {@link #declineFullName(CharSequence, int, int)}, но тип слов берется из раскладки
+	 * <var>layout</var> по их позиции, а не определяется для каждого слова. Если количество слов не совпадает
+	 * с раскладкой или какое-то слово ей противоречит ({@link #contradictsNamePart(char[], int, NamePart)}),
+	 * тип всех слов определяется как обычно. Просклоненные слова доступны через {@link #getWordsArray()}
+	 * @param text буфер, в котором записано ФИО
+	 * @param from начало ФИО
+	 * @param to конец ФИО (не включительно)
+	 * @param layout тип слова на каждой позиции
+	 * @return boolean true - если применена раскладка, false - если типы слов определены по словам
+	 */
+	public boolean declineByLayout(CharSequence text, int from, int to, NamePart[] layout) {
+		this.rowReset();
+		this.tokenizeFullName(text, from, to);
+		boolean applied = this.words.size() == layout.length;
+		for (int i = 0; applied && i < layout.length; i++) {
+			NCLNameCaseWord word = this.words.get(i);
+			applied = !this.contradictsNamePart(word.getChars(), word.getLength(), layout[i]);
+		}
+		if (applied) {
+			for (int i = 0; i < layout.length; i++) {
+				this.words.get(i).setNamePart(layout[i]);
+			}
+		}
+		this.prepareEverything();
+		this.allWordCases();
+		return applied;
+	}
+
+	/**
+	 * Сбрасывает систему для следующей строки пакета как {@link #fullReset()}, но переиспользует список слов
+	 */
+	private void rowReset() {
+		this.rowWords.clear();
+		this.words = this.rowWords;
+		this.clearIndex();
+		this.reset();
+		this.notReady();
+		if (this.canonicalizer != null) {
+			this.canonicalizer.clearReport();
+		}
+	}
+
+	/**
+	 * Проверяет, что слово точно не может быть частью ФИО <var>namePart</var>, например отчество
+	 * без окончания отчества. Используется, чтобы не применять раскладку колонки к строке, которая
+	 * записана в другом порядке. Проверка должна быть дешевле detectNamePart; по умолчанию противоречий нет
+	 * @param word буфер со словом в нижнем регистре
+	 * @param length длина слова
+	 * @param namePart часть ФИО из раскладки
+	 * @return boolean true - если слово противоречит раскладке
+	 */
+	protected boolean contradictsNamePart(char[] word, int length, NamePart namePart) {
+		return false;
+	}
+
 	/**
 	 * Склоняет слово <var>word</var> по нужным правилам в зависимости от пола и типа слова
 	 * @param word слово, которое нужно просклонять
 	 */
 	private void wordCase(NCLNameCaseWord word) {
+		Object event = NCLFlightRecorder.begin(NCLFlightRecorder.WORD_CASE);
+		this.wordCaseRules(word);
+		if (event != null) {
+			NCLFlightRecorder.commit(event, word.getNamePart(), word.gender(), word.getRule(), word.getLength());
+		}
+	}
 
-		Supplier<Boolean> method = null;
+	/**
+	 * Склоняет слово из кеша или правилами
+	 * @param word слово, которое нужно просклонять
+	 */
+	private void wordCaseRules(NCLNameCaseWord word) {
+		NamePart namePart = word.getNamePart();
+		Gender gender = word.gender();
 
-		NamePart namePartLetter = word.getNamePart();
-		switch (namePartLetter) {
-			case F:
-				method = word.gender() == MAN ? this::manFatherName : this::womanFatherName;
-				break;
-			case N:
-				method = word.gender() == MAN ? this::manFirstName : this::womanFirstName;
-				break;
-			case S:
-				method = word.gender() == MAN ? this::manSecondName : this::womanSecondName;
-				break;
+		NCLDeclensionResult shared = this.cache != null ? this.cache.get(word.getWord(), namePart, gender) : null;
+		if (shared == null && this.singleFlight != null) {
+			shared = this.singleFlight.decline(this, word.getWord(), namePart, gender);
+		}
+		if (shared != null) {
+			//Результат общий с другими потоками, а восстановление регистра меняет массив, поэтому падежи копируются
+			String[] forms = new String[shared.size()];
+			for (int i = 0; i < forms.length; i++) {
+				forms[i] = shared.get(i);
+			}
+			word.setNameCases(forms, true);
+			word.setRule(shared.getRule());
+			if (shared.getRule() == -1 && this.wordSink != null) {
+				this.wordSink.offer(NCLWordSink.Kind.NO_RULE, word.getWord(), namePart, gender, 0);
+			}
+			return;
 		}
 
-		this.setWorkingWord(word.getWord());
+		this.setWorkingWord(word);
 
-		if (method.get()) {
-			word.setNameCases(this.lastResult);
-			word.setRule(this.lastRule);
+		int rule;
+		if (this.nameRules(namePart, gender)) {
+			rule = this.lastRule;
 		} else {
-			word.setNameCases(array_fill(this.getCaseCount(), word.getWord()));
-			word.setRule(-1);
+			this.sameForms();
+			rule = -1;
+			if (this.wordSink != null) {
+				this.wordSink.offer(NCLWordSink.Kind.NO_RULE, word.getWord(), namePart, gender, 0);
+			}
+		}
+		if (this.cache != null) {
+			//Падежи копируются до восстановления регистра, которое меняет массив
+			String[] forms = this.charRules() ? this.resultForms() : this.lastResult.clone();
+			this.cache.put(word.getWord(), namePart, gender, new NCLDeclensionResult(forms, rule, gender));
+		}
+		if (this.charRules()) {
+			word.setNameCases(this.formChars, this.formEnds, this.formCount);
+		} else {
+			word.setNameCases(this.lastResult, true);
+		}
+		word.setRule(rule);
+	}
+
+	/**
+	 * Склоняет слово правилами и сохраняет результат в кеш, для {@link NCLSingleFlight}
+	 * @param word слово в нижнем регистре
+	 * @param namePart часть ФИО
+	 * @param gender пол
+	 * @return результат, падежи в нижнем регистре
+	 */
+	NCLDeclensionResult declineRules(String word, NamePart namePart, Gender gender) {
+		this.setWorkingWord(word);
+		int rule;
+		if (this.nameRules(namePart, gender)) {
+			rule = this.lastRule;
+		} else {
+			this.sameForms();
+			rule = -1;
+		}
+		NCLDeclensionResult result = new NCLDeclensionResult(this.resultForms(), rule, gender);
+		if (this.cache != null) {
+			this.cache.put(word, namePart, gender, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Выбирает цепочку правил по типу слова и полу и применяет ее к текущему слову (<var>this.workingWord</var>).
+	 * @param namePart тип слова
+	 * @param gender пол
+	 * @return boolean true - если было использовано правило из списка, false - если правило не было найденым
+	 */
+	protected boolean nameRules(NamePart namePart, Gender gender) {
+		switch (namePart) {
+			case F:
+				return gender == MAN ? this.manFatherName() : this.womanFatherName();
+			case N:
+				return gender == MAN ? this.manFirstName() : this.womanFirstName();
+			case S:
+				return gender == MAN ? this.manSecondName() : this.womanSecondName();
 		}
+		return false;
 	}
 
 	/**
@@ -544,11 +1214,17 @@ public abstract class NCLNameCaseCore extends NCL {
 	 */
 	private void allWordCases() {
 		if (!this.finished) {
+			Object event = NCLFlightRecorder.begin(NCLFlightRecorder.FULL_NAME);
+			this.connected.clear();
 			this.prepareEverything();
-			for (NCLNameCaseWord word : this.words) {
-				this.wordCase(word);
+			//Индексом, а не итератором: пакетный путь не должен выделять память на каждое ФИО
+			for (int i = 0; i < this.words.size(); i++) {
+				this.wordCase(this.words.get(i));
 			}
 			this.finished = true;
+			if (event != null) {
+				NCLFlightRecorder.commit(event, null, this.wordsGender(), -1, this.wordsLength());
+			}
 		}
 	}
 
@@ -559,11 +1235,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * @param number номер падежа, который нужно вернуть
 	 */
 	private String getWordCase(NCLNameCaseWord word, int number) {
-		return word.getNameCases().get(number);
-	}
-
-	private List<String> getWordCase(NCLNameCaseWord word) {
-		return word.getNameCases();
+		return word.getNameCase(number);
 	}
 
 	/**
@@ -581,35 +1253,60 @@ public abstract class NCLNameCaseCore extends NCL {
 		return readyArr;
 	}
 
-	private List<String> getCasesConnected(List<Integer> indexArray) {
-		List<List<String>> readyArr = array();
-		for(int index: indexArray) {
-			readyArr.add(this.getWordCase(this.words.get(index)));
-		}
-
-		//Масив нужно скелить каждый падеж
-		List<String> resultArr = array();
-		for (int c = 0; c < this.getCaseCount(); c++) {
-			List<String> tmp = array();
-			for (int i = 0; i < readyArr.size(); i++) {
-				tmp.add(readyArr.get(i).get(c));
+	private NCLDeclensionResult getCasesConnected(NamePart namePart) {
+		NCLDeclensionResult result = this.connected.get(namePart);
+		if (result == null) {
+			List<NCLDeclensionResult> readyArr = array();
+			for(int index: this.index.get(namePart)) {
+				readyArr.add(this.words.get(index).getResult());
 			}
-			resultArr.add(String.join(" ", tmp));
+			//Масив нужно скелить каждый падеж, один раз для каждой части ФИО
+			result = NCLDeclensionResult.join(readyArr, this.getCaseCount());
+			this.connected.put(namePart, result);
 		}
-		return resultArr;
+		return result;
+	}
+
 
+	/**
+	 * Возвращает результат склонения имени: все падежи, номер правила и пол.
+	 * Результат собирается один раз и возвращается повторно, пока не изменятся слова.
+	 * @return NCLDeclensionResult результат склонения имени
+	 */
+	public NCLDeclensionResult getFirstNameResult() {
+		this.allWordCases();
+		return this.getCasesConnected(N);
 	}
 
+	/**
+	 * Возвращает результат склонения фамилии: все падежи, номер правила и пол.
+	 * Результат собирается один раз и возвращается повторно, пока не изменятся слова.
+	 * @return NCLDeclensionResult результат склонения фамилии
+	 */
+	public NCLDeclensionResult getSecondNameResult() {
+		this.allWordCases();
+		return this.getCasesConnected(S);
+	}
+
+	/**
+	 * Возвращает результат склонения отчества: все падежи, номер правила и пол.
+	 * Результат собирается один раз и возвращается повторно, пока не изменятся слова.
+	 * @return NCLDeclensionResult результат склонения отчества
+	 */
+	public NCLDeclensionResult getFatherNameResult() {
+		this.allWordCases();
+		return this.getCasesConnected(F);
+	}
 
 	/**
 	 * Функция ставит имя в нужный падеж.
 	 *
 	 * Если указан номер падежа <var>number</var>, тогда возвращается строка с таким номером падежа,
 	 * если нет, тогда возвращается массив со всеми падежами текущего слова.
+	 * Список неизменяемый.
 	 */
 	public List<String> getFirstNameCase() {
-		this.allWordCases();
-		return this.getCasesConnected(this.index.get(N));
+		return this.getFirstNameResult().toList();
 	}
 
 	/**
@@ -617,10 +1314,10 @@ public abstract class NCLNameCaseCore extends NCL {
 	 *
 	 * Если указан номер падежа <var>number</var>, тогда возвращается строка с таким номером падежа,
 	 * если нет, тогда возвращается массив со всеми падежами текущего слова.
+	 * Список неизменяемый.
 	 */
 	public List<String> getSecondNameCase() {
-		this.allWordCases();
-		return this.getCasesConnected(this.index.get(S));
+		return this.getSecondNameResult().toList();
 	}
 
 	/**
@@ -628,10 +1325,36 @@ public abstract class NCLNameCaseCore extends NCL {
 	 *
 	 * Если указан номер падежа <var>number</var>, тогда возвращается строка с таким номером падежа,
 	 * если нет, тогда возвращается массив со всеми падежами текущего слова.
+	 * Список неизменяемый.
 	 */
 	public List<String> getFatherNameCase() {
+		return this.getFatherNameResult().toList();
+	}
+
+	/**
+	 * Склоняет одно слово <var>name</var> как часть ФИО <var>namePart</var> по правилам пола <var>gender</var>.
+	 * @param name слово, которое нужно просклонять
+	 * @param namePart часть ФИО: N - имя, S - фамилия, F - отчество
+	 * @param gender пол, который нужно использовать
+	 * @return NCLDeclensionResult все падежи слова
+	 */
+	public NCLDeclensionResult qNameResult(String name, NamePart namePart, Gender gender) {
+		if (gender != null) {
+			NCLNameCaseWord word = this.singleWordCase(name, namePart, gender);
+			return word != null ? word.getResult() : NCLDeclensionResult.join(Collections.<NCLDeclensionResult>emptyList(), this.getCaseCount());
+		}
+		this.fullReset();
+		switch (namePart) {
+			case N: this.setFirstName(name);
+				break;
+			case S: this.setLastName(name);
+				break;
+			case F: this.setFatherName(name);
+				break;
+		}
+		this.setGender(gender);
 		this.allWordCases();
-		return this.getCasesConnected(this.index.get(F));
+		return this.getCasesConnected(namePart);
 	}
 
 	/**
@@ -645,10 +1368,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * @return mixed массив или строка с нужным падежом
 	 */
 	public String qFirstName(String firstName, int caseNumber, Gender gender) {
-		this.fullReset();
-		this.setFirstName(firstName);
-		this.setGender(gender);
-		return this.getFirstNameCase().get(caseNumber);
+		return this.qNameCase(firstName, N, caseNumber, gender);
 	}
 
 	/**
@@ -662,10 +1382,7 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * @return mixed массив или строка с нужным падежом
 	 */
 	public String qSecondName(String secondName, int caseNumber, Gender gender) {
-		this.fullReset();
-		this.setLastName(secondName);
-		this.setGender(gender);
-		return this.getSecondNameCase().get(caseNumber);
+		return this.qNameCase(secondName, S, caseNumber, gender);
 	}
 
 	/**
@@ -679,10 +1396,47 @@ public abstract class NCLNameCaseCore extends NCL {
 	 * @return mixed массив или строка с нужным падежом
 	 */
 	public String qFatherName(String fatherName, int caseNumber, Gender gender) {
-		this.fullReset();
-		this.setFatherName(fatherName);
-		this.setGender(gender);
-		return this.getFatherNameCase().get(caseNumber);
+		return this.qNameCase(fatherName, F, caseNumber, gender);
+	}
+
+	/**
+	 * Возвращает один падеж слова для q*. Если пол известен, используется быстрый путь для одного слова,
+	 * и регистр исходного слова возвращается только нужному падежу.
+	 */
+	private String qNameCase(String name, NamePart namePart, int caseNumber, Gender gender) {
+		if (gender != null && caseNumber >= 0 && caseNumber < this.getCaseCount()) {
+			NCLNameCaseWord word = this.singleWordCase(name, namePart, gender);
+			if (word != null) {
+				return word.getNameCase(caseNumber);
+			}
+		}
+		return this.qNameResult(name, namePart, gender).get(caseNumber);
+	}
+
+	/**
+	 * Быстрый путь для одного слова, у которого известны часть ФИО и пол: слово склоняется сразу,
+	 * без индекса частей ФИО и определения пола. Как и при обычном вызове q*, система после этого
+	 * содержит только это слово, а индекс строится, только если результат запросят через get*.
+	 * @param name слово
+	 * @param namePart часть ФИО
+	 * @param gender пол
+	 * @return NCLNameCaseWord просклоненное слово или null, если слово пустое
+	 */
+	private NCLNameCaseWord singleWordCase(String name, NamePart namePart, Gender gender) {
+		this.words = new ArrayList<>(1);
+		this.notReady();
+		if (this.canonicalizer != null) {
+			this.canonicalizer.clearReport();
+		}
+		if (!isNotEmpty(name)) {
+			return null;
+		}
+		NCLNameCaseWord word = new NCLNameCaseWord(this.canonical(name));
+		word.setNamePart(namePart);
+		word.setTrueGender(gender);
+		this.words.add(word);
+		this.wordCase(word);
+		return word;
 	}
 
 	/**
@@ -696,6 +1450,127 @@ public abstract class NCLNameCaseCore extends NCL {
 		return this.genderAutoDetect();
 	}
 
+	/**
+	 * Определяет формат ФИО и пол без склонения и без обьектов NCLNameCaseWord.
+	 * Каждое слово переводится в нижний регистр в буфер обьекта склонения и оценивается прямо по символам
+	 * ({@link #scoreNamePart(char[], int)}, {@link #scoreGender(char[], int, NamePart, double[])}).
+	 * Формат, пол и уверенность совпадают с getFullNameFormat, genderAutoDetect и genderKoef,
+	 * но слова системы не меняются, и на каждое слово ничего не создается. Слова, на которых правила
+	 * склонения падают (например, слишком короткие), языки со своими score* оценивают как есть:
+	 * окончания длиннее слова не совпадают, и уверенность получается низкой.
+	 * Если включена канонизация, строка канонизируется один раз целиком.
+	 * @param fullname ФИО в любом порядке
+	 * @param result обьект для результата, переиспользуется между строками
+	 * @return <var>result</var>
+	 */
+	public NCLDetection detect(CharSequence fullname, NCLDetection result) {
+		result.clear();
+		CharSequence text = this.canonicalizer == null ? fullname : this.canonical(fullname);
+		NCLTokenizer tokenizer = this.tokenizer.reset(text);
+		double man = 0;
+		double woman = 0;
+		double maxKoef = -1;
+		while (tokenizer.next()) {
+			int length = tokenizer.length();
+			if (length > this.detectBuffer.length) {
+				this.detectBuffer = new char[Math.max(length, this.detectBuffer.length * 2)];
+			}
+			char[] word = this.detectBuffer;
+			for (int i = 0; i < length; i++) {
+				word[i] = Character.toLowerCase(text.charAt(tokenizer.start() + i));
+			}
+			NamePart namePart = this.scoreNamePart(word, length);
+			this.detectGender[0] = 0;
+			this.detectGender[1] = 0;
+			this.scoreGender(word, length, namePart, this.detectGender);
+			if (this.genderModel != null) {
+				this.blendGender(this.genderModel.score(word, length, namePart), this.detectGender);
+			}
+			man += this.detectGender[0];
+			woman += this.detectGender[1];
+			double koef = Math.abs(this.detectGender[0] - this.detectGender[1]);
+			if (koef > maxKoef) {
+				maxKoef = koef;
+			}
+			result.add(namePart, tokenizer.start(), tokenizer.end());
+		}
+		if (result.size() > 0) {
+			result.setGender(man > woman ? MAN : WOMAN, maxKoef);
+		}
+		return result;
+	}
+
+	/**
+	 * Определяет часть ФИО слова в нижнем регистре для {@link #detect(CharSequence, NCLDetection)}.
+	 * По умолчанию создает NCLNameCaseWord и вызывает detectNamePart, языки переопределяют метод,
+	 * чтобы проверять окончания прямо по символам
+	 * @param word буфер со словом в нижнем регистре
+	 * @param length длина слова
+	 * @return часть ФИО
+	 */
+	protected NamePart scoreNamePart(char[] word, int length) {
+		NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(new String(word, 0, length));
+		this.detectNamePart(nameCaseWord);
+		return nameCaseWord.getNamePart();
+	}
+
+	/**
+	 * Оценивает пол слова в нижнем регистре для {@link #detect(CharSequence, NCLDetection)}.
+	 * По умолчанию создает NCLNameCaseWord и вызывает genderBy* по части ФИО
+	 * @param word буфер со словом в нижнем регистре
+	 * @param length длина слова
+	 * @param namePart часть ФИО слова
+	 * @param score сюда записываются оценки: [0] - мужчина, [1] - женщина. Перед вызовом там нули
+	 */
+	protected void scoreGender(char[] word, int length, NamePart namePart, double[] score) {
+		NCLNameCaseWord nameCaseWord = new NCLNameCaseWord(new String(word, 0, length));
+		nameCaseWord.setNamePart(namePart);
+		this.genderByNamePart(nameCaseWord);
+		score[0] = nameCaseWord.getGenderMan();
+		score[1] = nameCaseWord.getGenderWoman();
+	}
+
+	/**
+	 * Упаковывает до 4 последних букв слова в число для поиска в таблицах {@link #suffixes(String...)}
+	 * @param word буфер со словом
+	 * @param length длина слова
+	 * @param count сколько последних букв взять
+	 * @return ключ окончания
+	 */
+	protected static long suffix(char[] word, int length, int count) {
+		long key = 0;
+		for (int i = length - count; i < length; i++) {
+			key = (key << 16) | word[i];
+		}
+		return key;
+	}
+
+	/**
+	 * Строит отсортированную таблицу окончаний одной длины (до 4 букв) для поиска через Arrays.binarySearch
+	 * @param endings окончания в нижнем регистре
+	 * @return ключи окончаний
+	 */
+	protected static long[] suffixes(String... endings) {
+		long[] keys = new long[endings.length];
+		for (int i = 0; i < endings.length; i++) {
+			char[] ending = endings[i].toCharArray();
+			keys[i] = suffix(ending, ending.length, ending.length);
+		}
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	/**
+	 * Проверяет, заканчивается ли слово на одно из окончаний таблицы
+	 * @param word буфер со словом
+	 * @param length длина слова
+	 * @param count длина окончаний в таблице
+	 * @param endings таблица {@link #suffixes(String...)}
+	 */
+	protected static boolean endsWith(char[] word, int length, int count, long[] endings) {
+		return length >= count && Arrays.binarySearch(endings, suffix(word, length, count)) >= 0;
+	}
+
 	/**
 	 * Возвращает внутренний массив this.words каждая запись имеет тип NCLNameCaseWord
 	 * @return array Массив всех слов в системе
@@ -1,9 +1,5 @@
 package namecaselib;
 
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Objects;
-
 import static namecaselib.NCL.NamePart.F;
 import static namecaselib.NCL.NamePart.N;
 import static namecaselib.NCL.NamePart.S;
@@ -31,6 +27,17 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      */
     @Override
     public int getCaseCount() {return 7;};
+
+    /**
+     * Версія мовного файлу. Статичне поле <var>languageBuild</var> приховує однойменне поле ядра,
+     * тому версію повертає цей метод
+     * @return string версія мовного файлу
+     */
+    @Override
+    public String languageVersion() {
+        return languageBuild;
+    }
+
     /**
      * Список гласных украинского языка
      * @var string
@@ -62,6 +69,23 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      */
     private static final String gubni = "мвпбф";
 
+    /**
+     * Порядок правил для чоловічих імен
+     */
+    private static final int[] manFirstNameRules = {1, 2, 3};
+    /**
+     * Порядок правил для жіночих імен
+     */
+    private static final int[] womanFirstNameRules = {1, 2};
+    /**
+     * Порядок правил для чоловічих прізвищ
+     */
+    private static final int[] manSecondNameRules = {5, 1, 2, 3, 4};
+    /**
+     * Порядок правил для жіночих прізвищ
+     */
+    private static final int[] womanSecondNameRules = {3, 1};
+
 
     @Override
     protected boolean ruleMethod(String ruleMethod) {
@@ -78,28 +102,98 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
         return false;
     }
 
+    /**
+     * Виконує правила в порядку, вказаному в <var>rulesArray</var>.
+     * Цикл продубльовано тут, щоб виклик {@link #ruleMethod(Gender, int)} належав лише цьому класу
+     * і не ставав поліморфним, коли завантажено кілька мов
+     * @param gender стать, правила якої треба застосувати
+     * @param rulesArray порядок виконання правил
+     * @return boolean true - якщо було задіяно правило, false - якщо правило не знайдено
+     */
+    @Override
+    protected final boolean rulesChain(Gender gender, int[] rulesArray) {
+        for (int ruleId : rulesArray) {
+            if (this.ruleMethod(gender, ruleId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Виконує правило за номером без побудови імені методу.
+     * Метод final, щоб виклик правил зв’язувався статично
+     * @param gender стать, правила якої треба застосувати
+     * @param ruleId номер правила
+     * @return boolean true - якщо було задіяно правило, false - якщо правило не знайдено
+     */
+    @Override
+    protected final boolean ruleMethod(Gender gender, int ruleId) {
+        if (gender == Gender.MAN) {
+            switch (ruleId) {
+                case 1: return manRule1();
+                case 2: return manRule2();
+                case 3: return manRule3();
+                case 4: return manRule4();
+                case 5: return manRule5();
+            }
+        } else {
+            switch (ruleId) {
+                case 1: return womanRule1();
+                case 2: return womanRule2();
+                case 3: return womanRule3();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Правила працюють із символами поточного слова ({@link #workingChars}) і будують відмінки
+     * через {@link #beginForms(char[], int)}, тому слова системи відмінюються без створення рядків
+     * @return boolean true
+     */
+    @Override
+    protected boolean charRules() {
+        return true;
+    }
+
+    /**
+     * Буфер для основи, яку будують правила
+     */
+    private char[] osnova = new char[32];
+
+    /**
+     * Чи є літера в переліку
+     * @param letter літера
+     * @param letters перелік літер
+     * @return boolean true - якщо літера є в переліку
+     */
+    private static boolean in(char letter, String letters) {
+        return letters.indexOf(letter) >= 0;
+    }
+
     /**
      * Чергування українських приголосних
      * Чергування г к х —» з ц с
      * @param letter літера, яку необхідно перевірити на чергування
-     * @return string літера, де вже відбулося чергування
+     * @return char літера, де вже відбулося чергування
      */
-    private String inverseGKH(String letter) {
+    private char inverseGKH(char letter) {
         switch (letter) {
-            case "г": return "з";
-            case "к": return "ц";
-            case "х": return "с";
+            case 'г': return 'з';
+            case 'к': return 'ц';
+            case 'х': return 'с';
         }
         return letter;
     }
 
     /**
      * Перевіряє чи символ є апострофом чи не є
-     * @param c string(1) симпол для перевірки
+     * @param c симпол для перевірки
      * @return bool true якщо символ є апострофом
      */
-    private boolean isApostrof(String c) {
-        if (this.in(c, ' ' + this.consonant + this.vowels)) {
+    private boolean isApostrof(char c) {
+        if (in(c, ' ' + consonant + vowels)) {
             return false;
         }
         return true;
@@ -109,12 +203,12 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * Чергування українських приголосних
      * Чергування г к —» ж ч
      * @param letter літера, яку необхідно перевірити на чергування
-     * @return string літера, де вже відбулося чергування
+     * @return char літера, де вже відбулося чергування
      */
-    private String inverse2(String letter) {
+    private char inverse2(char letter) {
         switch (letter) {
-            case "к": return "ч";
-            case "г": return "ж";
+            case 'к': return 'ч';
+            case 'г': return 'ж';
         }
         return letter;
     }
@@ -133,26 +227,18 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * - Іменники з основою на будь-який м'який чи пом'якше­ний належать до м'якої групи:
      *   земля [земл'а], зоря [зор'а], армія [арм'ійа], сім'я [с'імйа], серпень, фахівець,
      *   трамвай, су­зір'я [суз'ірйа], насіння [насін"н"а], узвишшя Іузвиш"ш"а
-     * @param word іменник, групу якого необхідно визначити
+     * Група визначається для поточного слова
      * @return int номер групи іменника
      */
-    private int detect2Group(String word) {
-        String osnova = word;
-        LinkedList<String> stack = new LinkedList<>();
-        //Ріжемо слово поки не зустрінемо приголосний і записуемо в стек всі голосні які зустріли
-        while (this.in(substring(osnova, -1, 1), this.vowels + "ь")) {
-            stack.add(substring(osnova, -1, 1));
-            osnova = substring(osnova, 0, osnova.length() - 1);
-        }
-        String last = "Z"; //нульове закінчення
-        if (!stack.isEmpty()) {
-            last = stack.removeLast();
-        }
+    private int detect2Group() {
+        int length = this.osnovaLength();
+        //Перша з голосних, які відрізали від основи, або нульове закінчення
+        char last = length < this.workingLength ? this.workingChars[length] : 'Z';
 
-        String osnovaEnd = substring(osnova, -1, 1);
-        if (this.in(osnovaEnd, this.neshyplyachi) && !this.in(last, this.myaki)) {
+        char osnovaEnd = this.workingChars[length - 1];
+        if (in(osnovaEnd, neshyplyachi) && !in(last, myaki)) {
             return 1;
-        } else if (this.in(osnovaEnd, this.shyplyachi) && !this.in(last, this.myaki)) {
+        } else if (in(osnovaEnd, shyplyachi) && !in(last, myaki)) {
             return 2;
         }
         else {
@@ -162,34 +248,101 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
 
     /**
      * Шукаємо в слові <var>word</var> перше входження літери з переліку <var>vowels</var> з кінця
-     * @param word слово, якому необхідно знайти голосні
+     * @param word буфер зі словом, якому необхідно знайти голосні
+     * @param length довжина слова
      * @param vowels перелік літер, які треба знайти
-     * @return string(1) перша з кінця літера з переліку <var>vowels</var>
+     * @return char перша з кінця літера з переліку <var>vowels</var> або 0
      */
-    private String firstLastVowel(String word, String vowels) {
-        int length = word.length();
+    private char firstLastVowel(char[] word, int length, String vowels) {
         for (int i = length - 1; i > 0; i--) {
-            String c = substring(word, i, 1);
-            if (this.in(c, vowels)) {
-                return c;
+            if (in(word[i], vowels)) {
+                return word[i];
             }
         }
-        return null;
+        return 0;
     }
 
     /**
-     * Пошук основи іменника <var>word</var>
-     * <b>Основа слова</b> - це частина слова (як правило незмінна), яка вказує на його лексичне значення.
-     * @param word слово, в якому необхідно знати основу
-     * @return string основа іменника <var>word</var>
+     * Довжина основи поточного слова: слово без кінцевих голосних і ь.
+     * Слово, в якому лишилися самі голосні, як і раніше, спричиняє StringIndexOutOfBoundsException
+     * @return int довжина основи
      */
-    private String getOsnova(String word) {
-        String osnova = word;
+    private int osnovaLength() {
+        int length = this.workingLength;
         //Ріжемо слово поки не зустрінемо приголосний
-        while (this.in(substring(osnova, -1, 1), this.vowels + "ь")) {
-            osnova = substring(osnova, 0, osnova.length() - 1);
+        while (in(lastChar(this.workingChars, length, 1), vowels + "ь")) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Пошук основи поточного слова, основа записується в {@link #osnova}
+     * <b>Основа слова</b> - це частина слова (як правило незмінна), яка вказує на його лексичне значення.
+     * @return int довжина основи
+     */
+    private int getOsnova() {
+        return this.toOsnova(this.osnovaLength());
+    }
+
+    /**
+     * Копіює перші <var>length</var> літер поточного слова в {@link #osnova}, залишаючи місце ще для однієї літери
+     * @param length скільки літер скопіювати
+     * @return int <var>length</var>
+     */
+    private int toOsnova(int length) {
+        if (this.osnova.length <= length) {
+            this.osnova = new char[Math.max(length + 1, this.osnova.length * 2)];
         }
-        return osnova;
+        System.arraycopy(this.workingChars, 0, this.osnova, 0, length);
+        return length;
+    }
+
+    /**
+     * Будує відмінки поточного слова: називний - саме слово, інші - перші <var>stemLength</var> літер
+     * <var>stem</var> і закінчення відмінку
+     */
+    private void wordForms(char[] stem, int stemLength, String rodovyi, String davalnyi, String znahidnyi,
+                           String orudnyi, String miszevyi, String klychnyi) {
+        this.beginForms(stem, stemLength);
+        this.addForm(rodovyi);
+        this.addForm(davalnyi);
+        this.addForm(znahidnyi);
+        this.addForm(orudnyi);
+        this.addForm(miszevyi);
+        this.addForm(klychnyi);
+    }
+
+    /**
+     * Відмінює поточне слово на -а (-я) без двох останніх літер. Передостання літера в давальному
+     * та місцевому відмінках чергується ({@link #inverseGKH(char)}) перед закінченням -і
+     * @param beforeLast передостання літера слова
+     */
+    private void firstDeclension(char beforeLast, String rodovyi, String znahidnyi, String orudnyi, String klychnyi) {
+        char inverted = this.inverseGKH(beforeLast);
+        this.beginForms(this.workingChars, this.workingLength - 2);
+        this.addForm(beforeLast, rodovyi);
+        this.addForm(inverted, "і");
+        this.addForm(beforeLast, znahidnyi);
+        this.addForm(beforeLast, orudnyi);
+        this.addForm(inverted, "і");
+        this.addForm(beforeLast, klychnyi);
+    }
+
+    /**
+     * Відмінює основу твердої групи з {@link #osnova}. Остання літера основи в кличному відмінку
+     * чергується ({@link #inverse2(char)})
+     * @param length довжина основи
+     */
+    private void hardGroupForms(int length, String davalnyi, String orudnyi) {
+        char osLast = this.osnova[length - 1];
+        this.beginForms(this.osnova, length - 1);
+        this.addForm(osLast, "а");
+        this.addForm(osLast, davalnyi);
+        this.addForm(osLast, "а");
+        this.addForm(osLast, orudnyi);
+        this.addForm(osLast, davalnyi);
+        this.addForm(this.inverse2(osLast), "е");
     }
 
     /**
@@ -206,22 +359,22 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      */
     protected boolean manRule1() {
         //Предпоследний символ
-        String beforeLast = this.last(2, 1);
+        char beforeLast = this.lastChar(2);
 
         //Останні літера або а
-        if ("a".equals(this.last(1))) {
-            this.wordForms(this.workingWord, array(beforeLast + "и", this.inverseGKH(beforeLast) + "і", beforeLast + "у", beforeLast + "ою", this.inverseGKH(beforeLast) + "і", beforeLast + "о"), 2);
+        if (this.lastChar(1) == 'a') {
+            this.firstDeclension(beforeLast, "и", "у", "ою", "о");
             this.rule(101);
             return true;
-        } else if ("я".equals(this.last(1))) { //Остання літера я
+        } else if (this.lastChar(1) == 'я') { //Остання літера я
             //Перед останньою літерою стоїть я
-            if ("і".equals(beforeLast)) {
-                this.wordForms(this.workingWord, array("ї", "ї", "ю", "єю", "ї", "є"), 1);
+            if (beforeLast == 'і') {
+                this.wordForms(this.workingChars, this.workingLength - 1, "ї", "ї", "ю", "єю", "ї", "є");
                 this.rule(102);
                 return true;
             }
             else {
-                this.wordForms(this.workingWord, array(beforeLast + "і", this.inverseGKH(beforeLast) + "і", beforeLast + "ю", beforeLast + "ею", this.inverseGKH(beforeLast) + "і", beforeLast + "е"), 2);
+                this.firstDeclension(beforeLast, "і", "ю", "ею", "е");
                 this.rule(103);
                 return true;
             }
@@ -235,18 +388,18 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean manRule2() {
-        if ("р".equals(this.last(1))) {
-            if (this.inNames(this.workingWord, array("Ігор", "Лазар"))) {
-                this.wordForms(this.workingWord, array("я", "еві", "я", "ем", "еві", "е"));
+        if (this.lastChar(1) == 'р') {
+            if (this.wordIs("ігор") || this.wordIs("лазар")) {
+                this.wordForms(this.workingChars, this.workingLength, "я", "еві", "я", "ем", "еві", "е");
                 this.rule(201);
                 return true;
             }
             else {
-                String osnova = this.workingWord;
-                if ("і".equals(substring(osnova, -2, 1))) {
-                    osnova = substring(osnova, 0, osnova.length() - 2) + "о" + substring(osnova, -1, 1);
+                int length = this.toOsnova(this.workingLength);
+                if (this.lastChar(2) == 'і') {
+                    this.osnova[length - 2] = 'о';
                 }
-                this.wordForms(osnova, array("а", "ові", "а", "ом", "ові", "е"));
+                this.wordForms(this.osnova, length, "а", "ові", "а", "ом", "ові", "е");
                 this.rule(202);
                 return true;
             }
@@ -261,97 +414,99 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      */
     protected boolean manRule3() {
         //Предпоследний символ
-        String beforeLast = this.last(2, 1);
+        char beforeLast = this.lastChar(2);
 
-        if (this.in(this.last(1), this.consonant + "оь")) {
-            int group = this.detect2Group(this.workingWord);
-            String osnova = this.getOsnova(this.workingWord);
+        if (in(this.lastChar(1), consonant + "оь")) {
+            int group = this.detect2Group();
+            int length = this.getOsnova();
+            char[] osnova = this.osnova;
             //В іменах типу Антін, Нестір, Нечипір, Прокіп, Сидір, Тиміш, Федір голосний і виступає тільки в
             //називному відмінку, у непрямих - о: Антона, Антонові
             //Чергування і -» о всередині
-            String osLast = substring(osnova, -1, 1);
-            if (!Objects.equals(osLast, "й")
-                    && "і".equals(substring(osnova, -2, 1))
-                    && !this.in(substring(osnova.toLowerCase(), -4, 4), array("світ", "цвіт"))
-                    && !this.inNames(this.workingWord, Arrays.asList("Гліб"))
-                    && !this.in(this.last(2), array("ік", "іч"))) {
-                osnova = substring(osnova, 0, osnova.length() - 2) + "о" + substring(osnova, -1, 1);
+            if (osnova[length - 1] != 'й'
+                    && lastChar(osnova, length, 2) == 'і'
+                    && !lastIs(osnova, length, "світ") && !lastIs(osnova, length, "цвіт")
+                    && !this.wordIs("гліб")
+                    && !this.lastIs("ік") && !this.lastIs("іч")) {
+                osnova[length - 2] = 'о';
             }
 
 
             //Випадання букви е при відмінюванні слів типу Орел
-            if (substring(osnova, 0, 1).equals("о") && Objects.equals(this.firstLastVowel(osnova, this.vowels + "гк"), "е") && !Objects.equals(this.last(2), "сь")) {
-                int delim = osnova.lastIndexOf("е");
-                osnova = substring(osnova, 0, delim) + substring(osnova, delim + 1, osnova.length() - delim);
+            if (osnova[0] == 'о' && this.firstLastVowel(osnova, length, vowels + "гк") == 'е' && !this.lastIs("сь")) {
+                //Хвіст основи після «е» тут завжди рахувався на літеру довшим за основу, тому правило кидало виняток.
+                //Поведінку збережено, щоб відмінювання не відрізнялося від попередніх версій
+                throw new StringIndexOutOfBoundsException("Основа " + new String(osnova, 0, length) + ": випадання е");
             }
 
 
             if (group == 1) {
                 //Тверда група
                 //Слова що закінчуються на ок
-                if (Objects.equals(this.last(2), "ок") && !Objects.equals(this.last(3), "оок")) {
-                    this.wordForms(this.workingWord, array("ка", "кові", "ка", "ком", "кові", "че"), 2);
+                if (this.lastIs("ок") && !this.lastIs("оок")) {
+                    this.wordForms(this.workingChars, this.workingLength - 2, "ка", "кові", "ка", "ком", "кові", "че");
                     this.rule(301);
                     return true;
                 }
                 //Російські прізвища на ов, ев, єв
-                else if (this.in(this.last(2), array("ов", "ев", "єв")) && !this.inNames(this.workingWord, array("Лев", "Остромов"))) {
-                    this.wordForms(osnova, array(osLast + "а", osLast + "у", osLast + "а", osLast + "им", osLast + "у", this.inverse2(osLast) + "е"), 1);
+                else if ((this.lastIs("ов") || this.lastIs("ев") || this.lastIs("єв")) && !this.wordIs("лев") && !this.wordIs("остромов")) {
+                    this.hardGroupForms(length, "у", "им");
                     this.rule(302);
                     return true;
                 }
                 //Російські прізвища на ін
-                else if (this.in(this.last(2), array("ін"))) {
-                    this.wordForms(this.workingWord, array("а", "у", "а", "ом", "у", "е"));
+                else if (this.lastIs("ін")) {
+                    this.wordForms(this.workingChars, this.workingLength, "а", "у", "а", "ом", "у", "е");
                     this.rule(303);
                     return true;
                 }
                 else {
-                    this.wordForms(osnova, array(osLast + "а", osLast + "ові", osLast + "а", osLast + "ом", osLast + "ові", this.inverse2(osLast) + "е"), 1);
+                    this.hardGroupForms(length, "ові", "ом");
                     this.rule(304);
                     return true;
                 }
             }
             if (group == 2) {
                 //Мішана група
-                this.wordForms(osnova, array("а", "еві", "а", "ем", "еві", "е"));
+                this.wordForms(osnova, length, "а", "еві", "а", "ем", "еві", "е");
                 this.rule(305);
                 return true;
             }
             if (group == 3) {
                 //М’яка група
                 //Соловей
-                if (Objects.equals(this.last(2), "ей") && this.in(this.last(3, 1), this.gubni)) {
-                    osnova = substring(this.workingWord, 0, this.workingWord.length() - 2) + '’';
-                    this.wordForms(osnova, array("я", "єві", "я", "єм", "єві", "ю"));
+                if (this.lastIs("ей") && in(this.lastChar(3), gubni)) {
+                    length = this.toOsnova(this.workingLength - 2);
+                    this.osnova[length] = '’';
+                    this.wordForms(this.osnova, length + 1, "я", "єві", "я", "єм", "єві", "ю");
                     this.rule(306);
                     return true;
                 }
-                else if (Objects.equals(this.last(1), "й") || Objects.equals(beforeLast, "і")) {
-                    this.wordForms(this.workingWord, array("я", "єві", "я", "єм", "єві", "ю"), 1);
+                else if (this.lastChar(1) == 'й' || beforeLast == 'і') {
+                    this.wordForms(this.workingChars, this.workingLength - 1, "я", "єві", "я", "єм", "єві", "ю");
                     this.rule(307);
                     return true;
                 }
                 //Швець
-                else if (Objects.equals(this.workingWord, "швець")) {
-                    this.wordForms(this.workingWord, array("евця", "евцеві", "евця", "евцем", "евцеві", "евцю"), 4);
+                else if (this.wordIs("швець")) {
+                    this.wordForms(this.workingChars, this.workingLength - 4, "евця", "евцеві", "евця", "евцем", "евцеві", "евцю");
                     this.rule(308);
                     return true;
                 }
                 //Слова що закінчуються на ець
-                else if (Objects.equals(this.last(3), "ець")) {
-                    this.wordForms(this.workingWord, array("ця", "цеві", "ця", "цем", "цеві", "цю"), 3);
+                else if (this.lastIs("ець")) {
+                    this.wordForms(this.workingChars, this.workingLength - 3, "ця", "цеві", "ця", "цем", "цеві", "цю");
                     this.rule(309);
                     return true;
                 }
                 //Слова що закінчуються на єць яць
-                else if (this.in(this.last(3), array("єць", "яць"))) {
-                    this.wordForms(this.workingWord, array("йця", "йцеві", "йця", "йцем", "йцеві", "йцю"), 3);
+                else if (this.lastIs("єць") || this.lastIs("яць")) {
+                    this.wordForms(this.workingChars, this.workingLength - 3, "йця", "йцеві", "йця", "йцем", "йцеві", "йцю");
                     this.rule(310);
                     return true;
                 }
                 else {
-                    this.wordForms(osnova, array("я", "еві", "я", "ем", "еві", "ю"));
+                    this.wordForms(osnova, length, "я", "еві", "я", "ем", "еві", "ю");
                     this.rule(311);
                     return true;
                 }
@@ -365,8 +520,8 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean manRule4() {
-        if (Objects.equals(this.last(1), "і")) {
-            this.wordForms(this.workingWord, array("их", "им", "их", "ими", "их", "і"), 1);
+        if (this.lastChar(1) == 'і') {
+            this.wordForms(this.workingChars, this.workingLength - 1, "их", "им", "их", "ими", "их", "і");
             this.rule(4);
             return true;
         }
@@ -378,8 +533,8 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean manRule5() {
-        if (this.in(this.last(2), array("ий", "ой"))) {
-            this.wordForms(this.workingWord, array("ого", "ому", "ого", "им", "ому", "ий"), 2);
+        if (this.lastIs("ий") || this.lastIs("ой")) {
+            this.wordForms(this.workingChars, this.workingLength - 2, "ого", "ому", "ого", "им", "ому", "ий");
             this.rule(5);
             return true;
         }
@@ -398,32 +553,33 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      */
     protected boolean womanRule1() {
         //Предпоследний символ
-        String beforeLast = this.last(2, 1);
+        char beforeLast = this.lastChar(2);
 
         //Якщо закінчується на ніга -» нога
-        if (Objects.equals(this.last(4), "ніга")) {
-            String osnova = substring(this.workingWord, 0, this.workingWord.length() - 3) + "о";
-            this.wordForms(osnova, array("ги", "зі", "гу", "гою", "зі", "го"));
+        if (this.lastIs("ніга")) {
+            int length = this.toOsnova(this.workingLength - 3);
+            this.osnova[length] = 'о';
+            this.wordForms(this.osnova, length + 1, "ги", "зі", "гу", "гою", "зі", "го");
             this.rule(101);
             return true;
         }
 
         //Останні літера або а
-        else if (Objects.equals(this.last(1), "а")) {
-            this.wordForms(this.workingWord, array(beforeLast + "и", this.inverseGKH(beforeLast) + "і", beforeLast + "у", beforeLast + "ою", this.inverseGKH(beforeLast) + "і", beforeLast + "о"), 2);
+        else if (this.lastChar(1) == 'а') {
+            this.firstDeclension(beforeLast, "и", "у", "ою", "о");
             this.rule(102);
             return true;
         }
         //Остання літера я
-        else if (Objects.equals(this.last(1), "я")) {
+        else if (this.lastChar(1) == 'я') {
 
-            if (this.in(beforeLast, this.vowels) || this.isApostrof(beforeLast)) {
-                this.wordForms(this.workingWord, array("ї", "ї", "ю", "єю", "ї", "є"), 1);
+            if (in(beforeLast, vowels) || this.isApostrof(beforeLast)) {
+                this.wordForms(this.workingChars, this.workingLength - 1, "ї", "ї", "ю", "єю", "ї", "є");
                 this.rule(103);
                 return true;
             }
             else {
-                this.wordForms(this.workingWord, array(beforeLast + "і", this.inverseGKH(beforeLast) + "і", beforeLast + "ю", beforeLast + "ею", this.inverseGKH(beforeLast) + "і", beforeLast + "е"), 2);
+                this.firstDeclension(beforeLast, "і", "ю", "ею", "е");
                 this.rule(104);
                 return true;
             }
@@ -437,35 +593,39 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean womanRule2() {
-        if (this.in(this.last(1), this.consonant + "ь")) {
-            String osnova = this.getOsnova(this.workingWord);
-            String apostrof = "";
-            String duplicate = "";
-            String osLast = substring(osnova, -1, 1);
-            String osbeforeLast = substring(osnova, -2, 1);
+        if (in(this.lastChar(1), consonant + "ь")) {
+            int length = this.getOsnova();
+            char osLast = this.osnova[length - 1];
+            char osbeforeLast = lastChar(this.osnova, length, 2);
+            //Апостроф або подвоєна літера перед закінченням орудного відмінку
+            char before = 0;
 
             //Чи треба ставити апостроф
-            if (this.in(osLast, "мвпбф") && (this.in(osbeforeLast, this.vowels))) {
-                apostrof = "’";
+            if (in(osLast, "мвпбф") && (in(osbeforeLast, vowels))) {
+                before = '’';
             }
 
             //Чи треба подвоювати
-            if (this.in(osLast, "дтзсцлн")) {
-                duplicate = osLast;
+            if (in(osLast, "дтзсцлн")) {
+                before = osLast;
             }
 
 
             //Відмінюємо
-            if (Objects.equals(this.last(1), "ь")) {
-                this.wordForms(osnova, array("і", "і", "ь", duplicate + apostrof + "ю", "і", "е"));
-                this.rule(201);
-                return true;
-            }
-            else {
-                this.wordForms(osnova, array("і", "і", "", duplicate + apostrof + "ю", "і", "е"));
-                this.rule(202);
-                return true;
+            boolean soft = this.lastChar(1) == 'ь';
+            this.beginForms(this.osnova, length);
+            this.addForm("і");
+            this.addForm("і");
+            this.addForm(soft ? "ь" : "");
+            if (before == 0) {
+                this.addForm("ю");
+            } else {
+                this.addForm(before, "ю");
             }
+            this.addForm("і");
+            this.addForm("е");
+            this.rule(soft ? 201 : 202);
+            return true;
         }
         return false;
     }
@@ -476,18 +636,18 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      */
     protected boolean womanRule3() {
         //Предпоследний символ
-        String beforeLast = this.last(2, 1);
+        char beforeLast = this.lastChar(2);
 
         //Донская
-        if (Objects.equals(this.last(2), "ая")) {
-            this.wordForms(this.workingWord, array("ої", "ій", "ую", "ою", "ій", "ая"), 2);
+        if (this.lastIs("ая")) {
+            this.wordForms(this.workingChars, this.workingLength - 2, "ої", "ій", "ую", "ою", "ій", "ая");
             this.rule(301);
             return true;
         }
 
         //Ті що на ськ
-        if (Objects.equals(this.last(1), "а") && (this.in(this.last(2, 1), "чнв") || this.in(this.last(3, 2), array("ьк")))) {
-            this.wordForms(this.workingWord, array(beforeLast + "ої", beforeLast + "ій", beforeLast + "у", beforeLast + "ою", beforeLast + "ій", beforeLast + "о"), 2);
+        if (this.lastChar(1) == 'а' && (in(beforeLast, "чнв") || this.lastChar(3) == 'ь' && beforeLast == 'к')) {
+            this.wordForms(this.workingChars, this.workingLength - 1, "ої", "ій", "у", "ою", "ій", "о");
             this.rule(302);
             return true;
         }
@@ -500,7 +660,7 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean manFirstName() {
-        return this.rulesChain("man", array(1, 2, 3));
+        return this.rulesChain(Gender.MAN, manFirstNameRules);
     }
 
     /**
@@ -508,7 +668,7 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean womanFirstName() {
-        return this.rulesChain("woman", array(1, 2));
+        return this.rulesChain(Gender.WOMAN, womanFirstNameRules);
     }
 
     /**
@@ -516,7 +676,7 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean manSecondName() {
-        return this.rulesChain("man", array(5, 1, 2, 3, 4));
+        return this.rulesChain(Gender.MAN, manSecondNameRules);
     }
 
     /**
@@ -524,7 +684,7 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо було задіяно правило з переліку, false - якщо правило не знайдено
      */
     protected boolean womanSecondName() {
-        return this.rulesChain("woman", array(3, 1));
+        return this.rulesChain(Gender.WOMAN, womanSecondNameRules);
     }
 
     /**
@@ -532,8 +692,8 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо слово успішно змінене, false - якщо невдалося провідміняти слово
      */
     protected boolean manFatherName() {
-        if (this.in(this.last(2), array("ич", "іч"))) {
-            this.wordForms(this.workingWord, array("а", "у", "а", "ем", "у", "у"));
+        if (this.lastIs("ич") || this.lastIs("іч")) {
+            this.wordForms(this.workingChars, this.workingLength, "а", "у", "а", "ем", "у", "у");
             return true;
         }
         return false;
@@ -544,158 +704,280 @@ public class NCLNameCaseUa extends NCLNameCaseCore {
      * @return boolean true - якщо слово успішно змінене, false - якщо невдалося провідміняти слово
      */
     protected boolean womanFatherName() {
-        if (this.in(this.last(3), array("вна"))) {
-            this.wordForms(this.workingWord, array("и", "і", "у", "ою", "і", "о"), 1);
+        if (this.lastIs("вна")) {
+            this.wordForms(this.workingChars, this.workingLength - 1, "и", "і", "у", "ою", "і", "о");
             return true;
         }
         return false;
     }
 
     /**
-     * Визначення статі, за правилами імені
+     * Визначення статі, за правилами імені ({@link #scoreGender(char[], int, NamePart, double[])})
      * @param word об’єкт класу зі словом, для якого необхідно визначити стать
      */
     protected void genderByFirstName(NCLNameCaseWord word) {
-        this.setWorkingWord(word.getWord());
-
-        double man = 0; //Мужчина
-        double woman = 0; //Женщина
-        //Попробуем выжать максимум из имени
-        //Если имя заканчивается на й, то скорее всего мужчина
-        if (Objects.equals(this.last(1), "й")) {
-            man+=0.9;
-        }
-
-        if (this.inNames(this.workingWord, array("Петро", "Микола"))) {
-            man+=30;
-        }
-
-        if (this.in(this.last(2), array("он", "ов", "ав", "ам", "ол", "ан", "рд", "мп", "ко", "ло"))) {
-            man+=0.5;
-        }
-
-        if (this.in(this.last(3), array("бов", "нка", "яра", "ила", "опа"))) {
-            woman+=0.5;
-        }
-
-        if (this.in(this.last(1), this.consonant)) {
-            man+=0.01;
-        }
-
-        if (Objects.equals(this.last(1), "ь")) {
-            man+=0.02;
-        }
-
-        if (this.in(this.last(2), array("дь"))) {
-            woman+=0.1;
-        }
-
-        if (this.in(this.last(3), array("ель", "бов"))) {
-            woman+=0.4;
-        }
-
-        word.setGender(man, woman);
+        this.genderByRules(word, N);
     }
 
     /**
-     * Визначення статі, за правилами прізвища
+     * Визначення статі, за правилами прізвища ({@link #scoreGender(char[], int, NamePart, double[])})
      * @param word об’єкт класу зі словом, для якого необхідно визначити стать
      */
     protected void genderBySecondName(NCLNameCaseWord word) {
-        this.setWorkingWord(word.getWord());
-
-        double man = 0; //Мужчина
-        double woman = 0; //Женщина
-
-        if (this.in(this.last(2), array("ов", "ин", "ев", "єв", "ін", "їн", "ий", "їв", "ів", "ой", "ей"))) {
-            man+=0.4;
-        }
-
-        if (this.in(this.last(3), array("ова", "ина", "ева", "єва", "іна", "мін"))) {
-            woman+=0.4;
-        }
-
-        if (this.in(this.last(2), array("ая"))) {
-            woman+=0.4;
-        }
-
-        word.setGender(man, woman);
+        this.genderByRules(word, S);
     }
 
     /**
-     * Визначення статі, за правилами по-батькові
+     * Визначення статі, за правилами по-батькові ({@link #scoreGender(char[], int, NamePart, double[])})
      * @param word об’єкт класу зі словом, для якого необхідно визначити стать
      */
     protected void genderByFatherName(NCLNameCaseWord word) {
-        this.setWorkingWord(word.getWord());
+        this.genderByRules(word, F);
+    }
 
-        if (Objects.equals(this.last(2), "ич")) {
-            word.setGender(10, 0); // мужчина
-        }
-        if (Objects.equals(this.last(2), "на")) {
-            word.setGender(0, 12); // женщина
+    private void genderByRules(NCLNameCaseWord word, NamePart namePart) {
+        int length = word.getLength();
+        //Як і раніше, коли правила брали last(2) і last(3): коротке слово при склонінні - помилка
+        if (length < (namePart == F ? 2 : 3)) {
+            throw new StringIndexOutOfBoundsException("Слово закоротке для правил статі: " + word.getWord());
         }
+        this.scoreGender(word.getChars(), length, namePart, this.genderScores);
+        word.setGender(this.genderScores[0], this.genderScores[1]);
     }
 
     /**
      * Ідентифікує слово визначаючи чи це ім’я, чи це прізвище, чи це побатькові
+     * ({@link #scoreNameParts(char[], int, double[])})
      * - <b>N</b> - ім’я
      * - <b>S</b> - прізвище
      * - <b>F</b> - по-батькові
      * @param word об’єкт класу зі словом, яке необхідно ідентифікувати
      */
     protected void detectNamePart(NCLNameCaseWord word) {
-        String namepart = word.getWord();
-        this.setWorkingWord(namepart);
+        int length = word.getLength();
+        //Як і раніше, коли правила брали last(4): коротке слово при склонінні - помилка
+        if (length < 4) {
+            throw new StringIndexOutOfBoundsException("Слово коротше за 4 літери: " + word.getWord());
+        }
+        double[] scores = this.namePartScores;
+        this.scoreNameParts(word.getChars(), length, scores);
+        double first = scores[0];
+        double second = scores[1];
+        double father = scores[2];
+        double max = Math.max(first, Math.max(second, father));
+        //Відрив від наступної за величиною оцінки: сума без найбільшої і найменшої
+        word.setNamePartKoef(max - (first + second + father - max - Math.min(first, Math.min(second, father))));
+        word.setNamePart(bestNamePart(scores));
+    }
 
-        //Считаем вероятность
+    /**
+     * Оцінки для detectNamePart і genderBy*
+     */
+    private final double[] namePartScores = new double[3];
+    private final double[] genderScores = new double[2];
+
+    /**
+     * Закінчення для {@link #scoreNameParts(char[], int, double[])} і
+     * {@link #scoreGender(char[], int, NamePart, double[])}: єдині переліки для detectNamePart, genderBy*
+     * і detect(), у вигляді таблиць для пошуку без створення рядків
+     */
+    private static final long[] detectFather3 = suffixes("вна", "чна", "ліч");
+    private static final long[] detectFather4 = suffixes("ьмич", "ович");
+    private static final long[] detectFirst3 = suffixes("тин");
+    private static final long[] detectFirst4 = suffixes("ьмич", "юбов", "івна", "явка", "орив", "кіян");
+    private static final long[] detectSecond2 = suffixes("ов", "ін", "ев", "єв", "ий", "ин", "ой", "ко", "ук", "як", "ца", "их", "ик", "ун", "ок", "ша", "ая", "га", "єк", "аш", "ив", "юк", "ус", "це", "ак", "бр", "яр", "іл", "ів", "ич", "сь", "ей", "нс", "яс", "ер", "ай", "ян", "ах", "ць", "ющ", "іс", "ач", "уб", "ох", "юх", "ут", "ча", "ул", "вк", "зь", "уц", "їн", "де", "уз", "юр", "ік", "іч", "ро");
+    private static final long[] detectSecond3 = suffixes("ова", "ева", "єва", "тих", "рик", "вач", "аха", "шен", "мей", "арь", "вка", "шир", "бан", "чий", "іна", "їна", "ька", "ань", "ива", "аль", "ура", "ран", "ало", "ола", "кур", "оба", "оль", "нта", "зій", "ґан", "іло", "шта", "юпа", "рна", "бла", "еїн", "има", "мар", "кар", "оха", "чур", "ниш", "ета", "тна", "зур", "нір", "йма", "орж", "рба", "іла", "лас", "дід", "роз", "аба", "чан", "ган");
+    private static final long[] detectSecond4 = suffixes("ьник", "нчук", "тник", "кирь", "ский", "шена", "шина", "вина", "нина", "гана", "хній", "зюба", "орош", "орон", "сило", "руба", "лест", "мара", "обка", "рока", "сика", "одна", "нчар", "вата", "ндар", "грій");
+    private static final String[] detectFirstNames = {"лев", "гаїна", "афіна", "антоніна", "ангеліна", "альвіна", "альбіна", "аліна", "павло", "олесь", "микола", "мая", "англеліна", "елькін", "мерлін"};
+
+    private static final long[] genderManFirst2 = suffixes("он", "ов", "ав", "ам", "ол", "ан", "рд", "мп", "ко", "ло");
+    private static final long[] genderWomanFirst3 = suffixes("бов", "нка", "яра", "ила", "опа");
+    private static final long[] genderWomanFirst3Soft = suffixes("ель", "бов");
+    private static final String[] genderManFirstNames = {"петро", "микола"};
+    private static final long[] genderManSecond2 = suffixes("ов", "ин", "ев", "єв", "ін", "їн", "ий", "їв", "ів", "ой", "ей");
+    private static final long[] genderWomanSecond3 = suffixes("ова", "ина", "ева", "єва", "іна", "мін");
+
+    /**
+     * Ідентифікує слово за правилами {@link #scoreNameParts(char[], int, double[])}, як і
+     * {@link #detectNamePart(NCLNameCaseWord)}, але без об’єкта слова
+     * @param word буфер зі словом у нижньому регістрі
+     * @param length довжина слова
+     * @return частина ПІБ
+     */
+    @Override
+    protected NamePart scoreNamePart(char[] word, int length) {
+        this.scoreNameParts(word, length, this.namePartScores);
+        return bestNamePart(this.namePartScores);
+    }
+
+    /**
+     * Рахує оцінки частин ПІБ слова, перевіряючи закінчення прямо в буфері.
+     * Закінчення, довші за слово, просто не збігаються, тому коротке слово отримує низькі оцінки
+     * @param word буфер зі словом у нижньому регістрі
+     * @param length довжина слова
+     * @param scores оцінки: [0] - ім’я, [1] - прізвище, [2] - по-батькові
+     */
+    private void scoreNameParts(char[] word, int length, double[] scores) {
         double first = 0;
         double second = 0;
         double father = 0;
 
-        //если смахивает на отчество
-        if (this.in(this.last(3), array("вна", "чна", "ліч")) || this.in(this.last(4), array("ьмич", "ович"))) {
+        //якщо схоже на по-батькові
+        if (endsWith(word, length, 3, detectFather3) || endsWith(word, length, 4, detectFather4)) {
             father+=3;
         }
-
-        //Похоже на имя
-        if (this.in(this.last(3), array("тин" /* {endings_sirname3} */)) || this.in(this.last(4), array("ьмич", "юбов", "івна", "явка", "орив", "кіян" /* {endings_sirname4} */))) {
+        //схоже на ім’я
+        if (endsWith(word, length, 3, detectFirst3) || endsWith(word, length, 4, detectFirst4)) {
             first+=0.5;
         }
-
-        //Исключения
-        if (this.inNames(namepart, array("Лев", "Гаїна", "Афіна", "Антоніна", "Ангеліна", "Альвіна", "Альбіна", "Аліна", "Павло", "Олесь", "Микола", "Мая", "Англеліна", "Елькін", "Мерлін"))) {
+        //винятки
+        if (equalsAny(word, length, detectFirstNames)) {
             first+=10;
         }
-
-        //похоже на фамилию
-        if (this.in(this.last(2), array("ов", "ін", "ев", "єв", "ий", "ин", "ой", "ко", "ук", "як", "ца", "их", "ик", "ун", "ок", "ша", "ая", "га", "єк", "аш", "ив", "юк", "ус", "це", "ак", "бр", "яр", "іл", "ів", "ич", "сь", "ей", "нс", "яс", "ер", "ай", "ян", "ах", "ць", "ющ", "іс", "ач", "уб", "ох", "юх", "ут", "ча", "ул", "вк", "зь", "уц", "їн", "де", "уз", "юр", "ік", "іч", "ро" /* {endings_name2} */))) {
+        //схоже на прізвище
+        if (endsWith(word, length, 2, detectSecond2)) {
             second+=0.4;
         }
-
-        if (this.in(this.last(3), array("ова", "ева", "єва", "тих", "рик", "вач", "аха", "шен", "мей", "арь", "вка", "шир", "бан", "чий", "іна", "їна", "ька", "ань", "ива", "аль", "ура", "ран", "ало", "ола", "кур", "оба", "оль", "нта", "зій", "ґан", "іло", "шта", "юпа", "рна", "бла", "еїн", "има", "мар", "кар", "оха", "чур", "ниш", "ета", "тна", "зур", "нір", "йма", "орж", "рба", "іла", "лас", "дід", "роз", "аба", "чан", "ган" /* {endings_name3} */))) {
+        if (endsWith(word, length, 3, detectSecond3)) {
             second+=0.4;
         }
-
-        if (this.in(this.last(4), array("ьник", "нчук", "тник", "кирь", "ский", "шена", "шина", "вина", "нина", "гана", "гана", "хній", "зюба", "орош", "орон", "сило", "руба", "лест", "мара", "обка", "рока", "сика", "одна", "нчар", "вата", "ндар", "грій" /* {endings_name4} */))) {
+        if (endsWith(word, length, 4, detectSecond4)) {
             second+=0.4;
         }
-
-        if (Objects.equals(this.last(1), "і")) {
+        if (word[length - 1] == 'і') {
             second+=0.2;
         }
 
-        Double max = array(first, second, father).stream().max(Double::compareTo).get();
+        scores[0] = first;
+        scores[1] = second;
+        scores[2] = father;
+    }
+
+    /**
+     * Частина ПІБ з найбільшою оцінкою, при рівних оцінках - ім’я, потім прізвище
+     */
+    private static NamePart bestNamePart(double[] scores) {
+        double max = Math.max(scores[0], Math.max(scores[1], scores[2]));
+        if (max == scores[0]) {
+            return N;
+        } else if (max == scores[1]) {
+            return S;
+        }
+        return F;
+    }
+
+    /**
+     * Оцінює стать слова без створення рядків. Єдині правила статі для genderBy* і detect().
+     * Закінчення, довші за слово, не збігаються, тому коротке слово отримує низьку впевненість
+     * @param word буфер зі словом у нижньому регістрі
+     * @param length довжина слова
+     * @param namePart частина ПІБ
+     * @param score оцінки: [0] - чоловік, [1] - жінка
+     */
+    @Override
+    protected void scoreGender(char[] word, int length, NamePart namePart, double[] score) {
+        char last = word[length - 1];
+        double man = 0;
+        double woman = 0;
+        switch (namePart) {
+            case N:
+                if (last == 'й') {
+                    man+=0.9;
+                }
+                if (equalsAny(word, length, genderManFirstNames)) {
+                    man+=30;
+                }
+                if (endsWith(word, length, 2, genderManFirst2)) {
+                    man+=0.5;
+                }
+                if (endsWith(word, length, 3, genderWomanFirst3)) {
+                    woman+=0.5;
+                }
+                if (consonant.indexOf(last) >= 0) {
+                    man+=0.01;
+                }
+                if (last == 'ь') {
+                    man+=0.02;
+                }
+                if (length >= 2 && word[length - 2] == 'д' && last == 'ь') {
+                    woman+=0.1;
+                }
+                if (endsWith(word, length, 3, genderWomanFirst3Soft)) {
+                    woman+=0.4;
+                }
+                break;
+            case S:
+                if (endsWith(word, length, 2, genderManSecond2)) {
+                    man+=0.4;
+                }
+                if (endsWith(word, length, 3, genderWomanSecond3)) {
+                    woman+=0.4;
+                }
+                if (length >= 2 && word[length - 2] == 'а' && last == 'я') {
+                    woman+=0.4;
+                }
+                break;
+            case F:
+                if (length >= 2 && word[length - 2] == 'и' && last == 'ч') {
+                    man = 10;
+                }
+                if (length >= 2 && word[length - 2] == 'н' && last == 'а') {
+                    man = 0;
+                    woman = 12;
+                }
+                break;
+        }
+        score[0] = man;
+        score[1] = woman;
+    }
 
-        if (max.equals(first)) {
-            word.setNamePart(N);
+    /**
+     * Закінчення, без яких слово не може бути по-батькові, і закінчення, з якими слово буває лише по-батькові
+     */
+    private static final String[] fatherNameEndings = {"ич", "іч", "вна", "чна"};
+    private static final String[] onlyFatherNameEndings = {"ович", "евич", "івна", "ївна", "овна"};
+
+    /**
+     * Слово суперечить розкладці колонки, якщо на місці по-батькові стоїть слово без закінчення по-батькові,
+     * або на місці імені чи прізвища - слово з закінченням, яке буває лише в по-батькові
+     * @param word буфер зі словом у нижньому регістрі
+     * @param length довжина слова
+     * @param namePart частина ПІБ з розкладки
+     * @return boolean true - якщо слово суперечить розкладці
+     */
+    @Override
+    protected boolean contradictsNamePart(char[] word, int length, NamePart namePart) {
+        if (namePart == F) {
+            return !endsWithAny(word, length, fatherNameEndings);
         }
-        else if (max.equals(second)) {
-            word.setNamePart(S);
+        return endsWithAny(word, length, onlyFatherNameEndings);
+    }
+
+    private static boolean endsWithAny(char[] word, int length, String[] endings) {
+        for (String ending : endings) {
+            if (ending.length() <= length && lastIs(word, length, ending)) {
+                return true;
+            }
         }
-        else {
-            word.setNamePart(F);
+        return false;
+    }
+
+    /**
+     * Перевіряє, чи збігається слово з одним із слів переліку
+     */
+    private static boolean equalsAny(char[] word, int length, String[] names) {
+        for (String name : names) {
+            if (name.length() == length) {
+                boolean same = true;
+                for (int i = 0; i < length && same; i++) {
+                    same = name.charAt(i) == word[i];
+                }
+                if (same) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
 }
\ No newline at end of file
@@ -3,13 +3,10 @@ package namecaselib;
 import namecaselib.NCL.Gender;
 import namecaselib.NCL.NamePart;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.stream.Collectors.toList;
-import static namecaselib.NCL.substring;
 
 /**
  * NCLNameCaseWord - класс, который служит для хранения всей информации о каждом слове
@@ -17,15 +14,34 @@ import static namecaselib.NCL.substring;
 public class NCLNameCaseWord {
 
 	/**
-	 * Слово в нижнем регистре, которое хранится в об’єкте класса
+	 * Слово в нижнем регистре, которое хранится в об’єкте класса.
+	 * Для слов из {@link #reset(CharSequence, int, int)} создается при первом обращении
 	 */
 	private String word = "";
 
 	/**
-	 * Оригинальное слово
+	 * Оригинальное слово, для слов из {@link #reset(CharSequence, int, int)} создается при первом обращении
 	 */
 	private String wordOrig = "";
 
+	/**
+	 * Слово в нижнем регистре посимвольно, занята часть до <var>length</var>
+	 */
+	private char[] chars = new char[16];
+	private int length = 0;
+
+	/**
+	 * Оригинальное слово посимвольно, занята часть до <var>origLength</var>
+	 */
+	private char[] origChars = new char[16];
+	private int origLength = 0;
+
+	/**
+	 * Регистр всех букв слова меняется посимвольно так же, как в String.toLowerCase и String.toUpperCase
+	 * ({@link #plainCase(char)}), поэтому падежам можно вернуть регистр без создания строк
+	 */
+	private boolean plainCase = false;
+
 	/**
 	 * Тип текущей записи (Фамилия/Имя/Отчество)
 	 * - <b>N</b> - ім’я
@@ -34,6 +50,12 @@ public class NCLNameCaseWord {
 	 */
 	private NamePart namePart = null;
 
+	/**
+	 * Отрыв лучшей оценки части ФИО от следующей при автоопределении.
+	 * Double.POSITIVE_INFINITY - часть ФИО задана явно или язык не оценивает отрыв
+	 */
+	private double namePartKoef = Double.POSITIVE_INFINITY;
+
 	/**
 	 * Вероятность того, что текущей слово относится к мужскому полу
 	 */
@@ -58,9 +80,9 @@ public class NCLNameCaseWord {
 	 * Содержит информацию о том, какие буквы в слове были большими, а какие мальникими:
 	 * - x - маленькая буква
 	 * - X - больная буква
-	 * @var array
+	 * Массив переиспользуется, маска занимает первые <var>origLength</var> символов
 	 */
-	private List<Character> letterMask = new ArrayList<>();
+	private char[] letterMask = new char[16];
 
 	/**
 	 * Содержит true, если все слово было в верхнем регистре и false, если не было
@@ -68,23 +90,200 @@ public class NCLNameCaseWord {
 	public boolean isUpperCase = false;
 
 	/**
-	 * Массив содержит все падежи слова, полученые после склонения текущего слова
+	 * Тип регистра слова. Для распространенных вариантов маска не нужна:
+	 * - LOWER - все буквы маленькие (иван)
+	 * - TITLE - первая буква большая, остальные маленькие (Іван)
+	 * - UPPER - все буквы большие (ІВАН)
+	 * - MIXED - любой другой вариант (МакДональд, Анна-Марія), используется маска <var>letterMask</var>
+	 */
+	enum LetterCase {
+		LOWER, TITLE, UPPER, MIXED
+	}
+
+	/**
+	 * Тип регистра текущего слова
+	 */
+	private LetterCase letterCase = LetterCase.MIXED;
+
+	/**
+	 * Массив содержит все падежи слова, полученые после склонения текущего слова.
+	 * null - падежи построены правилами на символах ({@link #setNameCases(char[], int[], int)}),
+	 * строки создаются из <var>formChars</var> при первом обращении
 	 * @var array
 	 */
-	private List<String> nameCases = new ArrayList<>();
+	private String[] nameCases = NO_CASES;
+	private static final String[] NO_CASES = new String[0];
+
+	/**
+	 * Падежи в нижнем регистре посимвольно: символы всех падежей подряд и конец каждого падежа
+	 */
+	private char[] formChars = new char[64];
+	private int[] formEnds = new int[8];
+	private int formCount = 0;
+
+	/**
+	 * Результат склонения текущего слова, создается при первом обращении
+	 */
+	private NCLDeclensionResult result = null;
+
+	/**
+	 * Падежи еще в нижнем регистре: регистр исходного слова возвращается при первом обращении к ним,
+	 * а для одного падежа ({@link #getNameCase(int)}) - только этому падежу
+	 */
+	private boolean maskPending = false;
 
 	/**
 	 * Номер правила, по которому было произведено склонение текущего слова
 	 */
 	private int rule = 0;
 
+	/**
+	 * Границы слова в строке с полным ФИО, из которой оно было получено. -1, если слово добавлено отдельно
+	 */
+	private int start = -1;
+	private int end = -1;
+
 	/**
 	 * Создание нового обьекта со словом
 	 */
 	public NCLNameCaseWord(String word) {
+		this.setWord(word);
+	}
+
+	/**
+	 * Переиспользует обьект для нового слова: состояние становится таким же, как у нового обьекта.
+	 * Нужен для пакетного склонения, где обьекты слов не создаются заново для каждой строки
+	 * @param word новое слово
+	 */
+	void reset(String word) {
+		this.setWord(word);
+		this.clear();
+	}
+
+	/**
+	 * Переиспользует обьект для слова из части буфера <var>text</var> от <var>start</var> до <var>end</var>.
+	 * Если регистр всех букв меняется посимвольно ({@link #plainCase(char)}), слово переводится в нижний регистр
+	 * прямо в массивы обьекта, и строки слова не создаются. Иначе слово копируется в строку, как в {@link #reset(String)}
+	 * @param text буфер с ФИО
+	 * @param start начало слова
+	 * @param end конец слова (не включительно)
+	 */
+	void reset(CharSequence text, int start, int end) {
+		int length = end - start;
+		for (int i = start; i < end; i++) {
+			if (!plainCase(text.charAt(i))) {
+				this.reset(text.subSequence(start, end).toString());
+				return;
+			}
+		}
+		this.origChars = grow(this.origChars, length);
+		this.chars = grow(this.chars, length);
+		for (int i = 0; i < length; i++) {
+			char letter = text.charAt(start + i);
+			this.origChars[i] = letter;
+			this.chars[i] = Character.toLowerCase(letter);
+		}
+		this.origLength = length;
+		this.length = length;
+		this.plainCase = true;
+		this.word = null;
+		this.wordOrig = null;
+		this.detectCase();
+		this.clear();
+	}
+
+	/**
+	 * Запоминает слово <var>word</var> и его нижний регистр
+	 */
+	private void setWord(String word) {
 		this.wordOrig = word;
-		this.letterMask = this.generateMask(word);
 		this.word = word.toLowerCase();
+		this.origLength = word.length();
+		this.origChars = grow(this.origChars, this.origLength);
+		word.getChars(0, this.origLength, this.origChars, 0);
+		this.length = this.word.length();
+		this.chars = grow(this.chars, this.length);
+		this.word.getChars(0, this.length, this.chars, 0);
+		this.plainCase = true;
+		for (int i = 0; i < this.origLength && this.plainCase; i++) {
+			this.plainCase = plainCase(this.origChars[i]);
+		}
+		this.detectCase();
+	}
+
+	/**
+	 * Определяет тип регистра исходного слова и, если нужно, строит маску
+	 */
+	private void detectCase() {
+		this.letterCase = this.detectLetterCase(this.origChars, this.origLength);
+		if (this.letterCase == LetterCase.MIXED) {
+			this.generateMask(this.origChars, this.origLength);
+		}
+	}
+
+	/**
+	 * Сбрасывает все, кроме самого слова, как у нового обьекта
+	 */
+	private void clear() {
+		this.namePart = null;
+		this.namePartKoef = Double.POSITIVE_INFINITY;
+		this.genderMan = 0;
+		this.genderWoman = 0;
+		this.genderSolved = null;
+		this.nameCases = NO_CASES;
+		this.formCount = 0;
+		this.result = null;
+		this.maskPending = false;
+		this.rule = 0;
+		this.start = -1;
+		this.end = -1;
+	}
+
+	/**
+	 * Символ, регистр которого посимвольно (Character.toLowerCase, Character.toUpperCase) меняется так же,
+	 * как в String.toLowerCase и String.toUpperCase в любой локали: кириллица, ASCII без i и I (турецкая локаль),
+	 * знаки General Punctuation (’) и апостроф ʼ
+	 * @param letter символ
+	 * @return true, если регистр символа можно менять посимвольно
+	 */
+	static boolean plainCase(char letter) {
+		return letter >= '\u0400' && letter <= '\u04ff'
+				|| letter < 0x80 && letter != 'i' && letter != 'I'
+				|| letter >= '\u2000' && letter <= '\u206f'
+				|| letter == '\u02bc';
+	}
+
+	/**
+	 * Возвращает массив не короче <var>length</var>: <var>array</var> или новый, если он короче
+	 */
+	private static char[] grow(char[] array, int length) {
+		return array.length >= length ? array : new char[Math.max(length, array.length * 2)];
+	}
+
+	/**
+	 * Определяет тип регистра слова за один проход
+	 * @param word слово
+	 * @param length длина слова
+	 * @return тип регистра
+	 */
+	private LetterCase detectLetterCase(char[] word, int length) {
+		int lower = 0;
+		for (int i = 0; i < length; i++) {
+			if (Character.isLowerCase(word[i])) {
+				lower++;
+			}
+		}
+		this.isUpperCase = lower == 0;
+		if (this.isUpperCase) {
+			return LetterCase.UPPER;
+		}
+		if (lower == length) {
+			return LetterCase.LOWER;
+		}
+		if (lower == length - 1 && !Character.isLowerCase(word[0])) {
+			return LetterCase.TITLE;
+		}
+		return LetterCase.MIXED;
 	}
 
 	/**
@@ -92,18 +291,15 @@ public class NCLNameCaseWord {
 	 * - x - маленькая буква
 	 * - X - больная буква
 	 */
-	private List<Character> generateMask(String word) {
-		List<Character> mask = new ArrayList<>();
-		this.isUpperCase = true;
-		for (char letter: word.toCharArray()) {
-			if (Character.isLowerCase(letter)) {
-				mask.add('x');
-				this.isUpperCase = false;
+	private void generateMask(char[] word, int length) {
+		this.letterMask = grow(this.letterMask, length);
+		for (int i = 0; i < length; i++) {
+			if (Character.isLowerCase(word[i])) {
+				this.letterMask[i] = 'x';
 			} else {
-				mask.add('X');
+				this.letterMask[i] = 'X';
 			}
 		}
-		return mask;
 	}
 
 	/**
@@ -112,54 +308,145 @@ public class NCLNameCaseWord {
 	 * - X - больная буква
 	 */
 	private void returnMask() {
-		if (this.isUpperCase) {
-			this.nameCases = this.nameCases.stream().map(String::toUpperCase).collect(toList());
-		} else {
-			List<Character> splitedMask = this.letterMask;
-			int maskLength = splitedMask.size();
-			for (int index = 0; index < this.nameCases.size(); index++) {
-				String nameCase = this.nameCases.get(index);
-				int caseLength = nameCase.length();
-				// origin code: $max = min(array($caseLength, $maskLength));
-				int max = Math.min(caseLength, maskLength);
-				StringBuilder newNameCase = new StringBuilder();
-				for (int letterIndex = 0; letterIndex < max; letterIndex++) {
-					char letter = nameCase.charAt(letterIndex);
-					if (splitedMask.get(letterIndex).equals('X')) {
-						letter = Character.toUpperCase(letter);
-					}
-					newNameCase.append(letter);
+		this.maskPending = false;
+		if (this.letterCase == LetterCase.LOWER) {
+			//Падежи уже в нижнем регистре
+			return;
+		}
+		for (int index = 0; index < this.nameCases.length; index++) {
+			this.nameCases[index] = this.returnMask(this.nameCases[index]);
+		}
+	}
+
+	/**
+	 * Возвращает одному падежу регистр исходного слова
+	 * @param nameCase падеж в нижнем регистре
+	 * @return падеж в регистре исходного слова
+	 */
+	private String returnMask(String nameCase) {
+		switch (this.letterCase) {
+			case LOWER:
+				return nameCase;
+			case UPPER:
+				return nameCase.toUpperCase();
+			case TITLE:
+				if (nameCase.isEmpty()) {
+					return nameCase;
 				}
-				newNameCase.append(substring(nameCase, max, caseLength - maskLength));
-				this.nameCases.set(index, newNameCase.toString());
+				char[] letters = nameCase.toCharArray();
+				letters[0] = Character.toUpperCase(letters[0]);
+				return new String(letters);
+			default:
+				return this.returnLetterMask(nameCase);
+		}
+	}
+
+	/**
+	 * Возвращает падежу начальную маску посимвольно. Нужно только для слов со смешанным регистром.
+	 */
+	private String returnLetterMask(String nameCase) {
+		char[] splitedMask = this.letterMask;
+		int maskLength = this.origLength;
+		int caseLength = nameCase.length();
+		// origin code: $max = min(array($caseLength, $maskLength));
+		int max = Math.min(caseLength, maskLength);
+		StringBuilder newNameCase = new StringBuilder(caseLength);
+		for (int letterIndex = 0; letterIndex < max; letterIndex++) {
+			char letter = nameCase.charAt(letterIndex);
+			if (splitedMask[letterIndex] == 'X') {
+				letter = Character.toUpperCase(letter);
 			}
+			newNameCase.append(letter);
 		}
+		//Падеж может быть короче исходного слова (Кравець - Кравця), тогда хвоста нет
+		newNameCase.append(nameCase, max, caseLength);
+		return newNameCase.toString();
 	}
 
 	/**
 	 * Сохраняет результат склонения текущего слова
 	 */
 	public void setNameCases(List<String> nameCases, Boolean isReturnMask) {
-		this.nameCases = nameCases;
-		if (isReturnMask) {
-			this.returnMask();
-		}
+		this.setNameCases(nameCases.toArray(new String[0]), isReturnMask);
 	}
 
 	/**
 	 * Сохраняет результат склонения текущего слова
 	 */
 	public void setNameCases(List<String> nameCases) {
+		this.setNameCases(nameCases.toArray(new String[0]), true);
+	}
+
+	/**
+	 * Сохраняет результат склонения текущего слова. Массив <var>nameCases</var> переходит во владение слова
+	 * и не должен меняться после вызова.
+	 * @param nameCases все падежи слова в нижнем регистре
+	 * @param isReturnMask нужно ли вернуть падежам регистр исходного слова
+	 */
+	public void setNameCases(String[] nameCases, boolean isReturnMask) {
 		this.nameCases = nameCases;
-		this.returnMask();
+		this.formCount = 0;
+		this.result = null;
+		this.maskPending = isReturnMask;
+	}
+
+	/**
+	 * Сохраняет падежи, построенные правилами на символах: символы копируются в массивы слова,
+	 * строки падежей создаются только при обращении к ним
+	 * @param chars символы всех падежей подряд в нижнем регистре
+	 * @param ends конец каждого падежа в <var>chars</var>
+	 * @param count количество падежей
+	 */
+	void setNameCases(char[] chars, int[] ends, int count) {
+		int size = count == 0 ? 0 : ends[count - 1];
+		this.formChars = grow(this.formChars, size);
+		System.arraycopy(chars, 0, this.formChars, 0, size);
+		if (this.formEnds.length < count) {
+			this.formEnds = new int[count];
+		}
+		System.arraycopy(ends, 0, this.formEnds, 0, count);
+		this.formCount = count;
+		this.nameCases = null;
+		this.result = null;
+		this.maskPending = true;
 	}
 
 	/**
-	 * Возвращает массив со всеми падежами текущего слова
+	 * Возвращает падежи строками, создавая их из символов при первом обращении
+	 */
+	private String[] nameCases() {
+		if (this.nameCases == null) {
+			String[] cases = new String[this.formCount];
+			for (int i = 0; i < cases.length; i++) {
+				int from = i == 0 ? 0 : this.formEnds[i - 1];
+				cases[i] = new String(this.formChars, from, this.formEnds[i] - from);
+			}
+			this.nameCases = cases;
+		}
+		return this.nameCases;
+	}
+
+	/**
+	 * Возвращает все падежи текущего слова неизменяемым списком
 	 * @return array массив со всеми падежами
 	 */
 	public List<String> getNameCases() {
-		return this.nameCases;
+		return this.getResult().toList();
+	}
+
+	/**
+	 * Возвращает результат склонения текущего слова: падежи, номер правила и пол
+	 * @return NCLDeclensionResult результат склонения
+	 */
+	public NCLDeclensionResult getResult() {
+		if (this.result == null) {
+			this.nameCases();
+			if (this.maskPending) {
+				this.returnMask();
+			}
+			this.result = new NCLDeclensionResult(this.nameCases, this.rule, this.genderSolved);
+		}
+		return this.result;
 	}
 
 	/**
@@ -168,13 +455,70 @@ public class NCLNameCaseWord {
 	 * @return string строка с нужным падежом текущего слова
 	 */
 	public String getNameCase(int number) {
-		if (this.nameCases.size() > number) {
-			return this.nameCases.get(number);
+		String[] cases = this.nameCases();
+		if (cases.length > number) {
+			return this.maskPending ? this.returnMask(cases[number]) : cases[number];
 		} else {
 			return null;
 		}
 	}
 
+	/**
+	 * Возвращает длину падежа <var>number</var> в регистре исходного слова
+	 * @param number нужный падеж
+	 * @return int длина падежа или -1, если такого падежа нет
+	 */
+	public int getNameCaseLength(int number) {
+		if (this.nameCases == null && this.plainCase) {
+			return number < this.formCount ? this.formEnds[number] - this.formStart(number) : -1;
+		}
+		String nameCase = this.getNameCase(number);
+		return nameCase == null ? -1 : nameCase.length();
+	}
+
+	/**
+	 * Копирует падеж <var>number</var> в регистре исходного слова в массив <var>dst</var>, как String.getChars.
+	 * Если падежи построены правилами на символах, строка падежа не создается
+	 * @param number нужный падеж, должен существовать ({@link #getNameCaseLength(int)})
+	 * @param dst массив, куда нужно скопировать падеж
+	 * @param dstBegin позиция в <var>dst</var>
+	 */
+	public void getNameCaseChars(int number, char[] dst, int dstBegin) {
+		if (this.nameCases == null && this.plainCase) {
+			int from = this.formStart(number);
+			int to = this.formEnds[number];
+			for (int i = from; i < to; i++) {
+				dst[dstBegin + i - from] = this.returnMask(this.formChars[i], i - from);
+			}
+			return;
+		}
+		String nameCase = this.getNameCase(number);
+		nameCase.getChars(0, nameCase.length(), dst, dstBegin);
+	}
+
+	private int formStart(int number) {
+		return number == 0 ? 0 : this.formEnds[number - 1];
+	}
+
+	/**
+	 * Возвращает регистр исходного слова одной букве падежа, см. {@link #returnMask(String)}
+	 * @param letter буква в нижнем регистре
+	 * @param position позиция буквы в падеже
+	 * @return буква в регистре исходного слова
+	 */
+	private char returnMask(char letter, int position) {
+		switch (this.letterCase) {
+			case UPPER:
+				return Character.toUpperCase(letter);
+			case TITLE:
+				return position == 0 ? Character.toUpperCase(letter) : letter;
+			case MIXED:
+				return position < this.origLength && this.letterMask[position] == 'X' ? Character.toUpperCase(letter) : letter;
+			default:
+				return letter;
+		}
+	}
+
 	/**
 	 * Расчитывает и возвращает пол текущего слова
 	 * @return int пол текущего слова
@@ -209,10 +553,33 @@ public class NCLNameCaseWord {
 	 */
 	public void setTrueGender(Gender gender) {
 		this.genderSolved = gender;
+		this.result = null;
 	}
 
 	/**
-	 * Возвращает массив вероятности того, что даное слово является мужчиной или женщиной
+	 * Возвращает вероятность того, что даное слово является мужчиной
+	 */
+	public double getGenderMan() {
+		return this.genderMan;
+	}
+
+	/**
+	 * Возвращает вероятность того, что даное слово является женщиной
+	 */
+	public double getGenderWoman() {
+		return this.genderWoman;
+	}
+
+	/**
+	 * Возвращает уверенность в определении пола слова: разницу между вероятностями мужского и женского пола
+	 */
+	public double getGenderKoef() {
+		return Math.abs(this.genderMan - this.genderWoman);
+	}
+
+	/**
+	 * Возвращает массив вероятности того, что даное слово является мужчиной или женщиной.
+	 * Каждый вызов создает новый обьект, в библиотеке используются {@link #getGenderMan()} и {@link #getGenderWoman()}
 	 * @return array массив вероятностей
 	 */
 	public Map<Gender, Double> getGender() {
@@ -246,19 +613,55 @@ public class NCLNameCaseWord {
 		return this.namePart;
 	}
 
+	/**
+	 * Устанавливает отрыв лучшей оценки части ФИО от следующей
+	 * @param koef отрыв
+	 */
+	public void setNamePartKoef(double koef) {
+		this.namePartKoef = koef;
+	}
+
+	/**
+	 * Возвращает отрыв лучшей оценки части ФИО от следующей, Double.POSITIVE_INFINITY - если не оценивался
+	 */
+	public double getNamePartKoef() {
+		return this.namePartKoef;
+	}
+
 	/**
 	 * Возвращает текущее слово.
 	 * @return string текущее слово
 	 */
 	public String getWord() {
+		if (this.word == null) {
+			this.word = new String(this.chars, 0, this.length);
+		}
 		return this.word;
 	}
 
+	/**
+	 * Возвращает буфер со словом в нижнем регистре, занята часть до {@link #getLength()}.
+	 * Массив принадлежит слову и меняется при переиспользовании обьекта
+	 */
+	char[] getChars() {
+		return this.chars;
+	}
+
+	/**
+	 * Возвращает длину слова в нижнем регистре
+	 */
+	int getLength() {
+		return this.length;
+	}
+
 	/**
 	 * Возвращает текущее оригинальное слово.
 	 * @return string текущее слово
 	 */
 	public String getWordOrig() {
+		if (this.wordOrig == null) {
+			this.wordOrig = new String(this.origChars, 0, this.origLength);
+		}
 		return this.wordOrig;
 	}
 
@@ -271,11 +674,48 @@ public class NCLNameCaseWord {
 		return this.genderSolved != null;
 	}
 
+	/**
+	 * Запоминает границы слова в строке с полным ФИО
+	 * @param start позиция первой буквы слова
+	 * @param end позиция после последней буквы слова
+	 */
+	public void setPosition(int start, int end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Возвращает позицию первой буквы слова в строке с полным ФИО или -1, если слово добавлено отдельно
+	 * @return int позиция начала слова
+	 */
+	public int getStart() {
+		return this.start;
+	}
+
+	/**
+	 * Возвращает позицию после последней буквы слова в строке с полным ФИО или -1, если слово добавлено отдельно.
+	 * Вместе с {@link #getStart()} позволяет заменить слово в исходной строке нужным падежом.
+	 * @return int позиция конца слова
+	 */
+	public int getEnd() {
+		return this.end;
+	}
+
 	/**
 	 * Устанавливает номер правила по которому склонялось текущее слово.
 	 * @param ruleId номер правила
 	 */
 	public void setRule(int ruleId) {
 		this.rule = ruleId;
+		this.result = null;
+	}
+
+	/**
+	 * Возвращает номер правила, по которому склонялось текущее слово.
+	 * -1 - ни одно правило не подошло, 0 - слово еще не склонялось
+	 * @return int номер правила
+	 */
+	public int getRule() {
+		return this.rule;
 	}
 }
@@ -0,0 +1,188 @@
+package namecaselib;
+
+import namecaselib.NCL.NamePart;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NCLNameLayout - раскладка колонки ФИО: какая часть ФИО стоит на каждой позиции (например S N F).
+ *
+ * Когда все строки колонки записаны в одном, заранее неизвестном порядке, раскладку можно определить
+ * по выборке строк ({@link #infer(NCLNameCaseCore, CharSequence, int[], int[], int, int)}) и затем
+ * склонять все строки по ней ({@link NCLNameCaseCore#declineByLayout(CharSequence, int, int, NamePart[])}),
+ * не определяя часть ФИО каждого слова. Решение по большинству строк заодно исправляет ошибки
+ * определения на отдельных строках, например на фамилиях, похожих на имена.
+ *
+ * Обьект неизменяемый.
+ */
+public final class NCLNameLayout {
+
+	private final NamePart[] parts;
+	private final double confidence;
+	private final int sampled;
+
+	/**
+	 * Раскладка, известная заранее
+	 * @param parts часть ФИО на каждой позиции
+	 */
+	public NCLNameLayout(NamePart... parts) {
+		this(parts.clone(), 1, 0);
+	}
+
+	private NCLNameLayout(NamePart[] parts, double confidence, int sampled) {
+		this.parts = parts;
+		this.confidence = confidence;
+		this.sampled = sampled;
+	}
+
+	/**
+	 * Определяет раскладку по выборке строк колонки.
+	 *
+	 * Из <var>count</var> строк равномерно берется до <var>sampleSize</var> строк, для каждой определяются
+	 * части ФИО слов ({@link NCLNameCaseCore#detect(CharSequence, NCLDetection)}). Берется самое частое
+	 * количество слов, и позициям назначаются разные части ФИО так, чтобы совпадений с определением
+	 * по словам было больше всего. Уверенность - доля совпавших слов среди всех слов выборки: строки
+	 * с другим количеством слов считаются несовпавшими.
+	 * @param nameCase обьект склонения нужного языка
+	 * @param names буфер с ФИО
+	 * @param offsets начало каждого ФИО в <var>names</var>
+	 * @param lengths длина каждого ФИО
+	 * @param count количество ФИО
+	 * @param sampleSize сколько строк проверить
+	 * @return NCLNameLayout или null, если в выборке нет ни одной строки, которую удалось разобрать
+	 */
+	public static NCLNameLayout infer(NCLNameCaseCore nameCase, CharSequence names, int[] offsets, int[] lengths, int count, int sampleSize) {
+		int partCount = NamePart.values().length;
+		int step = Math.max(1, count / Math.max(1, sampleSize));
+		NCLDetection detection = new NCLDetection();
+		//Количество слов -> голоса [позиция][часть ФИО]
+		Map<Integer, int[][]> votes = new HashMap<>();
+		Map<Integer, Integer> rows = new HashMap<>();
+		int sampled = 0;
+		int words = 0;
+		for (int row = 0; row < count && sampled < sampleSize; row += step) {
+			try {
+				nameCase.detect(names.subSequence(offsets[row], offsets[row] + lengths[row]), detection);
+			} catch (RuntimeException e) {
+				//Строки, на которых падает определение, в выборку не попадают
+				continue;
+			}
+			int size = detection.size();
+			if (size == 0) {
+				continue;
+			}
+			int[][] sizeVotes = votes.computeIfAbsent(size, key -> new int[size][partCount]);
+			for (int i = 0; i < size; i++) {
+				sizeVotes[i][detection.getNamePart(i).ordinal()]++;
+			}
+			rows.merge(size, 1, Integer::sum);
+			sampled++;
+			words += size;
+		}
+		if (sampled == 0) {
+			return null;
+		}
+
+		int size = 0;
+		for (Map.Entry<Integer, Integer> entry : rows.entrySet()) {
+			if (size == 0 || entry.getValue() > rows.get(size)) {
+				size = entry.getKey();
+			}
+		}
+		int[][] sizeVotes = votes.get(size);
+		int[] best = new int[size];
+		int matched;
+		if (size <= partCount) {
+			matched = assign(sizeVotes, 0, new int[size], new boolean[partCount], best, -1);
+		} else {
+			//Слов больше, чем частей ФИО: части повторяются, каждой позиции - самая частая
+			matched = 0;
+			for (int i = 0; i < size; i++) {
+				for (int part = 0; part < partCount; part++) {
+					if (sizeVotes[i][part] > sizeVotes[i][best[i]]) {
+						best[i] = part;
+					}
+				}
+				matched += sizeVotes[i][best[i]];
+			}
+		}
+
+		NamePart[] parts = new NamePart[size];
+		for (int i = 0; i < size; i++) {
+			parts[i] = NamePart.values()[best[i]];
+		}
+		return new NCLNameLayout(parts, (double) matched / words, sampled);
+	}
+
+	/**
+	 * Перебирает назначения разных частей ФИО позициям начиная с <var>position</var>
+	 * @return наибольшее количество совпадений, лучшее назначение записывается в <var>best</var>
+	 */
+	private static int assign(int[][] votes, int position, int[] current, boolean[] used, int[] best, int bestScore) {
+		if (position == current.length) {
+			int score = 0;
+			for (int i = 0; i < current.length; i++) {
+				score += votes[i][current[i]];
+			}
+			if (score > bestScore) {
+				System.arraycopy(current, 0, best, 0, current.length);
+				return score;
+			}
+			return bestScore;
+		}
+		for (int part = 0; part < used.length; part++) {
+			if (!used[part]) {
+				used[part] = true;
+				current[position] = part;
+				bestScore = assign(votes, position + 1, current, used, best, bestScore);
+				used[part] = false;
+			}
+		}
+		return bestScore;
+	}
+
+	/**
+	 * Возвращает часть ФИО на каждой позиции
+	 */
+	public NamePart[] getParts() {
+		return this.parts.clone();
+	}
+
+	/**
+	 * Возвращает количество слов в раскладке
+	 */
+	public int size() {
+		return this.parts.length;
+	}
+
+	/**
+	 * Возвращает уверенность от 0 до 1. У раскладки, заданной заранее, - 1
+	 */
+	public double getConfidence() {
+		return this.confidence;
+	}
+
+	/**
+	 * Возвращает количество строк выборки, по которым определена раскладка. У раскладки, заданной заранее, - 0
+	 */
+	public int getSampled() {
+		return this.sampled;
+	}
+
+	/**
+	 * Часть ФИО на позиции без копирования массива, для склонения
+	 */
+	NamePart[] parts() {
+		return this.parts;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder format = new StringBuilder();
+		for (NamePart part : this.parts) {
+			format.append(part).append(' ');
+		}
+		return format.toString();
+	}
+}
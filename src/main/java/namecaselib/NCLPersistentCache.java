@@ -0,0 +1,452 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * NCLPersistentCache - кеш результатов склонения в файле, который переживает перезапуск.
+ *
+ * Файл - журнал, в который записи только дописываются. Файл отображается в память.
+ * <pre>
+ * заголовок (HEADER_SIZE байт): MAGIC, FORMAT, версия библиотеки, версия языкового файла, класс языка
+ * запись: int длина данных, int CRC32 данных, данные
+ * данные: часть ФИО, пол, слово, номер правила, количество падежей, падежи
+ * </pre>
+ * При открытии журнал читается с начала, и для всех целых записей строится индекс (открытая
+ * адресация: хеш ключа и смещение записи). Первая запись с неверной длиной или контрольной суммой
+ * считается оборванной при сбое: она и все после нее до конца файла стираются. Если заголовок
+ * не совпадает с версией библиотеки или языка, весь журнал считается устаревшим и очищается.
+ *
+ * Длина записи пишется последней, поэтому запись без длины при чтении просто не видна.
+ * На диск данные сбрасывает операционная система, {@link #sync()} делает это сразу.
+ *
+ * Поиск сравнивает ключ и читает падежи прямо в отображенной памяти, без промежуточных массивов
+ * и потоков. Методы синхронизированы, один обьект можно использовать из нескольких потоков
+ * и обьектов склонения одного языка. Один файл может открыть только один процесс.
+ */
+public class NCLPersistentCache implements NCLDeclensionCache, Closeable {
+
+	private static final int MAGIC = 0x4E434C43;
+	private static final int FORMAT = 1;
+	private static final int HEADER_SIZE = 256;
+	private static final int RECORD_HEADER = 8;
+
+	/**
+	 * Начальный размер файла и шаг его роста
+	 */
+	private static final int INITIAL_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Позиция, с которой пишется следующая запись
+	 */
+	private int position = HEADER_SIZE;
+
+	/**
+	 * Индекс: хеш ключа и смещение записи + 1 (0 - пустая ячейка)
+	 */
+	private int[] hashes = new int[1024];
+	private int[] offsets = new int[1024];
+	private int size = 0;
+
+	/**
+	 * Сколько записей было отброшено при открытии: оборванные записи или весь устаревший журнал
+	 */
+	private int discarded = 0;
+
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Буфер для чтения падежей из записи
+	 */
+	private char[] chars = new char[64];
+
+	/**
+	 * Позиция после строки, прочитанной {@link #readString(int)}
+	 */
+	private int next;
+
+	private NCLPersistentCache(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Открывает или создает файл кеша для языка <var>nameCase</var>
+	 * @param file путь к файлу
+	 * @param nameCase обьект склонения, по которому определяются версия библиотеки и языка
+	 * @return NCLPersistentCache
+	 * @throws IOException если файл нельзя открыть или отобразить в память
+	 */
+	public static NCLPersistentCache open(Path file, NCLNameCaseCore nameCase) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		NCLPersistentCache cache = new NCLPersistentCache(channel);
+		try {
+			cache.load(header(nameCase));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return cache;
+	}
+
+	/**
+	 * Заголовок файла для текущей версии библиотеки и языка
+	 */
+	private static byte[] header(NCLNameCaseCore nameCase) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT);
+		out.writeUTF(nameCase.version());
+		out.writeUTF(nameCase.languageVersion());
+		out.writeUTF(nameCase.getClass().getName());
+		out.writeByte(nameCase.getCaseCount());
+		if (bytes.size() > HEADER_SIZE) {
+			throw new IOException("Заголовок кеша длиннее " + HEADER_SIZE + " байт");
+		}
+		byte[] header = new byte[HEADER_SIZE];
+		System.arraycopy(bytes.toByteArray(), 0, header, 0, bytes.size());
+		return header;
+	}
+
+	private void load(byte[] header) throws IOException {
+		long fileSize = this.channel.size();
+		this.map(Math.max(fileSize, INITIAL_SIZE));
+
+		boolean sameHeader = fileSize >= HEADER_SIZE;
+		for (int i = 0; i < HEADER_SIZE && sameHeader; i++) {
+			sameHeader = this.buffer.get(i) == header[i];
+		}
+		if (!sameHeader) {
+			if (fileSize > HEADER_SIZE) {
+				this.discarded = this.countRecords();
+			}
+			this.zero(0, (int) Math.min(this.buffer.capacity(), Math.max(fileSize, HEADER_SIZE)));
+			for (int i = 0; i < HEADER_SIZE; i++) {
+				this.buffer.put(i, header[i]);
+			}
+			this.position = HEADER_SIZE;
+			return;
+		}
+
+		int position = HEADER_SIZE;
+		while (true) {
+			int length = this.validRecord(position);
+			if (length < 0) {
+				break;
+			}
+			this.index(this.keyHash(position), position);
+			position += RECORD_HEADER + length;
+		}
+		this.position = position;
+
+		//Все, что после последней целой записи - оборванная запись и, если сбой был в середине файла,
+		//старые записи за ней. Стирается весь хвост, иначе новые записи лягут поверх старых частично
+		if (!this.zeroFrom(position)) {
+			this.discarded++;
+			this.zero(position, this.buffer.capacity());
+		}
+	}
+
+	/**
+	 * Проверяет, что с позиции <var>from</var> до конца файла одни нули
+	 */
+	private boolean zeroFrom(int from) {
+		int capacity = this.buffer.capacity();
+		int i = from;
+		for (; i + 8 <= capacity; i += 8) {
+			if (this.buffer.getLong(i) != 0) {
+				return false;
+			}
+		}
+		for (; i < capacity; i++) {
+			if (this.buffer.get(i) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Количество целых записей в файле, нужно только для отчета об отброшенных записях
+	 */
+	private int countRecords() {
+		int count = 0;
+		int position = HEADER_SIZE;
+		int length;
+		while ((length = this.validRecord(position)) >= 0) {
+			count++;
+			position += RECORD_HEADER + length;
+		}
+		return count;
+	}
+
+	/**
+	 * Проверяет запись на позиции <var>position</var>
+	 * @return длина данных записи или -1, если записи нет или она повреждена
+	 */
+	private int validRecord(int position) {
+		if (position + RECORD_HEADER > this.buffer.capacity()) {
+			return -1;
+		}
+		int length = this.buffer.getInt(position);
+		if (length <= 0 || (long) position + RECORD_HEADER + length > this.buffer.capacity()) {
+			return -1;
+		}
+		this.crc.reset();
+		for (int i = 0; i < length; i++) {
+			this.crc.update(this.buffer.get(position + RECORD_HEADER + i));
+		}
+		if ((int) this.crc.getValue() != this.buffer.getInt(position + 4)) {
+			return -1;
+		}
+		return length;
+	}
+
+	private void map(long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Кеш больше 2 ГБ не поддерживается");
+		}
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	private void zero(int from, int to) {
+		byte[] zeros = new byte[Math.min(to - from, 1 << 16)];
+		ByteBuffer target = this.buffer.duplicate();
+		target.position(from);
+		while (target.position() < to) {
+			target.put(zeros, 0, Math.min(zeros.length, to - target.position()));
+		}
+	}
+
+	private static int hash(int wordHash, int namePart, int gender) {
+		return (wordHash * 31 + namePart) * 31 + gender;
+	}
+
+	/**
+	 * Хеш ключа записи, слово разбирается прямо в отображенной памяти
+	 */
+	private int keyHash(int position) {
+		int data = position + RECORD_HEADER;
+		int offset = data + 2;
+		int end = offset + 2 + (this.buffer.getShort(offset) & 0xFFFF);
+		offset += 2;
+		int wordHash = 0;
+		while (offset < end) {
+			wordHash = 31 * wordHash + this.charAt(offset);
+			offset += charLength(this.buffer.get(offset));
+		}
+		return hash(wordHash, this.buffer.get(data), this.buffer.get(data + 1));
+	}
+
+	/**
+	 * Сравнивает ключ записи с искомым прямо в отображенной памяти
+	 */
+	private boolean sameKey(int position, String word, NamePart namePart, Gender gender) {
+		int data = position + RECORD_HEADER;
+		if (this.buffer.get(data) != namePart.ordinal() || this.buffer.get(data + 1) != gender.ordinal()) {
+			return false;
+		}
+		int offset = data + 2;
+		int end = offset + 2 + (this.buffer.getShort(offset) & 0xFFFF);
+		offset += 2;
+		int length = word.length();
+		int i = 0;
+		while (offset < end) {
+			if (i == length || this.charAt(offset) != word.charAt(i++)) {
+				return false;
+			}
+			offset += charLength(this.buffer.get(offset));
+		}
+		return i == length;
+	}
+
+	/**
+	 * Символ в модифицированном UTF-8 (DataOutput.writeUTF) на позиции <var>offset</var>
+	 */
+	private char charAt(int offset) {
+		int first = this.buffer.get(offset) & 0xFF;
+		if (first < 0x80) {
+			return (char) first;
+		}
+		if ((first & 0xE0) == 0xC0) {
+			return (char) (((first & 0x1F) << 6) | (this.buffer.get(offset + 1) & 0x3F));
+		}
+		return (char) (((first & 0x0F) << 12) | ((this.buffer.get(offset + 1) & 0x3F) << 6) | (this.buffer.get(offset + 2) & 0x3F));
+	}
+
+	private static int charLength(byte first) {
+		if ((first & 0x80) == 0) {
+			return 1;
+		}
+		return (first & 0xE0) == 0xC0 ? 2 : 3;
+	}
+
+	/**
+	 * Читает строку DataOutput.writeUTF на позиции <var>offset</var>
+	 * @return строка, а позиция после нее - в {@link #next}
+	 */
+	private String readString(int offset) {
+		int end = offset + 2 + (this.buffer.getShort(offset) & 0xFFFF);
+		offset += 2;
+		if (this.chars.length < end - offset) {
+			this.chars = new char[end - offset];
+		}
+		int length = 0;
+		while (offset < end) {
+			this.chars[length++] = this.charAt(offset);
+			offset += charLength(this.buffer.get(offset));
+		}
+		this.next = end;
+		return new String(this.chars, 0, length);
+	}
+
+	/**
+	 * Добавляет запись в индекс
+	 */
+	private void index(int hash, int position) {
+		if ((this.size + 1) * 2 > this.hashes.length) {
+			int[] oldHashes = this.hashes;
+			int[] oldOffsets = this.offsets;
+			this.hashes = new int[oldHashes.length * 2];
+			this.offsets = new int[oldOffsets.length * 2];
+			for (int i = 0; i < oldOffsets.length; i++) {
+				if (oldOffsets[i] != 0) {
+					this.insert(oldHashes[i], oldOffsets[i]);
+				}
+			}
+		}
+		this.insert(hash, position + 1);
+		this.size++;
+	}
+
+	private void insert(int hash, int offset) {
+		int mask = this.hashes.length - 1;
+		int slot = mix(hash) & mask;
+		while (this.offsets[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		this.hashes[slot] = hash;
+		this.offsets[slot] = offset;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	@Override
+	public synchronized NCLDeclensionResult get(String word, NamePart namePart, Gender gender) {
+		int position = this.find(word, namePart, gender);
+		if (position < 0) {
+			return null;
+		}
+		//Часть ФИО, пол и слово уже сверены, дальше номер правила и падежи
+		int offset = position + RECORD_HEADER + 2;
+		offset += 2 + (this.buffer.getShort(offset) & 0xFFFF);
+		int rule = this.buffer.getInt(offset);
+		String[] forms = new String[this.buffer.get(offset + 4)];
+		this.next = offset + 5;
+		for (int i = 0; i < forms.length; i++) {
+			forms[i] = this.readString(this.next);
+		}
+		return new NCLDeclensionResult(forms, rule, gender);
+	}
+
+	/**
+	 * Ищет запись по ключу
+	 * @return позиция записи или -1
+	 */
+	private int find(String word, NamePart namePart, Gender gender) {
+		int hash = hash(word.hashCode(), namePart.ordinal(), gender.ordinal());
+		int mask = this.hashes.length - 1;
+		int slot = mix(hash) & mask;
+		while (this.offsets[slot] != 0) {
+			if (this.hashes[slot] == hash) {
+				int position = this.offsets[slot] - 1;
+				if (this.sameKey(position, word, namePart, gender)) {
+					return position;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	@Override
+	public synchronized void put(String word, NamePart namePart, Gender gender, NCLDeclensionResult result) {
+		try {
+			if (this.find(word, namePart, gender) >= 0) {
+				return;
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(namePart.ordinal());
+			out.writeByte(gender.ordinal());
+			out.writeUTF(word);
+			out.writeInt(result.getRule());
+			out.writeByte(result.size());
+			for (int i = 0; i < result.size(); i++) {
+				out.writeUTF(result.get(i));
+			}
+			byte[] data = bytes.toByteArray();
+
+			//Место под запись и под пустую длину после нее
+			long needed = (long) this.position + RECORD_HEADER + data.length + 4;
+			if (needed > this.buffer.capacity()) {
+				this.map(Math.max(needed, (long) this.buffer.capacity() * 2));
+			}
+			this.crc.reset();
+			this.crc.update(data, 0, data.length);
+			for (int i = 0; i < data.length; i++) {
+				this.buffer.put(this.position + RECORD_HEADER + i, data[i]);
+			}
+			this.buffer.putInt(this.position + 4, (int) this.crc.getValue());
+			this.buffer.putInt(this.position, data.length);
+
+			this.index(hash(word.hashCode(), namePart.ordinal(), gender.ordinal()), this.position);
+			this.position += RECORD_HEADER + data.length;
+		} catch (IOException e) {
+			//Кеш необязателен: если записать не удалось, слово просто будет склоняться заново
+		}
+	}
+
+	/**
+	 * Возвращает количество записей в кеше
+	 */
+	public synchronized int size() {
+		return this.size;
+	}
+
+	/**
+	 * Возвращает, сколько записей было отброшено при открытии файла
+	 */
+	public int getDiscarded() {
+		return this.discarded;
+	}
+
+	/**
+	 * Сбрасывает изменения на диск
+	 */
+	public synchronized void sync() {
+		this.buffer.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.buffer.force();
+		this.channel.close();
+	}
+}
@@ -0,0 +1,406 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * NCLSharedCache - кеш результатов склонения в общей памяти, которым одновременно пользуются
+ * несколько процессов JVM на одной машине.
+ *
+ * Файл отображается в память и содержит таблицу фиксированного размера с открытой адресацией:
+ * <pre>
+ * заголовок (HEADER_SIZE байт): MAGIC, FORMAT, размер ячейки, количество ячеек, хеш версии, готовность
+ * ячейка: int состояние, int хеш ключа, int хеш версии, int длина данных, данные
+ * данные: часть ФИО, пол, слово, номер правила, количество падежей, падежи
+ * </pre>
+ * Состояние ячейки: EMPTY - свободна, WRITING - занята писателем, READY - опубликована.
+ * Писатель занимает свободную ячейку атомарной операцией CAS прямо в отображенной памяти,
+ * записывает данные и только после этого публикует ячейку. Опубликованные ячейки не меняются,
+ * поэтому читатели не берут блокировок. Поиск проверяет не больше PROBE_LIMIT ячеек подряд:
+ * если все заняты, результат просто не кешируется.
+ *
+ * Хеш версии считается по версии библиотеки, languageVersion(), классу языка и количеству падежей.
+ * При открытии файл с другой версией очищается под блокировкой файла, а процессы со старой
+ * версией, которые его еще используют, видят изменение заголовка и перестают пользоваться таблицей.
+ * Писатель проверяет версию после CAS и после публикации и освобождает ячейку, если файл успели
+ * очистить под другую версию. Кроме того, каждая ячейка хранит хеш версии писателя, и читатель
+ * принимает только ячейки своей версии: результат старой версии, опубликованный в уже очищенный
+ * файл, не читается даже в короткое окно до того, как писатель его уберет.
+ * Ячейка, писатель которой упал между CAS и публикацией, остается занятой до очистки файла.
+ *
+ * CAS и volatile-доступ к отображенной памяти делаются через sun.misc.Unsafe, который ищется
+ * при загрузке класса. Если его нет, {@link #open(Path, NCLNameCaseCore, int)} бросает IOException.
+ */
+public class NCLSharedCache implements NCLDeclensionCache, Closeable {
+
+	private static final int MAGIC = 0x4E434C53;
+	private static final int FORMAT = 2;
+	private static final int HEADER_SIZE = 64;
+
+	private static final int HEADER_SLOT_SIZE = 8;
+	private static final int HEADER_CAPACITY = 12;
+	private static final int HEADER_VERSION = 16;
+	private static final int HEADER_READY = 20;
+
+	/**
+	 * Размер ячейки: хватает на 7 падежей длинного слова в UTF-8
+	 */
+	public static final int SLOT_SIZE = 512;
+	private static final int SLOT_HEADER = 16;
+
+	/**
+	 * Наибольшее количество ячеек: отображение одним буфером не больше Integer.MAX_VALUE байт
+	 */
+	public static final int MAX_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE);
+
+	/**
+	 * Сколько ячеек подряд проверяется при поиске и записи
+	 */
+	private static final int PROBE_LIMIT = 16;
+
+	private static final int EMPTY = 0;
+	private static final int WRITING = 1;
+	private static final int READY = 2;
+
+	private static final MethodHandle COMPARE_AND_SWAP_INT;
+	private static final MethodHandle GET_INT_VOLATILE;
+	private static final MethodHandle PUT_INT_VOLATILE;
+	private static final MethodHandle GET_LONG;
+	private static final long ADDRESS_OFFSET;
+
+	static {
+		MethodHandle compareAndSwap = null;
+		MethodHandle getVolatile = null;
+		MethodHandle putVolatile = null;
+		MethodHandle getLong = null;
+		long addressOffset = -1;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			compareAndSwap = lookup.findVirtual(unsafeClass, "compareAndSwapInt",
+					MethodType.methodType(boolean.class, Object.class, long.class, int.class, int.class)).bindTo(unsafe);
+			getVolatile = lookup.findVirtual(unsafeClass, "getIntVolatile",
+					MethodType.methodType(int.class, Object.class, long.class)).bindTo(unsafe);
+			putVolatile = lookup.findVirtual(unsafeClass, "putIntVolatile",
+					MethodType.methodType(void.class, Object.class, long.class, int.class)).bindTo(unsafe);
+			getLong = lookup.findVirtual(unsafeClass, "getLong",
+					MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+			MethodHandle fieldOffset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+					MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+			addressOffset = (long) fieldOffset.invoke(Buffer.class.getDeclaredField("address"));
+		} catch (Throwable e) {
+			compareAndSwap = null;
+		}
+		COMPARE_AND_SWAP_INT = compareAndSwap;
+		GET_INT_VOLATILE = getVolatile;
+		PUT_INT_VOLATILE = putVolatile;
+		GET_LONG = getLong;
+		ADDRESS_OFFSET = addressOffset;
+	}
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * Адрес начала отображенной памяти
+	 */
+	private final long address;
+
+	private final int capacity;
+	private final int versionHash;
+
+	private NCLSharedCache(FileChannel channel, MappedByteBuffer buffer, int capacity, int versionHash) throws IOException {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = capacity;
+		this.versionHash = versionHash;
+		try {
+			this.address = (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+		} catch (Throwable e) {
+			throw new IOException("Не удалось получить адрес отображенной памяти", e);
+		}
+	}
+
+	/**
+	 * Открывает или создает общий файл кеша для языка <var>nameCase</var>
+	 * @param file путь к файлу, одинаковый для всех процессов
+	 * @param nameCase обьект склонения, по которому определяется версия
+	 * @param capacity количество ячеек, округляется вверх до степени двойки, не больше {@link #MAX_CAPACITY}.
+	 *                 Если файл уже создан с той же версией, используется его размер
+	 * @return NCLSharedCache
+	 * @throws IOException если файл нельзя открыть или в JVM нет нужного доступа к памяти
+	 * @throws IllegalArgumentException если <var>capacity</var> больше {@link #MAX_CAPACITY}
+	 */
+	public static NCLSharedCache open(Path file, NCLNameCaseCore nameCase, int capacity) throws IOException {
+		if (capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Слишком много ячеек: " + capacity + ", не больше " + MAX_CAPACITY
+					+ " (" + SLOT_SIZE + " байт на ячейку в одном отображении)");
+		}
+		if (COMPARE_AND_SWAP_INT == null) {
+			throw new IOException("sun.misc.Unsafe недоступен, общий кеш не поддерживается этой JVM");
+		}
+		int versionHash = (nameCase.version() + '/' + nameCase.languageVersion() + '/'
+				+ nameCase.getClass().getName() + '/' + nameCase.getCaseCount()).hashCode();
+		int slots = Integer.highestOneBit(Math.max(capacity, PROBE_LIMIT) - 1) << 1;
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			MappedByteBuffer buffer;
+			//Блокировка файла нужна только для создания и очистки заголовка
+			FileLock lock = channel.lock();
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+				buffer.order(ByteOrder.nativeOrder());
+				boolean valid = channel.size() > HEADER_SIZE
+						&& buffer.getInt(0) == MAGIC
+						&& buffer.getInt(4) == FORMAT
+						&& buffer.getInt(HEADER_SLOT_SIZE) == SLOT_SIZE
+						&& buffer.getInt(HEADER_VERSION) == versionHash
+						&& buffer.getInt(HEADER_READY) == 1
+						&& validCapacity(buffer.getInt(HEADER_CAPACITY));
+				if (valid) {
+					slots = buffer.getInt(HEADER_CAPACITY);
+				}
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+				//Порядок байт как у Unsafe, который читает состояние ячеек и заголовок
+				buffer.order(ByteOrder.nativeOrder());
+				if (!valid) {
+					initialize(buffer, slots, versionHash);
+				}
+			} finally {
+				lock.release();
+			}
+			return new NCLSharedCache(channel, buffer, slots, versionHash);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Проверяет количество ячеек из заголовка: степень двойки от PROBE_LIMIT до MAX_CAPACITY
+	 */
+	private static boolean validCapacity(int slots) {
+		return slots >= PROBE_LIMIT && slots <= MAX_CAPACITY && Integer.bitCount(slots) == 1;
+	}
+
+	/**
+	 * Очищает таблицу и записывает заголовок. Готовность ставится последней
+	 */
+	private static void initialize(MappedByteBuffer buffer, int slots, int versionHash) {
+		buffer.putInt(HEADER_READY, 0);
+		byte[] zeros = new byte[SLOT_SIZE];
+		for (int slot = 0; slot < slots; slot++) {
+			buffer.position(HEADER_SIZE + slot * SLOT_SIZE);
+			buffer.put(zeros);
+		}
+		buffer.position(0);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, FORMAT);
+		buffer.putInt(HEADER_SLOT_SIZE, SLOT_SIZE);
+		buffer.putInt(HEADER_CAPACITY, slots);
+		buffer.putInt(HEADER_VERSION, versionHash);
+		buffer.force();
+		buffer.putInt(HEADER_READY, 1);
+	}
+
+	/**
+	 * Проверяет, что файл все еще относится к нашей версии
+	 */
+	private boolean valid() {
+		return getIntVolatile(this.address + HEADER_READY) == 1
+				&& getIntVolatile(this.address + HEADER_VERSION) == this.versionHash;
+	}
+
+	private static int getIntVolatile(long address) {
+		try {
+			return (int) GET_INT_VOLATILE.invokeExact((Object) null, address);
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void putIntVolatile(long address, int value) {
+		try {
+			PUT_INT_VOLATILE.invokeExact((Object) null, address, value);
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean compareAndSwapInt(long address, int expected, int value) {
+		try {
+			return (boolean) COMPARE_AND_SWAP_INT.invokeExact((Object) null, address, expected, value);
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static int hash(String word, NamePart namePart, Gender gender) {
+		int hash = (word.hashCode() * 31 + namePart.ordinal()) * 31 + gender.ordinal();
+		return hash ^ (hash >>> 16);
+	}
+
+	private int slotOffset(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+	@Override
+	public NCLDeclensionResult get(String word, NamePart namePart, Gender gender) {
+		if (!this.valid()) {
+			return null;
+		}
+		int hash = hash(word, namePart, gender);
+		int mask = this.capacity - 1;
+		for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+			int offset = this.slotOffset((hash + probe) & mask);
+			int state = getIntVolatile(this.address + offset);
+			if (state == EMPTY) {
+				return null;
+			}
+			if (state == READY && this.buffer.getInt(offset + 4) == hash) {
+				NCLDeclensionResult result = this.read(offset, word, namePart, gender);
+				if (result != null) {
+					return result;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Читает опубликованную ячейку
+	 * @return результат или null, если в ячейке другой ключ
+	 */
+	private NCLDeclensionResult read(int offset, String word, NamePart namePart, Gender gender) {
+		if (this.buffer.getInt(offset + 8) != this.versionHash) {
+			//Ячейку записал процесс с другой версией правил
+			return null;
+		}
+		int length = this.buffer.getInt(offset + 12);
+		if (length <= 0 || length > SLOT_SIZE - SLOT_HEADER) {
+			return null;
+		}
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = this.buffer.get(offset + SLOT_HEADER + i);
+		}
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+			if (in.readByte() != namePart.ordinal() || in.readByte() != gender.ordinal() || !in.readUTF().equals(word)) {
+				return null;
+			}
+			int rule = in.readInt();
+			String[] forms = new String[in.readByte()];
+			for (int i = 0; i < forms.length; i++) {
+				forms[i] = in.readUTF();
+			}
+			return new NCLDeclensionResult(forms, rule, gender);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String word, NamePart namePart, Gender gender, NCLDeclensionResult result) {
+		if (!this.valid()) {
+			return;
+		}
+		byte[] data;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(namePart.ordinal());
+			out.writeByte(gender.ordinal());
+			out.writeUTF(word);
+			out.writeInt(result.getRule());
+			out.writeByte(result.size());
+			for (int i = 0; i < result.size(); i++) {
+				out.writeUTF(result.get(i));
+			}
+			data = bytes.toByteArray();
+		} catch (IOException e) {
+			return;
+		}
+		if (data.length > SLOT_SIZE - SLOT_HEADER) {
+			//Не помещается в ячейку
+			return;
+		}
+
+		int hash = hash(word, namePart, gender);
+		int mask = this.capacity - 1;
+		for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+			int offset = this.slotOffset((hash + probe) & mask);
+			int state = getIntVolatile(this.address + offset);
+			if (state == READY && this.buffer.getInt(offset + 4) == hash && this.read(offset, word, namePart, gender) != null) {
+				//Другой процесс уже записал этот ключ
+				return;
+			}
+			if (state == EMPTY && compareAndSwapInt(this.address + offset, EMPTY, WRITING)) {
+				//Пока ячейка занималась, другой процесс мог очистить файл под новую версию
+				if (!this.valid()) {
+					compareAndSwapInt(this.address + offset, WRITING, EMPTY);
+					return;
+				}
+				this.buffer.putInt(offset + 4, hash);
+				this.buffer.putInt(offset + 8, this.versionHash);
+				this.buffer.putInt(offset + 12, data.length);
+				for (int i = 0; i < data.length; i++) {
+					this.buffer.put(offset + SLOT_HEADER + i, data[i]);
+				}
+				putIntVolatile(this.address + offset, READY);
+				//Очистка могла начаться во время записи и не дойти до этой ячейки: старый результат убирается
+				if (!this.valid()) {
+					compareAndSwapInt(this.address + offset, READY, EMPTY);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Возвращает количество ячеек таблицы
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Считает опубликованные ячейки. Проходит всю таблицу, нужен для мониторинга
+	 */
+	public int size() {
+		int size = 0;
+		for (int slot = 0; slot < this.capacity; slot++) {
+			if (getIntVolatile(this.address + this.slotOffset(slot)) == READY) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
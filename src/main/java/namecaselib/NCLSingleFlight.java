@@ -0,0 +1,147 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NCLSingleFlight - обьединение одновременных одинаковых запросов склонения слова.
+ *
+ * Когда несколько потоков одновременно склоняют одно и то же слово (слово, часть ФИО, пол),
+ * правила применяет только первый из них, остальные ждут его результат. Обьект ставится
+ * между кешем и правилами ({@link NCLNameCaseCore#setSingleFlight(NCLSingleFlight)}): если результат
+ * уже есть в кеше, до обьединения дело не доходит, а первый поток сохраняет результат в кеш
+ * до того, как отдать его ожидающим.
+ *
+ * Запросы в работе хранятся в ConcurrentHashMap, общей блокировки нет: первый поток регистрирует
+ * CompletableFuture через putIfAbsent, правила применяются вне блокировок таблицы. Ожидающие
+ * потоки паркуются в CompletableFuture.join() без synchronized, поэтому виртуальные потоки
+ * не занимают поток-носитель, пока ждут.
+ *
+ * Если правила бросили исключение, его получают и первый поток, и все ожидающие (тот же обьект).
+ * Один обьект можно подключить к обьектам склонения одного языка в разных потоках.
+ */
+public class NCLSingleFlight {
+
+	/**
+	 * Ключ запроса: слово в нижнем регистре, часть ФИО и пол
+	 */
+	private static final class Key {
+
+		private final String word;
+		private final NamePart namePart;
+		private final Gender gender;
+		private final int hash;
+
+		private Key(String word, NamePart namePart, Gender gender) {
+			this.word = word;
+			this.namePart = namePart;
+			this.gender = gender;
+			this.hash = (word.hashCode() * 31 + namePart.ordinal()) * 31 + gender.ordinal();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return this.hash == key.hash && this.namePart == key.namePart && this.gender == key.gender
+					&& this.word.equals(key.word);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	private final ConcurrentHashMap<Key, CompletableFuture<NCLDeclensionResult>> inFlight;
+
+	private final AtomicLong computed = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	public NCLSingleFlight() {
+		this(Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * @param expectedConcurrency сколько запросов ожидается в работе одновременно, задает начальный размер таблицы
+	 */
+	public NCLSingleFlight(int expectedConcurrency) {
+		this.inFlight = new ConcurrentHashMap<>(Math.max(16, expectedConcurrency * 2));
+	}
+
+	/**
+	 * Склоняет слово правилами <var>nameCase</var> или ждет результат того же запроса из другого потока
+	 * @param nameCase обьект склонения текущего потока
+	 * @param word слово в нижнем регистре
+	 * @param namePart часть ФИО
+	 * @param gender пол
+	 * @return результат, падежи в нижнем регистре. Массив падежей общий для всех ожидавших, менять его нельзя
+	 */
+	NCLDeclensionResult decline(NCLNameCaseCore nameCase, String word, NamePart namePart, Gender gender) {
+		Key key = new Key(word, namePart, gender);
+		CompletableFuture<NCLDeclensionResult> own = new CompletableFuture<>();
+		CompletableFuture<NCLDeclensionResult> running = this.inFlight.putIfAbsent(key, own);
+		if (running != null) {
+			this.coalesced.incrementAndGet();
+			return await(running);
+		}
+
+		this.computed.incrementAndGet();
+		try {
+			NCLDeclensionResult result = nameCase.declineRules(word, namePart, gender);
+			own.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			this.inFlight.remove(key, own);
+		}
+	}
+
+	/**
+	 * Ждет результат другого потока и пробрасывает его исключение как есть
+	 */
+	private static NCLDeclensionResult await(CompletableFuture<NCLDeclensionResult> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Возвращает количество запросов, для которых применялись правила
+	 */
+	public long getComputed() {
+		return this.computed.get();
+	}
+
+	/**
+	 * Возвращает количество запросов, которые дождались результата другого потока
+	 */
+	public long getCoalesced() {
+		return this.coalesced.get();
+	}
+
+	/**
+	 * Возвращает количество запросов, которые сейчас в работе
+	 */
+	public int getInFlight() {
+		return this.inFlight.size();
+	}
+}
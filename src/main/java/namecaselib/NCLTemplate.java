@@ -0,0 +1,252 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NCLTemplate - шаблон документа с местами для частей ФИО в нужном падеже.
+ *
+ * Шаблон разбирается один раз в список частей: обычный текст и места для подстановки вида
+ * <code>{часть:відмінок}</code>, например "Шановний {first:klychnyi} {father:klychnyi}".
+ * - часть: first - имя, last - фамилия, father - отчество
+ * - відмінок: nazyvnyi, rodovyi, davalnyi, znahidnyi, orudnyi, miszevyi, klychnyi или номер падежа.
+ *   Если падеж не указан, используется именительный
+ * - <code>{{</code> и <code>}}</code> записывают обычные фигурные скобки
+ *
+ * При выводе ФИО человека склоняется один раз, после чего части шаблона за один проход
+ * дописываются в буфер, а падежи пишутся прямо из результата склонения.
+ *
+ * Разобранный шаблон неизменяем и может использоваться из разных потоков,
+ * но обьект склонения, который передается в render, у каждого потока должен быть свой.
+ */
+public final class NCLTemplate {
+
+	/**
+	 * Исходный текст шаблона
+	 */
+	private final String template;
+
+	/**
+	 * Весь обычный текст шаблона подряд, без экранирования скобок
+	 */
+	private final String literals;
+
+	/**
+	 * Для каждой части шаблона: начало текста в <var>literals</var> или -1 для места подстановки
+	 */
+	private final int[] starts;
+
+	/**
+	 * Для текста: конец в <var>literals</var>, для места подстановки: номер падежа
+	 */
+	private final int[] ends;
+
+	/**
+	 * Для места подстановки: часть ФИО, для текста: null
+	 */
+	private final NamePart[] nameParts;
+
+	/**
+	 * Какие части ФИО используются в шаблоне
+	 */
+	private final boolean usesFirst;
+	private final boolean usesLast;
+	private final boolean usesFather;
+
+	private NCLTemplate(String template, String literals, int[] starts, int[] ends, NamePart[] nameParts) {
+		this.template = template;
+		this.literals = literals;
+		this.starts = starts;
+		this.ends = ends;
+		this.nameParts = nameParts;
+		boolean first = false;
+		boolean last = false;
+		boolean father = false;
+		for (NamePart namePart : nameParts) {
+			first |= namePart == NamePart.N;
+			last |= namePart == NamePart.S;
+			father |= namePart == NamePart.F;
+		}
+		this.usesFirst = first;
+		this.usesLast = last;
+		this.usesFather = father;
+	}
+
+	/**
+	 * Разбирает шаблон
+	 * @param template текст шаблона
+	 * @return NCLTemplate разобранный шаблон
+	 * @throws IllegalArgumentException если в шаблоне есть незакрытая скобка или неизвестная часть ФИО или падеж
+	 */
+	public static NCLTemplate compile(String template) {
+		StringBuilder literals = new StringBuilder();
+		List<Integer> starts = new ArrayList<>();
+		List<Integer> ends = new ArrayList<>();
+		List<NamePart> parts = new ArrayList<>();
+		int textStart = 0;
+		int length = template.length();
+		int i = 0;
+		while (i < length) {
+			char c = template.charAt(i);
+			if ((c == '{' || c == '}') && i + 1 < length && template.charAt(i + 1) == c) {
+				literals.append(c);
+				i += 2;
+			} else if (c == '{') {
+				int close = template.indexOf('}', i);
+				if (close < 0) {
+					throw new IllegalArgumentException("Незакрытая скобка на позиции " + i + " в шаблоне " + template);
+				}
+				if (literals.length() > textStart) {
+					starts.add(textStart);
+					ends.add(literals.length());
+					parts.add(null);
+					textStart = literals.length();
+				}
+				String placeholder = template.substring(i + 1, close);
+				int colon = placeholder.indexOf(':');
+				String part = colon < 0 ? placeholder : placeholder.substring(0, colon);
+				String caseName = colon < 0 ? "" : placeholder.substring(colon + 1);
+				starts.add(-1);
+				ends.add(caseNumber(caseName.trim(), template));
+				parts.add(namePart(part.trim(), template));
+				i = close + 1;
+			} else if (c == '}') {
+				throw new IllegalArgumentException("Лишняя скобка на позиции " + i + " в шаблоне " + template);
+			} else {
+				literals.append(c);
+				i++;
+			}
+		}
+		if (literals.length() > textStart) {
+			starts.add(textStart);
+			ends.add(literals.length());
+			parts.add(null);
+		}
+
+		int[] startArray = new int[starts.size()];
+		int[] endArray = new int[ends.size()];
+		for (int k = 0; k < startArray.length; k++) {
+			startArray[k] = starts.get(k);
+			endArray[k] = ends.get(k);
+		}
+		return new NCLTemplate(template, literals.toString(), startArray, endArray, parts.toArray(new NamePart[0]));
+	}
+
+	/**
+	 * Возвращает часть ФИО по ее имени в шаблоне
+	 */
+	private static NamePart namePart(String name, String template) {
+		switch (name) {
+			case "first": return NamePart.N;
+			case "last": return NamePart.S;
+			case "father": return NamePart.F;
+		}
+		throw new IllegalArgumentException("Неизвестная часть ФИО {" + name + "} в шаблоне " + template);
+	}
+
+	/**
+	 * Возвращает номер падежа по его имени в шаблоне
+	 */
+	private static int caseNumber(String name, String template) {
+		switch (name) {
+			case "":
+			case "nazyvnyi": return NCL.UaNazyvnyi;
+			case "rodovyi": return NCL.UaRodovyi;
+			case "davalnyi": return NCL.UaDavalnyi;
+			case "znahidnyi": return NCL.UaZnahidnyi;
+			case "orudnyi": return NCL.UaOrudnyi;
+			case "miszevyi": return NCL.UaMiszevyi;
+			case "klychnyi": return NCL.UaKlychnyi;
+		}
+		int caseNumber;
+		try {
+			caseNumber = Integer.parseInt(name);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Неизвестный падеж " + name + " в шаблоне " + template);
+		}
+		if (caseNumber < NCL.UaNazyvnyi || caseNumber > NCL.UaKlychnyi) {
+			throw new IllegalArgumentException("Неизвестный падеж " + name + " в шаблоне " + template);
+		}
+		return caseNumber;
+	}
+
+	/**
+	 * Склоняет ФИО <var>fullName</var> (порядок слов и пол определяются автоматически)
+	 * и дописывает шаблон в <var>out</var>
+	 * @param nameCase обьект склонения
+	 * @param fullName ФИО в любом порядке
+	 * @param out буфер
+	 * @return <var>out</var>
+	 */
+	public StringBuilder render(NCLNameCaseCore nameCase, CharSequence fullName, StringBuilder out) {
+		nameCase.declineFullName(fullName, 0, fullName.length());
+		return this.write(nameCase, out);
+	}
+
+	/**
+	 * Склоняет ФИО, заданное по частям, и дописывает шаблон в <var>out</var>
+	 * @param nameCase обьект склонения
+	 * @param secondName фамилия
+	 * @param firstName имя
+	 * @param fatherName отчество
+	 * @param gender пол или null, чтобы определить его автоматически
+	 * @param out буфер
+	 * @return <var>out</var>
+	 */
+	public StringBuilder render(NCLNameCaseCore nameCase, String secondName, String firstName, String fatherName,
+								Gender gender, StringBuilder out) {
+		nameCase.fullReset();
+		nameCase.setFullName(secondName, firstName, fatherName);
+		if (gender != null) {
+			nameCase.setGender(gender);
+		}
+		return this.write(nameCase, out);
+	}
+
+	/**
+	 * Склоняет ФИО <var>fullName</var> и возвращает готовый текст
+	 * @param nameCase обьект склонения
+	 * @param fullName ФИО в любом порядке
+	 * @return текст по шаблону
+	 */
+	public String render(NCLNameCaseCore nameCase, CharSequence fullName) {
+		return this.render(nameCase, fullName, new StringBuilder(this.literals.length() + 64)).toString();
+	}
+
+	/**
+	 * Дописывает части шаблона в буфер за один проход. Каждая используемая часть ФИО склоняется один раз
+	 */
+	private StringBuilder write(NCLNameCaseCore nameCase, StringBuilder out) {
+		NCLDeclensionResult first = this.usesFirst ? nameCase.getFirstNameResult() : null;
+		NCLDeclensionResult last = this.usesLast ? nameCase.getSecondNameResult() : null;
+		NCLDeclensionResult father = this.usesFather ? nameCase.getFatherNameResult() : null;
+		for (int k = 0; k < this.starts.length; k++) {
+			NamePart namePart = this.nameParts[k];
+			if (namePart == null) {
+				out.append(this.literals, this.starts[k], this.ends[k]);
+			} else if (namePart == NamePart.N) {
+				first.appendTo(this.ends[k], out);
+			} else if (namePart == NamePart.S) {
+				last.appendTo(this.ends[k], out);
+			} else {
+				father.appendTo(this.ends[k], out);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Возвращает исходный текст шаблона
+	 */
+	public String getTemplate() {
+		return this.template;
+	}
+
+	@Override
+	public String toString() {
+		return this.template;
+	}
+}
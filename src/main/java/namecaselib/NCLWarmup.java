@@ -0,0 +1,371 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * NCLWarmup - фоновый прогрев кеша склонения по списку частотных имен.
+ *
+ * Список сортируется по убыванию частоты, первые {@link #setLimit(int) limit} слов склоняются
+ * для всех выбранных частей ФИО и полов. Результаты попадают в кеш, который установлен
+ * у обьектов склонения из <var>factory</var> ({@link NCLNameCaseCore#setCache(NCLDeclensionCache)}),
+ * поэтому кеш должен поддерживать работу из нескольких потоков.
+ *
+ * Покрытие - доля суммарной частоты всего списка, которая уже просклонена. Когда оно доходит
+ * до {@link #setThreshold(double) порога}, завершается {@link #ready()}: после этого сервис можно
+ * открывать для запросов. Если порог недостижим (например, из-за limit), ready() завершается
+ * вместе с {@link #done()}, а реальное покрытие можно узнать из {@link #getCoverage()}.
+ *
+ * Прогрев выполняется <var>threads</var> задачами на <var>executor</var>, у каждой задачи свой обьект
+ * склонения. Доля процессора {@link #setCpuBudget(double)} ограничивает каждую задачу: после
+ * каждого отрезка работы задача спит столько, чтобы работа занимала не больше этой доли времени.
+ *
+ * Формат файла: одна строка - одно слово и через пробел, табуляцию или ';' его частота.
+ * Если частоты нет, она считается равной 1. Пустые строки и строки с '#' пропускаются.
+ */
+public class NCLWarmup {
+
+	/**
+	 * Длина отрезка работы, после которого проверяется доля процессора, нс
+	 */
+	private static final long SLICE = 10_000_000L;
+
+	private final Supplier<? extends NCLNameCaseCore> factory;
+
+	private NamePart[] nameParts = {NamePart.N, NamePart.S, NamePart.F};
+	private Gender[] genders = {Gender.MAN, Gender.WOMAN};
+	private int limit = Integer.MAX_VALUE;
+	private double threshold = 0.9;
+	private double cpuBudget = 1.0;
+	private int threads = 1;
+	private Executor executor = null;
+
+	private final CompletableFuture<NCLWarmup> ready = new CompletableFuture<>();
+	private final CompletableFuture<NCLWarmup> done = new CompletableFuture<>();
+	private volatile boolean started = false;
+	private volatile boolean cancelled = false;
+
+	private String[] names = new String[0];
+	private long[] weights = new long[0];
+	private volatile long totalWeight = 0;
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicLong coveredWeight = new AtomicLong();
+	private final AtomicInteger declined = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+
+	/**
+	 * @param factory создает обьекты склонения с установленным кешем, вызывается один раз на каждую задачу
+	 */
+	public NCLWarmup(Supplier<? extends NCLNameCaseCore> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Устанавливает части ФИО, для которых склоняются слова. По умолчанию все три
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setNameParts(NamePart... nameParts) {
+		this.nameParts = nameParts.clone();
+		return this;
+	}
+
+	/**
+	 * Устанавливает полы, для которых склоняются слова. По умолчанию оба
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setGenders(Gender... genders) {
+		this.genders = genders.clone();
+		return this;
+	}
+
+	/**
+	 * Устанавливает, сколько самых частых слов прогревать
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setLimit(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit < 0");
+		}
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Устанавливает покрытие от 0 до 1, при котором завершается {@link #ready()}. По умолчанию 0.9
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setThreshold(double threshold) {
+		if (!(threshold >= 0 && threshold <= 1)) {
+			throw new IllegalArgumentException("Порог покрытия должен быть от 0 до 1: " + threshold);
+		}
+		this.threshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Устанавливает долю процессора от 0 до 1 (не включая 0) для каждой задачи прогрева. По умолчанию 1
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setCpuBudget(double cpuBudget) {
+		if (!(cpuBudget > 0 && cpuBudget <= 1)) {
+			throw new IllegalArgumentException("Доля процессора должна быть больше 0 и не больше 1: " + cpuBudget);
+		}
+		this.cpuBudget = cpuBudget;
+		return this;
+	}
+
+	/**
+	 * Устанавливает количество параллельных задач прогрева. По умолчанию 1
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1");
+		}
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Устанавливает executor для задач прогрева. По умолчанию каждая задача получает свой поток-демон
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Читает список частот из файла в UTF-8 и запускает прогрев
+	 * @param file файл со списком
+	 * @return NCLWarmup
+	 * @throws IOException если файл нельзя прочитать
+	 */
+	public NCLWarmup start(Path file) throws IOException {
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return this.start(lines);
+	}
+
+	/**
+	 * Разбирает строки списка частот и запускает прогрев
+	 * @param lines строки в формате файла
+	 * @return NCLWarmup
+	 */
+	public NCLWarmup start(Iterable<String> lines) {
+		List<String> names = new ArrayList<>();
+		List<Long> weights = new ArrayList<>();
+		for (String line : lines) {
+			line = line.trim();
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			int split = Math.max(line.lastIndexOf(';'), Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t')));
+			long weight = 1;
+			String name = line;
+			if (split > 0) {
+				try {
+					weight = Long.parseLong(line.substring(split + 1).trim());
+					name = line.substring(0, split).trim();
+				} catch (NumberFormatException e) {
+					weight = 1;
+				}
+			}
+			names.add(name);
+			weights.add(weight);
+		}
+		long[] weightArray = new long[weights.size()];
+		for (int i = 0; i < weightArray.length; i++) {
+			weightArray[i] = weights.get(i);
+		}
+		return this.start(names.toArray(new String[0]), weightArray);
+	}
+
+	/**
+	 * Запускает прогрев
+	 * @param names слова
+	 * @param weights частота каждого слова
+	 * @return NCLWarmup
+	 */
+	public synchronized NCLWarmup start(String[] names, long[] weights) {
+		if (names.length != weights.length) {
+			throw new IllegalArgumentException("Слов " + names.length + ", частот " + weights.length);
+		}
+		if (this.started) {
+			throw new IllegalStateException("Прогрев уже запущен");
+		}
+
+		List<NCLNameCaseCore> engines = new ArrayList<>(this.threads);
+		for (int i = 0; i < this.threads; i++) {
+			NCLNameCaseCore nameCase = this.factory.get();
+			if (nameCase.getCache() == null) {
+				throw new IllegalStateException("У обьекта склонения не установлен кеш, прогревать нечего");
+			}
+			engines.add(nameCase);
+		}
+		this.started = true;
+
+		//Самые частые слова первыми
+		Integer[] order = new Integer[names.length];
+		long totalWeight = 0;
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			totalWeight += Math.max(weights[i], 0);
+		}
+		this.totalWeight = totalWeight;
+		Arrays.sort(order, (a, b) -> Long.compare(weights[b], weights[a]));
+		int count = Math.min(this.limit, order.length);
+		this.names = new String[count];
+		this.weights = new long[count];
+		for (int i = 0; i < count; i++) {
+			this.names[i] = names[order[i]];
+			this.weights[i] = Math.max(weights[order[i]], 0);
+		}
+
+		this.running.set(engines.size());
+		this.checkReady();
+		for (NCLNameCaseCore nameCase : engines) {
+			Runnable task = () -> this.run(nameCase);
+			try {
+				if (this.executor != null) {
+					this.executor.execute(task);
+				} else {
+					Thread thread = new Thread(task, "ncl-warmup");
+					thread.setDaemon(true);
+					thread.start();
+				}
+			} catch (RuntimeException e) {
+				this.fail(e);
+				throw e;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Задача прогрева: берет следующее по частоте слово, пока они не кончатся
+	 */
+	private void run(NCLNameCaseCore nameCase) {
+		try {
+			long sliceStart = System.nanoTime();
+			int i;
+			while (!this.cancelled && (i = this.next.getAndIncrement()) < this.names.length) {
+				for (NamePart namePart : this.nameParts) {
+					for (Gender gender : this.genders) {
+						try {
+							nameCase.qNameResult(this.names[i], namePart, gender);
+							this.declined.incrementAndGet();
+						} catch (RuntimeException e) {
+							this.failed.incrementAndGet();
+						}
+					}
+				}
+				this.coveredWeight.addAndGet(this.weights[i]);
+				this.checkReady();
+
+				long worked = System.nanoTime() - sliceStart;
+				if (worked >= SLICE) {
+					if (this.cpuBudget < 1) {
+						long pause = (long) (worked * (1 - this.cpuBudget) / this.cpuBudget);
+						Thread.sleep(pause / 1_000_000L, (int) (pause % 1_000_000L));
+					}
+					sliceStart = System.nanoTime();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.cancel();
+		} catch (RuntimeException | Error e) {
+			this.fail(e);
+			throw e;
+		} finally {
+			if (this.running.decrementAndGet() == 0) {
+				this.ready.complete(this);
+				this.done.complete(this);
+			}
+		}
+	}
+
+	private void checkReady() {
+		if (!this.ready.isDone() && this.getCoverage() >= this.threshold) {
+			this.ready.complete(this);
+		}
+	}
+
+	private void fail(Throwable e) {
+		this.cancelled = true;
+		this.ready.completeExceptionally(e);
+		this.done.completeExceptionally(e);
+	}
+
+	/**
+	 * Останавливает прогрев. Уже просклоненные слова остаются в кеше
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		this.ready.cancel(false);
+		this.done.cancel(false);
+	}
+
+	/**
+	 * Завершается, когда покрытие дошло до порога или прогрев закончен
+	 */
+	public CompletableFuture<NCLWarmup> ready() {
+		return this.ready;
+	}
+
+	/**
+	 * Завершается, когда все слова просклонены
+	 */
+	public CompletableFuture<NCLWarmup> done() {
+		return this.done;
+	}
+
+	/**
+	 * Флаг готовности для проверки состояния сервиса
+	 */
+	public boolean isReady() {
+		return this.ready.isDone() && !this.ready.isCompletedExceptionally();
+	}
+
+	/**
+	 * Возвращает покрытие от 0 до 1: доля суммарной частоты списка, которая уже просклонена
+	 */
+	public double getCoverage() {
+		return this.totalWeight == 0 ? 1.0 : (double) this.coveredWeight.get() / this.totalWeight;
+	}
+
+	/**
+	 * Возвращает количество просклоненных комбинаций слово, часть ФИО, пол
+	 */
+	public int getDeclined() {
+		return this.declined.get();
+	}
+
+	/**
+	 * Возвращает количество комбинаций, склонение которых завершилось исключением
+	 */
+	public int getFailed() {
+		return this.failed.get();
+	}
+}
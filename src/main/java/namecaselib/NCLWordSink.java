@@ -0,0 +1,470 @@
+package namecaselib;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * NCLWordSink - сбор слов, на которых склонение не уверено: для них не нашлось правила (слово
+ * осталось без изменений, номер правила -1), пол или часть ФИО определены с малым отрывом.
+ * Собранные слова - кандидаты в списки исключений языка.
+ *
+ * Слова пишутся в кольцевой буфер фиксированного размера без блокировок: ячейки создаются заранее,
+ * запись - захват номера ячейки через CAS и запись полей. Если буфер полон, слово отбрасывается
+ * ({@link #getDropped()}), склонение никогда не ждет. Перед записью слово проходит:
+ * - выборку: записывается в среднем одно из {@link #setSampling(int) sampling} событий
+ * - отсев повторов: таблица последних хешей (слово, вид, часть ФИО, пол), которая очищается
+ *   при каждом сбросе, поэтому частое слово попадает в буфер не чаще раза за интервал
+ *
+ * Буфер разбирает фоновый поток (daemon) раз в {@link #setInterval(long) interval} мс или вызов
+ * {@link #flush()}: одинаковые записи сводятся в одну с количеством и передаются в {@link Drain}
+ * (файл {@link #toFile(Path)}, журнал {@link #toLogger(Logger)} или любая своя функция).
+ *
+ * Один обьект можно подключить к нескольким обьектам склонения в разных потоках
+ * ({@link NCLNameCaseCore#setWordSink(NCLWordSink)}).
+ */
+public class NCLWordSink implements Closeable {
+
+	/**
+	 * Почему слово попало в буфер
+	 */
+	public enum Kind {
+		/**
+		 * Не нашлось правила склонения
+		 */
+		NO_RULE,
+		/**
+		 * Пол всего ФИО определен с отрывом меньше {@link #setGenderThreshold(double) порога}
+		 */
+		LOW_GENDER,
+		/**
+		 * Часть ФИО определена с отрывом меньше {@link #setNamePartThreshold(double) порога}
+		 */
+		LOW_NAME_PART
+	}
+
+	/**
+	 * Record - сведенная запись: слово и сколько раз оно попало в буфер за один сброс
+	 */
+	public static final class Record {
+
+		private final String word;
+		private final Kind kind;
+		private final NamePart namePart;
+		private final Gender gender;
+		private double koef;
+		private int count = 1;
+
+		private Record(String word, Kind kind, NamePart namePart, Gender gender, double koef) {
+			this.word = word;
+			this.kind = kind;
+			this.namePart = namePart;
+			this.gender = gender;
+			this.koef = koef;
+		}
+
+		public String getWord() {
+			return this.word;
+		}
+
+		public Kind getKind() {
+			return this.kind;
+		}
+
+		/**
+		 * Возвращает часть ФИО или null, если она еще не была известна
+		 */
+		public NamePart getNamePart() {
+			return this.namePart;
+		}
+
+		/**
+		 * Возвращает пол или null, если он еще не был известен
+		 */
+		public Gender getGender() {
+			return this.gender;
+		}
+
+		/**
+		 * Возвращает отрыв решения (для NO_RULE - 0). При сведении остается наименьший
+		 */
+		public double getKoef() {
+			return this.koef;
+		}
+
+		public int getCount() {
+			return this.count;
+		}
+
+		/**
+		 * Строка "слово;вид;часть ФИО;пол;отрыв;количество", неизвестные поля - "-"
+		 */
+		@Override
+		public String toString() {
+			return this.word + ';' + this.kind + ';' + (this.namePart == null ? "-" : this.namePart) + ';'
+					+ (this.gender == null ? "-" : this.gender) + ';' + this.koef + ';' + this.count;
+		}
+	}
+
+	/**
+	 * Drain - получатель сведенных записей. Вызывается только из одного потока за раз
+	 */
+	@FunctionalInterface
+	public interface Drain {
+		void accept(List<Record> records) throws IOException;
+	}
+
+	/**
+	 * Дописывает записи в текстовый файл UTF-8, по одной в строке ({@link Record#toString()})
+	 * @param file файл
+	 * @return Drain
+	 */
+	public static Drain toFile(Path file) {
+		return records -> {
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+				for (Record record : records) {
+					writer.write(record.toString());
+					writer.write('\n');
+				}
+			}
+		};
+	}
+
+	/**
+	 * Пишет записи в журнал java.util.logging с уровнем INFO, по одной в сообщении
+	 * @param logger журнал
+	 * @return Drain
+	 */
+	public static Drain toLogger(Logger logger) {
+		return records -> {
+			for (Record record : records) {
+				logger.log(Level.INFO, "NCLWordSink {0}", record);
+			}
+		};
+	}
+
+	private final Drain drain;
+
+	/**
+	 * Ячейки буфера. Ячейка i свободна для записи с номером n, если sequences[i] == n,
+	 * и заполнена записью с номером n, если sequences[i] == n + 1
+	 */
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final String[] words;
+	private final Kind[] kinds;
+	private final NamePart[] nameParts;
+	private final Gender[] genders;
+	private final double[] koefs;
+
+	/**
+	 * Номер следующей записи и следующей записи для чтения
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	private long head = 0;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Таблица отсева повторов: хеш записи (0 - пустая ячейка). Гонки при записи допустимы,
+	 * в худшем случае повтор попадет в буфер
+	 */
+	private final int[] recent;
+
+	private volatile int sampling = 1;
+	private volatile double genderThreshold = 0.1;
+	private volatile double namePartThreshold = 0.05;
+	private long interval = 1000;
+
+	private Thread thread = null;
+	private volatile boolean closed = false;
+	private long drained = 0;
+	private long failures = 0;
+	private Exception lastError = null;
+
+	/**
+	 * @param capacity размер буфера, округляется вверх до степени двойки
+	 * @param drain получатель записей
+	 */
+	public NCLWordSink(int capacity, Drain drain) {
+		if (capacity < 2 || capacity > 1 << 24) {
+			throw new IllegalArgumentException("Размер буфера должен быть от 2 до " + (1 << 24) + ": " + capacity);
+		}
+		if (drain == null) {
+			throw new IllegalArgumentException("drain == null");
+		}
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.drain = drain;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.words = new String[size];
+		this.kinds = new Kind[size];
+		this.nameParts = new NamePart[size];
+		this.genders = new Gender[size];
+		this.koefs = new double[size];
+		this.recent = new int[size * 2];
+	}
+
+	/**
+	 * Записывать в среднем одно из <var>sampling</var> событий. По умолчанию 1 - все
+	 * @return NCLWordSink
+	 */
+	public NCLWordSink setSampling(int sampling) {
+		if (sampling < 1) {
+			throw new IllegalArgumentException("sampling < 1");
+		}
+		this.sampling = sampling;
+		return this;
+	}
+
+	/**
+	 * Порог отрыва между оценками мужского и женского пола всего ФИО, ниже которого слова
+	 * записываются как LOW_GENDER. По умолчанию 0.1
+	 * @return NCLWordSink
+	 */
+	public NCLWordSink setGenderThreshold(double threshold) {
+		this.genderThreshold = threshold;
+		return this;
+	}
+
+	public double getGenderThreshold() {
+		return this.genderThreshold;
+	}
+
+	/**
+	 * Порог отрыва лучшей оценки части ФИО от следующей, ниже которого слово записывается
+	 * как LOW_NAME_PART. По умолчанию 0.05: записываются слова, у которых оценки равны
+	 * @return NCLWordSink
+	 */
+	public NCLWordSink setNamePartThreshold(double threshold) {
+		this.namePartThreshold = threshold;
+		return this;
+	}
+
+	public double getNamePartThreshold() {
+		return this.namePartThreshold;
+	}
+
+	/**
+	 * Интервал разбора буфера фоновым потоком, мс. По умолчанию 1000. Задается до {@link #start()}
+	 * @return NCLWordSink
+	 */
+	public synchronized NCLWordSink setInterval(long interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval < 1");
+		}
+		this.interval = interval;
+		return this;
+	}
+
+	/**
+	 * Запускает фоновый поток разбора буфера. Без него записи передаются в Drain только при {@link #flush()}
+	 * @return NCLWordSink
+	 */
+	public synchronized NCLWordSink start() {
+		if (this.closed) {
+			throw new IllegalStateException("NCLWordSink закрыт");
+		}
+		if (this.thread == null) {
+			this.thread = new Thread(this::run, "ncl-word-sink");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		return this;
+	}
+
+	private synchronized void run() {
+		try {
+			while (!this.closed) {
+				//wait отпускает монитор, поэтому flush() и close() из других потоков не ждут интервал
+				this.wait(this.interval);
+				if (!this.closed) {
+					this.flush();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Записывает слово. Не блокирует и не создает обьектов
+	 * @param kind почему слово записывается
+	 * @param word слово в нижнем регистре
+	 * @param namePart часть ФИО или null
+	 * @param gender пол или null
+	 * @param koef отрыв решения
+	 * @return boolean true - если слово записано, false - если не попало в выборку, повторяется или буфер полон
+	 */
+	public boolean offer(Kind kind, String word, NamePart namePart, Gender gender, double koef) {
+		int sampling = this.sampling;
+		if (sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+			return false;
+		}
+
+		int hash = word.hashCode() * 31 + kind.ordinal();
+		hash = hash * 31 + (namePart == null ? 3 : namePart.ordinal());
+		hash = hash * 31 + (gender == null ? 2 : gender.ordinal());
+		hash = (hash ^ (hash >>> 16)) | 1;
+		int slot = hash & (this.recent.length - 1);
+		if (this.recent[slot] == hash) {
+			return false;
+		}
+		this.recent[slot] = hash;
+
+		long sequence;
+		int index;
+		while (true) {
+			sequence = this.tail.get();
+			index = (int) sequence & this.mask;
+			long available = this.sequences.get(index);
+			if (available == sequence) {
+				if (this.tail.compareAndSet(sequence, sequence + 1)) {
+					break;
+				}
+			} else if (available < sequence) {
+				//Ячейка еще не прочитана: буфер полон
+				this.dropped.incrementAndGet();
+				return false;
+			}
+		}
+		this.words[index] = word;
+		this.kinds[index] = kind;
+		this.nameParts[index] = namePart;
+		this.genders[index] = gender;
+		this.koefs[index] = koef;
+		this.sequences.lazySet(index, sequence + 1);
+		return true;
+	}
+
+	/**
+	 * Разбирает буфер, сводит одинаковые записи и передает их в Drain. Ошибки Drain не пробрасываются,
+	 * а учитываются в {@link #getFailures()} и {@link #getLastError()}
+	 * @return int количество переданных записей
+	 */
+	public synchronized int flush() {
+		Map<String, List<Record>> byWord = new LinkedHashMap<>();
+		int size = this.mask + 1;
+		for (int read = 0; read < size; read++) {
+			int index = (int) this.head & this.mask;
+			if (this.sequences.get(index) != this.head + 1) {
+				break;
+			}
+			Record record = new Record(this.words[index], this.kinds[index], this.nameParts[index],
+					this.genders[index], this.koefs[index]);
+			this.words[index] = null;
+			this.sequences.lazySet(index, this.head + size);
+			this.head++;
+			this.merge(byWord, record);
+		}
+		Arrays.fill(this.recent, 0);
+
+		List<Record> list = new ArrayList<>();
+		for (List<Record> same : byWord.values()) {
+			list.addAll(same);
+		}
+		if (list.isEmpty()) {
+			return 0;
+		}
+		try {
+			this.drain.accept(list);
+			this.drained += list.size();
+		} catch (IOException | RuntimeException e) {
+			this.failures++;
+			this.lastError = e;
+		}
+		return list.size();
+	}
+
+	/**
+	 * Добавляет запись к записям того же слова или увеличивает количество у такой же записи
+	 */
+	private void merge(Map<String, List<Record>> byWord, Record record) {
+		List<Record> same = byWord.computeIfAbsent(record.word, key -> new ArrayList<>(1));
+		for (Record other : same) {
+			if (other.kind == record.kind && other.namePart == record.namePart && other.gender == record.gender) {
+				other.count++;
+				other.koef = Math.min(other.koef, record.koef);
+				return;
+			}
+		}
+		same.add(record);
+	}
+
+	/**
+	 * Останавливает фоновый поток и передает в Drain то, что осталось в буфере
+	 */
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			this.closed = true;
+			thread = this.thread;
+			this.notifyAll();
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.flush();
+	}
+
+	/**
+	 * Возвращает количество слов, записанных в буфер
+	 */
+	public long getOffered() {
+		return this.tail.get();
+	}
+
+	/**
+	 * Возвращает количество слов, отброшенных из-за полного буфера
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Возвращает количество сведенных записей, переданных в Drain
+	 */
+	public synchronized long getDrained() {
+		return this.drained;
+	}
+
+	/**
+	 * Возвращает количество неудачных вызовов Drain
+	 */
+	public synchronized long getFailures() {
+		return this.failures;
+	}
+
+	/**
+	 * Возвращает последнюю ошибку Drain или null
+	 */
+	public synchronized Exception getLastError() {
+		return this.lastError;
+	}
+}
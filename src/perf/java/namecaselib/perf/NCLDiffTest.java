@@ -0,0 +1,591 @@
+package namecaselib.perf;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+import namecaselib.NCLDetection;
+import namecaselib.NCLNameCaseCore;
+import namecaselib.NCLNameCaseWord;
+import namecaselib.NCLPersistentCache;
+import namecaselib.NCLSharedCache;
+import namecaselib.NCLSingleFlight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * NCLDiffTest - дифференциальное сравнение эталонной реализации с проверяемой.
+ *
+ * Эталон - замороженная копия библиотеки из пакета {@link namecaselib.perf.reference}. Проверяемая
+ * реализация - любой наследник NCLNameCaseCore (по умолчанию namecaselib.NCLNameCaseUa).
+ * Сравниваются:
+ * - все 7 падежей и номер правила для каждого слова по всем сочетаниям части ФИО и пола
+ * - формат, пол и коэффициент уверенности для полных ФИО
+ * - часть ФИО, пол, номер правила и падежи каждого слова полных ФИО
+ *
+ * Проверяемая реализация вызывается разными путями ({@link Mode}), каждый путь сравнивается с эталоном
+ * отдельно:
+ * - plain         setX + get*NameCase, getFullNameFormat + genderDetect (склонение, определение, ФИО)
+ * - q             qFirstName/qSecondName/qFatherName по каждому падежу и qNameResult (склонение)
+ * - persistent    склонение с NCLPersistentCache, второй раз результат берется из кеша
+ * - shared        склонение с NCLSharedCache, второй раз результат берется из кеша
+ * - single-flight склонение с NCLSingleFlight (в одном потоке, проверяется только сам путь)
+ * - detect        detect(CharSequence, NCLDetection) (определение). Короткие слова detect оценивает,
+ *                 а эталон на них падает, поэтому ФИО, на которых падает эталон, не сравниваются
+ * - full-name     declineFullName(CharSequence, int, int) (ФИО)
+ *
+ * Слова берутся из {@link NCLNameCorpus} и дополняются случайными кириллическими строками.
+ * Каждое расхождение минимизируется (удаляются слова и буквы, пока расхождение сохраняется) и
+ * записывается в файл с регрессионными примерами. В конце выводится относительная скорость реализаций.
+ *
+ * Параметры:
+ * - --engine имя класса проверяемой реализации (по умолчанию namecaselib.NCLNameCaseUa)
+ * - --corpus N  размер корпуса ФИО (по умолчанию 20000)
+ * - --random N  количество случайных строк (по умолчанию 20000)
+ * - --seed N    зерно генератора (по умолчанию 42)
+ * - --rounds N  количество замеров скорости (по умолчанию 5)
+ * - --out DIR   каталог для регрессионных примеров (по умолчанию build/ncl-diff)
+ * - --modes LIST пути через запятую (по умолчанию все)
+ */
+public class NCLDiffTest {
+
+	private static final String ALPHABET = "абвгґдеєжзиіїйклмнопрстуфхцчшщьюя";
+	private static final char[] PARTS = {'N', 'S', 'F'};
+
+	/**
+	 * Путь, которым вызывается проверяемая реализация
+	 */
+	enum Mode {
+		PLAIN, Q, PERSISTENT, SHARED, SINGLE_FLIGHT, DETECT, FULL_NAME;
+
+		/**
+		 * Пути для сравнения склонения слов, определения и склонения полных ФИО
+		 */
+		static final Set<Mode> DECLINE = EnumSet.of(PLAIN, Q, PERSISTENT, SHARED, SINGLE_FLIGHT);
+		static final Set<Mode> DETECTION = EnumSet.of(PLAIN, DETECT);
+		static final Set<Mode> FULL_NAMES = EnumSet.of(PLAIN, FULL_NAME);
+
+		static Mode parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+
+		@Override
+		public String toString() {
+			return this.name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+	}
+
+	/**
+	 * Реализация, которая участвует в сравнении. Результат работы представлен строкой,
+	 * чтобы сравнивать и ошибки, и результаты одинаково.
+	 */
+	interface Engine {
+
+		/**
+		 * Склоняет слово как часть ФИО <var>part</var> (N, S, F) с полом <var>gender</var>
+		 * @return все падежи и номер правила или имя исключения
+		 */
+		String decline(String word, char part, Gender gender);
+
+		/**
+		 * Определяет формат и пол полного ФИО
+		 * @return формат, пол и коэффициент уверенности или имя исключения
+		 */
+		String detect(String fullName);
+
+		/**
+		 * Склоняет все слова полного ФИО
+		 * @return часть ФИО, пол, номер правила и падежи каждого слова или имя исключения
+		 */
+		String declineFullName(String fullName);
+	}
+
+	/**
+	 * Проверяемая реализация - наследник NCLNameCaseCore, вызываемый путем <var>mode</var>
+	 */
+	static class CoreEngine implements Engine {
+
+		private final NCLNameCaseCore core;
+		private final Mode mode;
+		private final NCLDetection detection = new NCLDetection();
+
+		CoreEngine(NCLNameCaseCore core) {
+			this(core, Mode.PLAIN);
+		}
+
+		CoreEngine(NCLNameCaseCore core, Mode mode) {
+			this.core = core;
+			this.mode = mode;
+		}
+
+		@Override
+		public String decline(String word, char part, Gender gender) {
+			try {
+				if (this.mode == Mode.Q) {
+					return this.q(word, part, gender);
+				}
+				String result = this.setAndGet(word, part, gender);
+				if (this.mode == Mode.PERSISTENT || this.mode == Mode.SHARED) {
+					//Второй раз результат берется из кеша
+					result = this.setAndGet(word, part, gender);
+				}
+				return result;
+			} catch (RuntimeException e) {
+				return "!" + e.getClass().getSimpleName();
+			}
+		}
+
+		private String setAndGet(String word, char part, Gender gender) {
+			this.core.fullReset();
+			List<String> forms;
+			switch (part) {
+				case 'N':
+					forms = this.core.setFirstName(word).setGender(gender).getFirstNameCase();
+					break;
+				case 'S':
+					forms = this.core.setLastName(word).setGender(gender).getSecondNameCase();
+					break;
+				default:
+					forms = this.core.setFatherName(word).setGender(gender).getFatherNameCase();
+			}
+			List<NCLNameCaseWord> words = this.core.getWordsArray();
+			int rule = words.isEmpty() ? 0 : words.get(0).getRule();
+			return String.join("|", forms) + " #" + rule;
+		}
+
+		private String q(String word, char part, Gender gender) {
+			List<String> forms = new ArrayList<>();
+			for (int i = 0; i < this.core.getCaseCount(); i++) {
+				switch (part) {
+					case 'N':
+						forms.add(this.core.qFirstName(word, i, gender));
+						break;
+					case 'S':
+						forms.add(this.core.qSecondName(word, i, gender));
+						break;
+					default:
+						forms.add(this.core.qFatherName(word, i, gender));
+				}
+			}
+			NamePart namePart = part == 'N' ? NamePart.N : part == 'S' ? NamePart.S : NamePart.F;
+			return String.join("|", forms) + " #" + this.core.qNameResult(word, namePart, gender).getRule();
+		}
+
+		@Override
+		public String detect(String fullName) {
+			try {
+				if (this.mode == Mode.DETECT) {
+					this.core.detect(fullName, this.detection);
+					return this.detection.getFormat() + "| " + this.detection.getGender() + " " + this.detection.getConfidence();
+				}
+				String format = this.core.getFullNameFormat(fullName);
+				Gender gender = this.core.genderDetect(fullName);
+				return format + "| " + gender + " " + this.core.genderKoef;
+			} catch (RuntimeException e) {
+				return "!" + e.getClass().getSimpleName();
+			}
+		}
+
+		@Override
+		public String declineFullName(String fullName) {
+			try {
+				List<NCLNameCaseWord> words;
+				if (this.mode == Mode.FULL_NAME) {
+					words = this.core.declineFullName(fullName, 0, fullName.length());
+				} else {
+					this.core.getFullNameFormat(fullName);
+					this.core.getFirstNameCase();
+					words = this.core.getWordsArray();
+				}
+				StringBuilder result = new StringBuilder();
+				for (NCLNameCaseWord word : words) {
+					result.append(word.getNamePart()).append(' ').append(word.gender()).append(" #").append(word.getRule())
+							.append(' ').append(String.join("|", word.getNameCases())).append("; ");
+				}
+				return result.toString();
+			} catch (RuntimeException e) {
+				return "!" + e.getClass().getSimpleName();
+			}
+		}
+	}
+
+	/**
+	 * Эталонная реализация из пакета reference
+	 */
+	static class ReferenceEngine implements Engine {
+
+		private final namecaselib.perf.reference.NCLNameCaseUa core = new namecaselib.perf.reference.NCLNameCaseUa();
+
+		private static namecaselib.perf.reference.NCL.Gender gender(Gender gender) {
+			return namecaselib.perf.reference.NCL.Gender.valueOf(gender.name());
+		}
+
+		@Override
+		public String decline(String word, char part, Gender gender) {
+			try {
+				this.core.fullReset();
+				List<String> forms;
+				switch (part) {
+					case 'N':
+						forms = this.core.setFirstName(word).setGender(gender(gender)).getFirstNameCase();
+						break;
+					case 'S':
+						forms = this.core.setLastName(word).setGender(gender(gender)).getSecondNameCase();
+						break;
+					default:
+						forms = this.core.setFatherName(word).setGender(gender(gender)).getFatherNameCase();
+				}
+				List<namecaselib.perf.reference.NCLNameCaseWord> words = this.core.getWordsArray();
+				int rule = words.isEmpty() ? 0 : words.get(0).getRule();
+				return String.join("|", forms) + " #" + rule;
+			} catch (RuntimeException e) {
+				return "!" + e.getClass().getSimpleName();
+			}
+		}
+
+		@Override
+		public String detect(String fullName) {
+			try {
+				String format = this.core.getFullNameFormat(fullName);
+				namecaselib.perf.reference.NCL.Gender gender = this.core.genderDetect(fullName);
+				return format + "| " + gender + " " + this.core.genderKoef;
+			} catch (RuntimeException e) {
+				return "!" + e.getClass().getSimpleName();
+			}
+		}
+
+		@Override
+		public String declineFullName(String fullName) {
+			try {
+				this.core.getFullNameFormat(fullName);
+				this.core.getFirstNameCase();
+				StringBuilder result = new StringBuilder();
+				for (namecaselib.perf.reference.NCLNameCaseWord word : this.core.getWordsArray()) {
+					result.append(word.getNamePart()).append(' ').append(word.gender()).append(" #").append(word.getRule())
+							.append(' ').append(String.join("|", word.getNameCases())).append("; ");
+				}
+				return result.toString();
+			} catch (RuntimeException e) {
+				return "!" + e.getClass().getSimpleName();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		String engineClass = "namecaselib.NCLNameCaseUa";
+		int corpusSize = 20000;
+		int randomCount = 20000;
+		long seed = 42;
+		int rounds = 5;
+		Path out = Paths.get("build", "ncl-diff");
+		Set<Mode> modes = EnumSet.allOf(Mode.class);
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--engine": engineClass = value;
+					break;
+				case "--corpus": corpusSize = Integer.parseInt(value);
+					break;
+				case "--random": randomCount = Integer.parseInt(value);
+					break;
+				case "--seed": seed = Long.parseLong(value);
+					break;
+				case "--rounds": rounds = Integer.parseInt(value);
+					break;
+				case "--out": out = Paths.get(value);
+					break;
+				case "--modes":
+					modes = EnumSet.noneOf(Mode.class);
+					for (String mode : value.split(",")) {
+						modes.add(Mode.parse(mode));
+					}
+					break;
+				default:
+					throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+			}
+		}
+
+		Engine reference = new ReferenceEngine();
+		Engine candidate = new CoreEngine(newCore(engineClass));
+		List<Closeable> resources = new ArrayList<>();
+		List<Mode> checked = new ArrayList<>();
+		List<Engine> candidates = new ArrayList<>();
+		for (Mode mode : modes) {
+			NCLNameCaseCore core = newCore(engineClass);
+			try {
+				resources.addAll(attach(core, mode));
+			} catch (IOException e) {
+				System.out.printf("%s: skipped, %s%n", mode, e.getMessage());
+				continue;
+			}
+			checked.add(mode);
+			candidates.add(new CoreEngine(core, mode));
+		}
+
+		//Слова и полные ФИО для проверки
+		NCLNameCorpus corpus = new NCLNameCorpus(corpusSize, seed, 1.0);
+		Set<String> fullNames = new LinkedHashSet<>();
+		Set<String> words = new LinkedHashSet<>();
+		for (int i = 0; i < corpus.size(); i++) {
+			fullNames.add(corpus.fullName(i));
+			Collections.addAll(words, corpus.fullName(i).split(" "));
+		}
+		Collections.addAll(words, NCLNameCorpus.MAN_FIRST_NAMES);
+		Collections.addAll(words, NCLNameCorpus.WOMAN_FIRST_NAMES);
+		for (String[] pair : NCLNameCorpus.SECOND_NAMES) {
+			Collections.addAll(words, pair);
+		}
+		for (String[] pair : NCLNameCorpus.FATHER_NAMES) {
+			Collections.addAll(words, pair);
+		}
+		Random random = new Random(seed);
+		List<String> randomWords = new ArrayList<>();
+		for (int i = 0; i < randomCount; i++) {
+			randomWords.add(randomWord(random));
+		}
+		words.addAll(randomWords);
+		for (int i = 0; i + 2 < randomWords.size(); i += 3) {
+			fullNames.add(randomWords.get(i) + " " + randomWords.get(i + 1) + " " + randomWords.get(i + 2));
+		}
+
+		Set<String> declineFixtures = new LinkedHashSet<>();
+		Set<String> detectFixtures = new LinkedHashSet<>();
+		Set<String> fullNameFixtures = new LinkedHashSet<>();
+		long diffs = 0;
+		System.out.printf("engine: %s%n", engineClass);
+		for (int m = 0; m < checked.size(); m++) {
+			Mode mode = checked.get(m);
+			Engine engine = candidates.get(m);
+			if (Mode.DECLINE.contains(mode)) {
+				long checks = 0;
+				long modeDiffs = 0;
+				int fixtures = declineFixtures.size();
+				for (String word : words) {
+					for (char part : PARTS) {
+						for (Gender gender : Gender.values()) {
+							checks++;
+							Predicate<String> diverges = w -> !reference.decline(w, part, gender).equals(engine.decline(w, part, gender));
+							if (diverges.test(word)) {
+								modeDiffs++;
+								String minimal = minimise(word, diverges, false);
+								declineFixtures.add(mode + "\t" + minimal + "\t" + part + "\t" + gender
+										+ "\t" + reference.decline(minimal, part, gender)
+										+ "\t" + engine.decline(minimal, part, gender));
+							}
+						}
+					}
+				}
+				diffs += modeDiffs;
+				System.out.printf("declension/%s: %d checks, %d diverged, %d minimal fixtures%n",
+						mode, checks, modeDiffs, declineFixtures.size() - fixtures);
+			}
+			if (Mode.DETECTION.contains(mode)) {
+				long checks = 0;
+				long modeDiffs = 0;
+				int fixtures = detectFixtures.size();
+				for (String fullName : fullNames) {
+					//detect оценивает и слова, на которых падает эталон
+					Predicate<String> diverges = f -> {
+						String expected = reference.detect(f);
+						return !(mode == Mode.DETECT && expected.startsWith("!")) && !expected.equals(engine.detect(f));
+					};
+					checks++;
+					if (diverges.test(fullName)) {
+						modeDiffs++;
+						String minimal = minimise(fullName, diverges, true);
+						detectFixtures.add(mode + "\t" + minimal + "\t" + reference.detect(minimal) + "\t" + engine.detect(minimal));
+					}
+				}
+				diffs += modeDiffs;
+				System.out.printf("detection/%s: %d full names, %d diverged, %d minimal fixtures%n",
+						mode, checks, modeDiffs, detectFixtures.size() - fixtures);
+			}
+			if (Mode.FULL_NAMES.contains(mode)) {
+				long modeDiffs = 0;
+				int fixtures = fullNameFixtures.size();
+				for (String fullName : fullNames) {
+					Predicate<String> diverges = f -> !reference.declineFullName(f).equals(engine.declineFullName(f));
+					if (diverges.test(fullName)) {
+						modeDiffs++;
+						String minimal = minimise(fullName, diverges, true);
+						fullNameFixtures.add(mode + "\t" + minimal + "\t" + reference.declineFullName(minimal)
+								+ "\t" + engine.declineFullName(minimal));
+					}
+				}
+				diffs += modeDiffs;
+				System.out.printf("full names/%s: %d full names, %d diverged, %d minimal fixtures%n",
+						mode, fullNames.size(), modeDiffs, fullNameFixtures.size() - fixtures);
+			}
+		}
+		for (Closeable resource : resources) {
+			resource.close();
+		}
+
+		if (diffs > 0) {
+			Files.createDirectories(out);
+			write(out.resolve("decline-fixtures.tsv"), "mode\tword\tpart\tgender\treference\tcandidate", declineFixtures);
+			write(out.resolve("detect-fixtures.tsv"), "mode\tfullname\treference\tcandidate", detectFixtures);
+			write(out.resolve("fullname-fixtures.tsv"), "mode\tfullname\treference\tcandidate", fullNameFixtures);
+			System.out.printf("fixtures written to %s%n", out.toAbsolutePath());
+		}
+
+		//Скорость: лучший из нескольких замеров на одной и той же нагрузке
+		List<String> workload = new ArrayList<>(words);
+		long referenceBest = Long.MAX_VALUE;
+		long candidateBest = Long.MAX_VALUE;
+		for (int round = 0; round < rounds; round++) {
+			referenceBest = Math.min(referenceBest, measure(reference, workload));
+			candidateBest = Math.min(candidateBest, measure(candidate, workload));
+		}
+		long operations = (long) workload.size() * PARTS.length * Gender.values().length;
+		System.out.printf("reference: %.0f words/s%n", operations / (referenceBest / 1e9));
+		System.out.printf("candidate: %.0f words/s%n", operations / (candidateBest / 1e9));
+		System.out.printf("candidate/reference: %.2fx%n", (double) referenceBest / candidateBest);
+
+		if (diffs > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static NCLNameCaseCore newCore(String engineClass) throws ReflectiveOperationException {
+		return (NCLNameCaseCore) Class.forName(engineClass).getDeclaredConstructor().newInstance();
+	}
+
+	/**
+	 * Подключает к реализации то, что нужно пути <var>mode</var>: кеш во временном файле или обьединение запросов
+	 * @return открытые ресурсы, которые нужно закрыть после сравнения
+	 */
+	private static List<Closeable> attach(NCLNameCaseCore core, Mode mode) throws IOException {
+		List<Closeable> resources = new ArrayList<>();
+		switch (mode) {
+			case PERSISTENT: {
+				Path file = Files.createTempFile("ncl-diff", ".cache");
+				file.toFile().deleteOnExit();
+				NCLPersistentCache cache = NCLPersistentCache.open(file, core);
+				core.setCache(cache);
+				resources.add(cache);
+				break;
+			}
+			case SHARED: {
+				Path file = Files.createTempFile("ncl-diff", ".shared");
+				file.toFile().deleteOnExit();
+				NCLSharedCache cache = NCLSharedCache.open(file, core, 1 << 16);
+				core.setCache(cache);
+				resources.add(cache);
+				break;
+			}
+			case SINGLE_FLIGHT:
+				core.setSingleFlight(new NCLSingleFlight());
+				break;
+			default:
+		}
+		return resources;
+	}
+
+	private static long measure(Engine engine, List<String> workload) {
+		int hash = 0;
+		long start = System.nanoTime();
+		for (String word : workload) {
+			for (char part : PARTS) {
+				for (Gender gender : Gender.values()) {
+					hash += engine.decline(word, part, gender).hashCode();
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (hash == 42) {
+			System.out.print("");
+		}
+		return elapsed;
+	}
+
+	/**
+	 * Случайное кириллическое слово длиной от 1 до 12 букв, иногда с апострофом или дефисом
+	 */
+	static String randomWord(Random random) {
+		int length = 1 + random.nextInt(12);
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			int roll = random.nextInt(100);
+			if (i > 0 && roll == 0) {
+				word.append('’');
+			} else if (i > 0 && roll == 1) {
+				word.append('-');
+			} else {
+				word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+		}
+		if (random.nextInt(10) < 7) {
+			word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+		}
+		return word.toString();
+	}
+
+	/**
+	 * Уменьшает строку, пока расхождение сохраняется: сначала убирает целые слова (если <var>byWords</var>),
+	 * потом отдельные буквы
+	 * @param input строка с расхождением
+	 * @param diverges проверка расхождения
+	 * @param byWords убирать ли целые слова
+	 * @return минимальная найденная строка с расхождением
+	 */
+	static String minimise(String input, Predicate<String> diverges, boolean byWords) {
+		String current = input;
+		boolean reduced = true;
+		while (reduced) {
+			reduced = false;
+			if (byWords) {
+				String[] parts = current.split(" ");
+				for (int i = 0; i < parts.length && parts.length > 1; i++) {
+					List<String> rest = new ArrayList<>();
+					for (int j = 0; j < parts.length; j++) {
+						if (j != i) {
+							rest.add(parts[j]);
+						}
+					}
+					String candidate = String.join(" ", rest);
+					if (diverges.test(candidate)) {
+						current = candidate;
+						reduced = true;
+						break;
+					}
+				}
+				if (reduced) {
+					continue;
+				}
+			}
+			for (int i = 0; i < current.length() && current.length() > 1; i++) {
+				String candidate = current.substring(0, i) + current.substring(i + 1);
+				if (!candidate.trim().isEmpty() && diverges.test(candidate)) {
+					current = candidate;
+					reduced = true;
+					break;
+				}
+			}
+		}
+		return current;
+	}
+
+	private static void write(Path file, String header, Set<String> lines) throws IOException {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			writer.println(header);
+			for (String line : lines) {
+				writer.println(line);
+			}
+		}
+	}
+}
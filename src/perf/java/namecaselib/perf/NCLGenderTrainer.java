@@ -0,0 +1,371 @@
+package namecaselib.perf;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+import namecaselib.NCLGenderModel;
+import namecaselib.NCLNameCaseCore;
+import namecaselib.NCLNameCaseUa;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * NCLGenderTrainer - обучает {@link NCLGenderModel} по размеченному списку слов и сравнивает ее
+ * с правилами genderBy*.
+ *
+ * Для каждого окончания из 1-5 последних букв считаются мужские и женские вхождения. Доля мужчин
+ * в окончании сглаживается к доле его родителя (окончание на букву короче): p = (m + prior * p_родителя) / (m + w + prior),
+ * в модель пишется разница логарифмов шансов окончания и родителя. Окончания, которые встретились
+ * реже чем в min-count словах, или почти не меняют оценку, отбрасываются.
+ *
+ * Точность считается перекрестной проверкой: размеченные слова делятся на <var>folds</var> частей,
+ * каждая часть проверяется моделью, обученной на остальных. Сравниваются правила, модель и их смесь
+ * (доля модели <var>blend</var>), для каждого варианта выводится точность по частям ФИО и время
+ * определения пола одного слова. Итоговая модель обучается на всех словах и сохраняется в <var>out</var>.
+ *
+ * Формат файла с данными (UTF-8): слово;часть ФИО (N, S, F);пол (MAN, WOMAN)[;частота].
+ * Без файла используются списки {@link NCLNameCorpus} с частотой 1 / ранг.
+ *
+ * Параметры:
+ * - --data FILE     размеченный список (по умолчанию списки NCLNameCorpus)
+ * - --folds N       количество частей перекрестной проверки (по умолчанию 5)
+ * - --min-count N   наименьшее количество слов с окончанием (по умолчанию 1)
+ * - --prior X       сила сглаживания к родителю (по умолчанию 2)
+ * - --blend X       доля модели в смеси (по умолчанию 0.5)
+ * - --seed N        зерно разбиения (по умолчанию 42)
+ * - --rounds N      количество проходов при замере скорости (по умолчанию 5)
+ * - --out FILE      файл модели (по умолчанию build/ncl-gender.model)
+ */
+public class NCLGenderTrainer {
+
+	/**
+	 * Оценка модели ограничивается этим значением, чтобы одно окончание не перекрывало остальные слова ФИО
+	 */
+	private static final double MAX_LOGIT = 8;
+
+	/**
+	 * Поправки меньше этого значения не сохраняются, если у окончания нет сохраненных продолжений
+	 */
+	private static final double MIN_DELTA = 0.05;
+
+	/**
+	 * Размеченное слово
+	 */
+	static class Sample {
+
+		final String word;
+		final NamePart namePart;
+		final Gender gender;
+		final double weight;
+
+		Sample(String word, NamePart namePart, Gender gender, double weight) {
+			this.word = word.toLowerCase();
+			this.namePart = namePart;
+			this.gender = gender;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Счетчики одного окончания
+	 */
+	private static class Counts {
+
+		double man = 0;
+		double woman = 0;
+		int samples = 0;
+	}
+
+	private final int minCount;
+	private final double prior;
+
+	NCLGenderTrainer(int minCount, double prior) {
+		this.minCount = minCount;
+		this.prior = prior;
+	}
+
+	/**
+	 * Обучает модель на словах <var>samples</var>
+	 */
+	NCLGenderModel train(List<Sample> samples) {
+		NCLGenderModel.Builder builder = new NCLGenderModel.Builder();
+		for (NamePart namePart : NamePart.values()) {
+			//Ключ - окончание, "" - все слова части ФИО
+			Map<String, Counts> counts = new HashMap<>();
+			for (Sample sample : samples) {
+				if (sample.namePart != namePart) {
+					continue;
+				}
+				int length = sample.word.length();
+				for (int order = 0; order <= Math.min(length, NCLGenderModel.MAX_ORDER); order++) {
+					Counts c = counts.computeIfAbsent(sample.word.substring(length - order), key -> new Counts());
+					c.samples++;
+					if (sample.gender == Gender.MAN) {
+						c.man += sample.weight;
+					} else {
+						c.woman += sample.weight;
+					}
+				}
+			}
+			Counts all = counts.getOrDefault("", new Counts());
+			double rootShare = (all.man + 1) / (all.man + all.woman + 2);
+			builder.bias(namePart, logit(rootShare));
+
+			//Окончания от коротких к длинным, чтобы родитель был посчитан раньше
+			List<String> suffixes = new ArrayList<>(counts.keySet());
+			suffixes.sort((a, b) -> a.length() != b.length() ? a.length() - b.length() : a.compareTo(b));
+			Map<String, Double> shares = new HashMap<>();
+			Map<String, Double> deltas = new HashMap<>();
+			shares.put("", rootShare);
+			for (String suffix : suffixes) {
+				if (suffix.isEmpty()) {
+					continue;
+				}
+				Double parentShare = shares.get(suffix.substring(1));
+				Counts c = counts.get(suffix);
+				if (parentShare == null || c.samples < this.minCount) {
+					continue;
+				}
+				double share = (c.man + this.prior * parentShare) / (c.man + c.woman + this.prior);
+				shares.put(suffix, share);
+				deltas.put(suffix, logit(share) - logit(parentShare));
+			}
+
+			//Сохраняются поправки, которые заметно меняют оценку, и все их родители
+			suffixes.sort((a, b) -> b.length() - a.length());
+			Map<String, Boolean> kept = new HashMap<>();
+			for (String suffix : suffixes) {
+				Double delta = deltas.get(suffix);
+				if (delta == null) {
+					continue;
+				}
+				if (kept.containsKey(suffix) || Math.abs(delta) >= MIN_DELTA) {
+					builder.put(namePart, suffix, delta);
+					for (int i = 1; i < suffix.length(); i++) {
+						kept.put(suffix.substring(i), true);
+					}
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private static double logit(double share) {
+		double value = Math.log(share / (1 - share));
+		return Math.max(-MAX_LOGIT, Math.min(MAX_LOGIT, value));
+	}
+
+	/**
+	 * Читает размеченный список
+	 */
+	static List<Sample> read(Path file) throws IOException {
+		List<Sample> samples = new ArrayList<>();
+		int number = 0;
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			number++;
+			line = line.trim();
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			String[] fields = line.split(";");
+			if (fields.length < 3) {
+				throw new IOException(file + ":" + number + ": ожидается слово;часть ФИО;пол[;частота]");
+			}
+			double weight = fields.length > 3 ? Double.parseDouble(fields[3].trim()) : 1;
+			samples.add(new Sample(fields[0].trim(), NamePart.valueOf(fields[1].trim()), Gender.valueOf(fields[2].trim()), weight));
+		}
+		return samples;
+	}
+
+	/**
+	 * Списки {@link NCLNameCorpus} с частотой 1 / ранг
+	 */
+	static List<Sample> corpusSamples() {
+		List<Sample> samples = new ArrayList<>();
+		for (int i = 0; i < NCLNameCorpus.MAN_FIRST_NAMES.length; i++) {
+			samples.add(new Sample(NCLNameCorpus.MAN_FIRST_NAMES[i], NamePart.N, Gender.MAN, 1.0 / (i + 1)));
+		}
+		for (int i = 0; i < NCLNameCorpus.WOMAN_FIRST_NAMES.length; i++) {
+			samples.add(new Sample(NCLNameCorpus.WOMAN_FIRST_NAMES[i], NamePart.N, Gender.WOMAN, 1.0 / (i + 1)));
+		}
+		for (int i = 0; i < NCLNameCorpus.SECOND_NAMES.length; i++) {
+			samples.add(new Sample(NCLNameCorpus.SECOND_NAMES[i][0], NamePart.S, Gender.MAN, 1.0 / (i + 1)));
+			samples.add(new Sample(NCLNameCorpus.SECOND_NAMES[i][1], NamePart.S, Gender.WOMAN, 1.0 / (i + 1)));
+		}
+		for (int i = 0; i < NCLNameCorpus.FATHER_NAMES.length; i++) {
+			samples.add(new Sample(NCLNameCorpus.FATHER_NAMES[i][0], NamePart.F, Gender.MAN, 1.0 / (i + 1)));
+			samples.add(new Sample(NCLNameCorpus.FATHER_NAMES[i][1], NamePart.F, Gender.WOMAN, 1.0 / (i + 1)));
+		}
+		return samples;
+	}
+
+	/**
+	 * Определяет пол одного слова так же, как склонение: правила части ФИО и, если подключена, модель
+	 */
+	static Gender detect(NCLNameCaseCore core, Sample sample) {
+		core.fullReset();
+		switch (sample.namePart) {
+			case N: core.setFirstName(sample.word);
+				break;
+			case S: core.setLastName(sample.word);
+				break;
+			default: core.setFatherName(sample.word);
+		}
+		return core.genderAutoDetect();
+	}
+
+	/**
+	 * Точность одного варианта определения пола
+	 */
+	static class Score {
+
+		final String name;
+		final double[] correct = new double[NamePart.values().length];
+		final double[] total = new double[NamePart.values().length];
+		double nanos = 0;
+
+		Score(String name) {
+			this.name = name;
+		}
+
+		void add(Sample sample, Gender gender) {
+			this.total[sample.namePart.ordinal()] += sample.weight;
+			if (gender == sample.gender) {
+				this.correct[sample.namePart.ordinal()] += sample.weight;
+			}
+		}
+
+		double accuracy(int part) {
+			double correct = 0;
+			double total = 0;
+			for (int i = 0; i < this.total.length; i++) {
+				if (part < 0 || part == i) {
+					correct += this.correct[i];
+					total += this.total[i];
+				}
+			}
+			return total == 0 ? Double.NaN : correct / total;
+		}
+	}
+
+	/**
+	 * Среднее время определения пола одного слова, нс
+	 */
+	static double time(NCLNameCaseCore core, List<Sample> samples, int rounds) {
+		double best = Double.MAX_VALUE;
+		int sink = 0;
+		for (int round = 0; round < rounds + 2; round++) {
+			long start = System.nanoTime();
+			int count = 0;
+			while (count < 200_000) {
+				for (Sample sample : samples) {
+					sink += detect(core, sample).ordinal();
+					count++;
+				}
+			}
+			double nanos = (double) (System.nanoTime() - start) / count;
+			if (round >= 2) {
+				best = Math.min(best, nanos);
+			}
+		}
+		if (sink == 42) {
+			System.out.print("");
+		}
+		return best;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path data = null;
+		int folds = 5;
+		int minCount = 1;
+		double prior = 2;
+		double blend = 0.5;
+		long seed = 42;
+		int rounds = 5;
+		Path out = Paths.get("build", "ncl-gender.model");
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--data": data = Paths.get(value);
+					break;
+				case "--folds": folds = Integer.parseInt(value);
+					break;
+				case "--min-count": minCount = Integer.parseInt(value);
+					break;
+				case "--prior": prior = Double.parseDouble(value);
+					break;
+				case "--blend": blend = Double.parseDouble(value);
+					break;
+				case "--seed": seed = Long.parseLong(value);
+					break;
+				case "--rounds": rounds = Integer.parseInt(value);
+					break;
+				case "--out": out = Paths.get(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+			}
+		}
+
+		List<Sample> samples = data == null ? corpusSamples() : read(data);
+		NCLGenderTrainer trainer = new NCLGenderTrainer(minCount, prior);
+		System.out.printf("Слов: %d, частей перекрестной проверки: %d%n", samples.size(), folds);
+
+		//Перекрестная проверка
+		List<Sample> shuffled = new ArrayList<>(samples);
+		Collections.shuffle(shuffled, new Random(seed));
+		Score rules = new Score("правила");
+		Score model = new Score("модель");
+		Score mixed = new Score("смесь " + blend);
+		NCLNameCaseCore rulesCore = new NCLNameCaseUa();
+		for (int fold = 0; fold < folds; fold++) {
+			List<Sample> train = new ArrayList<>();
+			List<Sample> test = new ArrayList<>();
+			for (int i = 0; i < shuffled.size(); i++) {
+				(i % folds == fold ? test : train).add(shuffled.get(i));
+			}
+			NCLGenderModel foldModel = trainer.train(train);
+			NCLNameCaseCore modelCore = new NCLNameCaseUa().setGenderModel(foldModel, 1);
+			NCLNameCaseCore mixedCore = new NCLNameCaseUa().setGenderModel(foldModel, blend);
+			for (Sample sample : test) {
+				rules.add(sample, detect(rulesCore, sample));
+				model.add(sample, detect(modelCore, sample));
+				mixed.add(sample, detect(mixedCore, sample));
+			}
+		}
+
+		//Итоговая модель
+		NCLGenderModel result = trainer.train(samples);
+		rules.nanos = time(rulesCore, samples, rounds);
+		model.nanos = time(new NCLNameCaseUa().setGenderModel(result, 1), samples, rounds);
+		mixed.nanos = time(new NCLNameCaseUa().setGenderModel(result, blend), samples, rounds);
+
+		System.out.printf("%-12s %8s %8s %8s %8s %10s%n", "", "N", "S", "F", "все", "нс/слово");
+		for (Score score : new Score[]{rules, model, mixed}) {
+			System.out.printf("%-12s %7.1f%% %7.1f%% %7.1f%% %7.1f%% %10.0f%n", score.name,
+					score.accuracy(NamePart.N.ordinal()) * 100, score.accuracy(NamePart.S.ordinal()) * 100,
+					score.accuracy(NamePart.F.ordinal()) * 100, score.accuracy(-1) * 100, score.nanos);
+		}
+
+		if (out.getParent() != null) {
+			Files.createDirectories(out.getParent());
+		}
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(out))) {
+			result.write(stream);
+		}
+		System.out.printf("Модель: %d узлов, %d байт таблиц, шаг весов %.4f -> %s%n",
+				result.getNodeCount(), result.getTableSize(), result.getScale(), out);
+	}
+}
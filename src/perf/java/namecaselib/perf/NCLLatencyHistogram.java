@@ -0,0 +1,116 @@
+package namecaselib.perf;
+
+/**
+ * NCLLatencyHistogram - гистограмма задержек в стиле HdrHistogram.
+ *
+ * Значения (наносекунды) раскладываются по логарифмическим группам, внутри каждой группы
+ * корзины линейные. При <var>precisionBits</var> = 7 относительная погрешность не превышает 1%.
+ * Класс не потокобезопасен: каждый поток ведет свою гистограмму, а в конце они сливаются через
+ * {@link #add(NCLLatencyHistogram)}.
+ */
+public class NCLLatencyHistogram {
+
+	private final int precisionBits;
+	private final int subCount;
+	private final int halfCount;
+	private final long[] counts;
+	private long total = 0;
+	private long max = 0;
+	private double sum = 0;
+
+	public NCLLatencyHistogram(int precisionBits) {
+		this.precisionBits = precisionBits;
+		this.subCount = 1 << precisionBits;
+		this.halfCount = this.subCount >> 1;
+		this.counts = new long[this.subCount + (64 - precisionBits) * this.halfCount];
+	}
+
+	public NCLLatencyHistogram() {
+		this(7);
+	}
+
+	/**
+	 * Номер корзины для значения <var>value</var>
+	 */
+	private int index(long value) {
+		if (value < this.subCount) {
+			return (int) value;
+		}
+		int shift = 64 - Long.numberOfLeadingZeros(value) - this.precisionBits;
+		return this.subCount + (shift - 1) * this.halfCount + (int) ((value >>> shift) - this.halfCount);
+	}
+
+	/**
+	 * Наибольшее значение, которое попадает в корзину <var>index</var>
+	 */
+	private long highestEquivalent(int index) {
+		if (index < this.subCount) {
+			return index;
+		}
+		int shift = (index - this.subCount) / this.halfCount + 1;
+		long sub = (index - this.subCount) % this.halfCount + this.halfCount;
+		return (sub << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Записывает значение в гистограмму
+	 * @param value значение в наносекундах
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		this.counts[this.index(value)]++;
+		this.total++;
+		this.sum += value;
+		if (value > this.max) {
+			this.max = value;
+		}
+	}
+
+	/**
+	 * Добавляет к текущей гистограмме все значения из <var>other</var>
+	 */
+	public void add(NCLLatencyHistogram other) {
+		if (other.precisionBits != this.precisionBits) {
+			throw new IllegalArgumentException("Гистограммы с разной точностью нельзя сливать");
+		}
+		for (int i = 0; i < this.counts.length; i++) {
+			this.counts[i] += other.counts[i];
+		}
+		this.total += other.total;
+		this.sum += other.sum;
+		this.max = Math.max(this.max, other.max);
+	}
+
+	/**
+	 * Возвращает значение, не превышенное <var>percentile</var> процентами записей
+	 * @param percentile процентиль от 0 до 100
+	 */
+	public long percentile(double percentile) {
+		if (this.total == 0) {
+			return 0;
+		}
+		long needed = Math.max(1, (long) Math.ceil(percentile / 100.0 * this.total));
+		long seen = 0;
+		for (int i = 0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+			if (seen >= needed) {
+				return Math.min(this.highestEquivalent(i), this.max);
+			}
+		}
+		return this.max;
+	}
+
+	public long getTotalCount() {
+		return this.total;
+	}
+
+	public long getMax() {
+		return this.max;
+	}
+
+	public double getMean() {
+		return this.total == 0 ? 0 : this.sum / this.total;
+	}
+}
@@ -0,0 +1,232 @@
+package namecaselib.perf;
+
+import namecaselib.NCLNameCaseUa;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * NCLLoadTest - нагрузочный тест склонения полных ФИО.
+ *
+ * Каждый поток получает свой обьект NCLNameCaseUa и с заданной частотой склоняет ФИО из
+ * {@link NCLNameCorpus}: определяет формат (<var>getFullNameFormat</var>) и получает все падежи
+ * фамилии, имени и отчества. Задержка считается от запланированного момента запуска операции,
+ * поэтому отставание от графика попадает в процентили, а не прячется.
+ *
+ * Параметры:
+ * - --threads N   количество потоков (по умолчанию 4)
+ * - --rate N      суммарная частота операций в секунду, 0 - без ограничения (по умолчанию 0)
+ * - --duration N  длительность измерения в секундах (по умолчанию 30)
+ * - --warmup N    длительность прогрева в секундах (по умолчанию 10)
+ * - --corpus N    размер корпуса (по умолчанию 100000)
+ * - --seed N      зерно генератора корпуса (по умолчанию 42)
+ * - --zipf X      показатель распределения Ципфа (по умолчанию 1.0)
+ */
+public class NCLLoadTest {
+
+	private static volatile int sink;
+
+	public static void main(String[] args) throws Exception {
+		int threads = 4;
+		double rate = 0;
+		int duration = 30;
+		int warmup = 10;
+		int corpusSize = 100000;
+		long seed = 42;
+		double zipf = 1.0;
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--threads": threads = Integer.parseInt(value);
+					break;
+				case "--rate": rate = Double.parseDouble(value);
+					break;
+				case "--duration": duration = Integer.parseInt(value);
+					break;
+				case "--warmup": warmup = Integer.parseInt(value);
+					break;
+				case "--corpus": corpusSize = Integer.parseInt(value);
+					break;
+				case "--seed": seed = Long.parseLong(value);
+					break;
+				case "--zipf": zipf = Double.parseDouble(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+			}
+		}
+
+		NCLNameCorpus corpus = new NCLNameCorpus(corpusSize, seed, zipf);
+		System.out.printf("corpus: %d names, %d distinct, seed=%d, zipf=%.2f%n", corpus.size(), corpus.distinct(), seed, zipf);
+		System.out.printf("threads: %d, target rate: %s, warmup: %ds, duration: %ds%n",
+				threads, rate > 0 ? String.format("%.0f ops/s", rate) : "unlimited", warmup, duration);
+
+		long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate) : 0;
+		CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+		List<Worker> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Worker worker = new Worker(corpus, t * (corpus.size() / threads), intervalNanos,
+					TimeUnit.SECONDS.toNanos(warmup), TimeUnit.SECONDS.toNanos(duration), barrier);
+			workers.add(worker);
+			worker.start();
+		}
+
+		//Старт измерения - после прогрева всех потоков
+		barrier.await();
+		long started = System.nanoTime();
+		for (Worker worker : workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - started;
+
+		NCLLatencyHistogram latency = new NCLLatencyHistogram();
+		NCLLatencyHistogram service = new NCLLatencyHistogram();
+		long operations = 0;
+		long errors = 0;
+		long allocated = 0;
+		boolean allocationKnown = true;
+		for (Worker worker : workers) {
+			latency.add(worker.latency);
+			service.add(worker.service);
+			operations += worker.operations;
+			errors += worker.errors;
+			allocated += worker.allocated;
+			allocationKnown &= worker.allocated >= 0;
+		}
+
+		double seconds = elapsed / 1e9;
+		System.out.printf("throughput: %.0f ops/s (%d ops, %d errors)%n", operations / seconds, operations, errors);
+		report("latency", latency);
+		report("service", service);
+		if (allocationKnown && operations > 0) {
+			System.out.printf("allocation: %.1f MB/s, %.0f bytes/op%n",
+					allocated / seconds / (1024 * 1024), (double) allocated / operations);
+		} else {
+			System.out.println("allocation: n/a");
+		}
+	}
+
+	private static void report(String title, NCLLatencyHistogram histogram) {
+		System.out.printf("%s (us): mean=%.2f p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n", title,
+				histogram.getMean() / 1000,
+				histogram.percentile(50) / 1000.0,
+				histogram.percentile(90) / 1000.0,
+				histogram.percentile(99) / 1000.0,
+				histogram.percentile(99.9) / 1000.0,
+				histogram.getMax() / 1000.0);
+	}
+
+	/**
+	 * Количество байт, выделенных текущим потоком, или -1, если JVM этого не умеет
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Поток нагрузки со своим обьектом склонения и своими гистограммами
+	 */
+	private static class Worker extends Thread {
+
+		private final NCLNameCaseUa nameCase = new NCLNameCaseUa();
+		private final NCLNameCorpus corpus;
+		private final long intervalNanos;
+		private final long warmupNanos;
+		private final long durationNanos;
+		private final CyclicBarrier barrier;
+		private int position;
+
+		final NCLLatencyHistogram latency = new NCLLatencyHistogram();
+		final NCLLatencyHistogram service = new NCLLatencyHistogram();
+		long operations = 0;
+		long errors = 0;
+		long allocated = -1;
+
+		Worker(NCLNameCorpus corpus, int position, long intervalNanos, long warmupNanos, long durationNanos, CyclicBarrier barrier) {
+			super("ncl-load-" + position);
+			this.corpus = corpus;
+			this.position = position;
+			this.intervalNanos = intervalNanos;
+			this.warmupNanos = warmupNanos;
+			this.durationNanos = durationNanos;
+			this.barrier = barrier;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long warmupEnd = System.nanoTime() + this.warmupNanos;
+				while (System.nanoTime() < warmupEnd) {
+					this.operation();
+				}
+				this.barrier.await();
+
+				long allocatedBefore = allocatedBytes();
+				long start = System.nanoTime();
+				long end = start + this.durationNanos;
+				long planned = start;
+				while (true) {
+					if (this.intervalNanos > 0) {
+						waitUntil(planned);
+					} else {
+						planned = System.nanoTime();
+					}
+					if (planned >= end) {
+						break;
+					}
+					long begin = System.nanoTime();
+					this.operation();
+					long finish = System.nanoTime();
+					this.latency.record(finish - planned);
+					this.service.record(finish - begin);
+					this.operations++;
+					planned += this.intervalNanos;
+				}
+				long allocatedAfter = allocatedBytes();
+				if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+					this.allocated = allocatedAfter - allocatedBefore;
+				}
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private void operation() {
+			String fullName = this.corpus.fullName(this.position);
+			this.position = (this.position + 1) % this.corpus.size();
+			try {
+				int hash = this.nameCase.getFullNameFormat(fullName).hashCode();
+				hash += this.nameCase.getSecondNameCase().hashCode();
+				hash += this.nameCase.getFirstNameCase().hashCode();
+				hash += this.nameCase.getFatherNameCase().hashCode();
+				sink += hash;
+			} catch (RuntimeException e) {
+				this.errors++;
+			}
+		}
+
+		private static void waitUntil(long deadline) {
+			long remaining;
+			while ((remaining = deadline - System.nanoTime()) > 0) {
+				if (remaining > 50_000) {
+					LockSupport.parkNanos(remaining - 50_000);
+				} else {
+					Thread.yield();
+				}
+			}
+		}
+	}
+}
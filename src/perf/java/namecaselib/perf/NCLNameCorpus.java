@@ -0,0 +1,184 @@
+package namecaselib.perf;
+
+import namecaselib.NCL.Gender;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * NCLNameCorpus - воспроизводимый корпус украинских ФИО для нагрузочных тестов.
+ *
+ * Имена, фамилии и отчества выбираются с частотами по закону Ципфа (первые элементы списков
+ * встречаются чаще всего), пол и порядок слов перемешаны. При одинаковом <var>seed</var>
+ * корпус всегда получается одинаковым.
+ */
+public class NCLNameCorpus {
+
+	/**
+	 * Мужские имена, отсортированы по убыванию частоты
+	 */
+	static final String[] MAN_FIRST_NAMES = {
+			"Олександр", "Сергій", "Андрій", "Володимир", "Іван", "Микола", "Дмитро", "Юрій", "Віктор", "Петро",
+			"Василь", "Михайло", "Олег", "Ігор", "Роман", "Максим", "Тарас", "Богдан", "Євген", "Анатолій",
+			"Павло", "Ярослав", "Віталій", "Степан", "Григорій", "Денис", "Антін", "Федір", "Остап", "Назар",
+			"Орест", "Мирослав", "Любомир", "Святослав", "Гліб", "Лев", "Кирило", "Леонід", "Лазар", "Ілля"
+	};
+
+	/**
+	 * Женские имена, отсортированы по убыванию частоты
+	 */
+	static final String[] WOMAN_FIRST_NAMES = {
+			"Олена", "Наталія", "Ірина", "Оксана", "Тетяна", "Марія", "Ольга", "Юлія", "Світлана", "Анна",
+			"Людмила", "Галина", "Катерина", "Надія", "Вікторія", "Леся", "Ганна", "Софія", "Христина", "Дарина",
+			"Любов", "Мар’яна", "Зоряна", "Соломія", "Уляна", "Ярослава", "Богдана", "Лариса", "Віра", "Нінель",
+			"Одарка", "Параска", "Роксолана", "Ангеліна", "Аліна", "Антоніна", "Романа", "Євгенія", "Таїсія", "Килина"
+	};
+
+	/**
+	 * Фамилии: мужская и женская форма
+	 */
+	static final String[][] SECOND_NAMES = {
+			{"Шевченко", "Шевченко"}, {"Коваленко", "Коваленко"}, {"Бондаренко", "Бондаренко"}, {"Ткаченко", "Ткаченко"},
+			{"Кравченко", "Кравченко"}, {"Мельник", "Мельник"}, {"Коваль", "Коваль"}, {"Бойко", "Бойко"},
+			{"Ткачук", "Ткачук"}, {"Олійник", "Олійник"}, {"Поліщук", "Поліщук"}, {"Лисенко", "Лисенко"},
+			{"Мороз", "Мороз"}, {"Савченко", "Савченко"}, {"Руденко", "Руденко"}, {"Грушевський", "Грушевська"},
+			{"Коцюбинський", "Коцюбинська"}, {"Левицький", "Левицька"}, {"Іванов", "Іванова"}, {"Петров", "Петрова"},
+			{"Кузьмін", "Кузьміна"}, {"Бондар", "Бондар"}, {"Кравець", "Кравець"}, {"Швець", "Швець"},
+			{"Гончар", "Гончар"}, {"Соловей", "Соловей"}, {"Горобець", "Горобець"}, {"Заєць", "Заєць"},
+			{"Орел", "Орел"}, {"Чорновіл", "Чорновіл"}, {"Зелений", "Зелена"}, {"Мостовий", "Мостова"},
+			{"Стефаник", "Стефаник"}, {"Косач", "Косач"}, {"Франко", "Франко"}, {"Яценюк", "Яценюк"},
+			{"Мартинів", "Мартинів"}, {"Стасів", "Стасів"}, {"Бабій", "Бабій"}, {"Лелека", "Лелека"}
+	};
+
+	/**
+	 * Отчества: мужская и женская форма
+	 */
+	static final String[][] FATHER_NAMES = {
+			{"Олександрович", "Олександрівна"}, {"Сергійович", "Сергіївна"}, {"Іванович", "Іванівна"},
+			{"Володимирович", "Володимирівна"}, {"Миколайович", "Миколаївна"}, {"Андрійович", "Андріївна"},
+			{"Петрович", "Петрівна"}, {"Васильович", "Василівна"}, {"Михайлович", "Михайлівна"},
+			{"Вікторович", "Вікторівна"}, {"Юрійович", "Юріївна"}, {"Дмитрович", "Дмитрівна"},
+			{"Григорович", "Григорівна"}, {"Богданович", "Богданівна"}, {"Романович", "Романівна"},
+			{"Степанович", "Степанівна"}, {"Тарасович", "Тарасівна"}, {"Ігорович", "Ігорівна"},
+			{"Федорович", "Федорівна"}, {"Ярославович", "Ярославівна"}
+	};
+
+	/**
+	 * Порядок слов в ФИО и доля каждого порядка в корпусе (в процентах)
+	 */
+	private static final String[] ORDERS = {"SNF", "NFS", "NS", "SN"};
+	private static final int[] ORDER_SHARES = {50, 25, 15, 10};
+
+	private final String[] fullNames;
+	private final Gender[] genders;
+
+	/**
+	 * Создает корпус из <var>size</var> ФИО
+	 * @param size количество записей
+	 * @param seed зерно генератора случайных чисел
+	 * @param exponent показатель распределения Ципфа (1.0 - классическое распределение)
+	 */
+	public NCLNameCorpus(int size, long seed, double exponent) {
+		Random random = new Random(seed);
+		Zipf manFirst = new Zipf(MAN_FIRST_NAMES.length, exponent);
+		Zipf womanFirst = new Zipf(WOMAN_FIRST_NAMES.length, exponent);
+		Zipf second = new Zipf(SECOND_NAMES.length, exponent);
+		Zipf father = new Zipf(FATHER_NAMES.length, exponent);
+
+		this.fullNames = new String[size];
+		this.genders = new Gender[size];
+		for (int i = 0; i < size; i++) {
+			Gender gender = random.nextBoolean() ? Gender.MAN : Gender.WOMAN;
+			int g = gender == Gender.MAN ? 0 : 1;
+			String firstName = gender == Gender.MAN
+					? MAN_FIRST_NAMES[manFirst.next(random)]
+					: WOMAN_FIRST_NAMES[womanFirst.next(random)];
+			String secondName = SECOND_NAMES[second.next(random)][g];
+			String fatherName = FATHER_NAMES[father.next(random)][g];
+
+			StringBuilder fullName = new StringBuilder();
+			for (char part : pickOrder(random).toCharArray()) {
+				if (fullName.length() > 0) {
+					fullName.append(' ');
+				}
+				switch (part) {
+					case 'S': fullName.append(secondName);
+						break;
+					case 'N': fullName.append(firstName);
+						break;
+					case 'F': fullName.append(fatherName);
+						break;
+				}
+			}
+			this.fullNames[i] = fullName.toString();
+			this.genders[i] = gender;
+		}
+	}
+
+	private static String pickOrder(Random random) {
+		int roll = random.nextInt(100);
+		for (int i = 0; i < ORDERS.length; i++) {
+			roll -= ORDER_SHARES[i];
+			if (roll < 0) {
+				return ORDERS[i];
+			}
+		}
+		return ORDERS[0];
+	}
+
+	/**
+	 * Возвращает количество записей в корпусе
+	 */
+	public int size() {
+		return this.fullNames.length;
+	}
+
+	/**
+	 * Возвращает ФИО с номером <var>index</var>
+	 */
+	public String fullName(int index) {
+		return this.fullNames[index];
+	}
+
+	/**
+	 * Возвращает пол человека с номером <var>index</var>
+	 */
+	public Gender gender(int index) {
+		return this.genders[index];
+	}
+
+	/**
+	 * Возвращает количество различных ФИО в корпусе
+	 */
+	public int distinct() {
+		return (int) Arrays.stream(this.fullNames).distinct().count();
+	}
+
+	/**
+	 * Генератор рангов по закону Ципфа: вероятность ранга k пропорциональна 1 / k^exponent
+	 */
+	static class Zipf {
+
+		private final double[] cumulative;
+
+		Zipf(int count, double exponent) {
+			this.cumulative = new double[count];
+			double sum = 0;
+			for (int k = 0; k < count; k++) {
+				sum += 1.0 / Math.pow(k + 1, exponent);
+				this.cumulative[k] = sum;
+			}
+			for (int k = 0; k < count; k++) {
+				this.cumulative[k] /= sum;
+			}
+		}
+
+		int next(Random random) {
+			int index = Arrays.binarySearch(this.cumulative, random.nextDouble());
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return Math.min(index, this.cumulative.length - 1);
+		}
+	}
+}
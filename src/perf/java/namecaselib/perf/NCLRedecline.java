@@ -0,0 +1,368 @@
+package namecaselib.perf;
+
+import namecaselib.NCL.Gender;
+import namecaselib.NCL.NamePart;
+import namecaselib.NCLAffectedSet;
+import namecaselib.NCLNameCaseCore;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * NCLRedecline - пересчитывает сохраненные результаты склонения после изменения правил, но только затронутые.
+ *
+ * Правила записаны в коде, поэтому две версии сравниваются по результатам: обе склоняют набор проб
+ * (слова корпуса, случайные слова и выборка различных слов из сохраненных результатов) для всех частей ФИО
+ * и полов. Каждое расхождение обобщается до самого короткого окончания (от 1 до <var>suffix</var> букв),
+ * на котором расходятся все пробы, а их не меньше двух (слова, на которых падают обе версии, не считаются).
+ * Если такого нет, затронутым считается окончание из <var>suffix</var> букв, когда на нем расходится
+ * несколько проб или проба с ним единственная, иначе - только само слово (изменился перечень исключений).
+ * Номера правил, которые старая версия выдает, а новая нет, тоже затронуты. Получается {@link NCLAffectedSet},
+ * его можно сохранить и использовать повторно. Набор точен настолько, насколько полны пробы: окончания,
+ * которых нет среди проб, не проверяются, поэтому к пробам добавляются слова самих сохраненных результатов.
+ *
+ * Затем файл результатов читается частями, затронутые строки склоняются заново в <var>threads</var> потоков
+ * (у каждого потока свой обьект склонения), остальные переписываются без изменений, порядок строк сохраняется.
+ * С --verify заново склоняются все строки и считаются пропуски: строки, которые изменились, но не попали в набор.
+ *
+ * Формат результатов (UTF-8, через табуляцию): слово, часть ФИО (N, S, F), пол (MAN, WOMAN), номер правила,
+ * падежи через '|'. Строки с '#' переписываются без изменений.
+ *
+ * Параметры:
+ * - --old CLASS            старая версия правил, reference - эталон из пакета reference (по умолчанию)
+ * - --new CLASS            новая версия (по умолчанию namecaselib.NCLNameCaseUa)
+ * - --affected FILE        готовый набор затронутых результатов вместо сравнения версий
+ * - --save-affected FILE   сохранить набор
+ * - --in FILE              сохраненные результаты
+ * - --out FILE             пересчитанные результаты (по умолчанию build/ncl-redecline.tsv)
+ * - --suffix N             длина окончаний (по умолчанию 3)
+ * - --probe N              сколько различных слов из --in добавить к пробам (по умолчанию 50000)
+ * - --random N             количество случайных слов в пробах (по умолчанию 20000)
+ * - --threads N            количество потоков (по умолчанию количество процессоров)
+ * - --seed N               зерно генератора (по умолчанию 42)
+ * - --verify true          проверить набор полным пересчетом
+ */
+public class NCLRedecline {
+
+	private static final char[] PARTS = {'N', 'S', 'F'};
+
+	/**
+	 * Сколько строк файла обрабатывается за раз
+	 */
+	private static final int CHUNK = 1 << 16;
+
+	/**
+	 * Сравнивает две версии правил на пробах и строит набор затронутых результатов
+	 * @param before старая версия
+	 * @param after новая версия
+	 * @param probes слова для сравнения
+	 * @param suffixLength длина окончаний
+	 * @return NCLAffectedSet
+	 */
+	static NCLAffectedSet diff(NCLDiffTest.Engine before, NCLDiffTest.Engine after, Collection<String> probes, int suffixLength) {
+		NCLAffectedSet affected = new NCLAffectedSet(suffixLength);
+		//Окончание (1-suffixLength букв) с частью ФИО и полом -> [расхождений, проб]
+		Map<String, int[]> suffixes = new HashMap<>();
+		//Расхождения: слово, часть ФИО, пол
+		List<String[]> diffs = new ArrayList<>();
+		Set<Integer> beforeRules = new HashSet<>();
+		Set<Integer> afterRules = new HashSet<>();
+		for (String word : probes) {
+			String lower = word.toLowerCase();
+			for (char part : PARTS) {
+				for (Gender gender : Gender.values()) {
+					String old = before.decline(word, part, gender);
+					String updated = after.decline(word, part, gender);
+					addRule(beforeRules, old);
+					addRule(afterRules, updated);
+					if (old.startsWith("!") && updated.startsWith("!")) {
+						//Слово не склоняется обеими версиями и ничего не говорит об изменении
+						continue;
+					}
+					boolean differs = !old.equals(updated);
+					if (differs) {
+						diffs.add(new String[]{lower, String.valueOf(part), gender.name()});
+					}
+					for (int count = 1; count <= suffixLength && count <= lower.length(); count++) {
+						int[] counts = suffixes.computeIfAbsent(part + " " + gender + " " + lower.substring(lower.length() - count), k -> new int[2]);
+						counts[1]++;
+						if (differs) {
+							counts[0]++;
+						}
+					}
+				}
+			}
+		}
+		for (String[] diff : diffs) {
+			String word = diff[0];
+			NamePart namePart = NamePart.valueOf(diff[1]);
+			Gender gender = Gender.valueOf(diff[2]);
+			String prefix = diff[1] + " " + diff[2] + " ";
+			int longest = Math.min(suffixLength, word.length());
+			String suffix = null;
+			for (int count = 1; count <= longest && suffix == null; count++) {
+				int[] counts = suffixes.get(prefix + word.substring(word.length() - count));
+				if (counts[1] >= 2 && counts[0] == counts[1]) {
+					suffix = word.substring(word.length() - count);
+				}
+			}
+			if (suffix == null) {
+				int[] counts = suffixes.get(prefix + word.substring(word.length() - longest));
+				if (counts[0] > 1 || counts[1] == 1) {
+					suffix = word.substring(word.length() - longest);
+				}
+			}
+			if (suffix != null) {
+				affected.addSuffix(namePart, gender, suffix);
+			} else {
+				affected.addWord(namePart, gender, word);
+			}
+		}
+		beforeRules.removeAll(afterRules);
+		for (int rule : beforeRules) {
+			affected.addRule(rule);
+		}
+		return affected;
+	}
+
+	/**
+	 * Запоминает номер правила из результата {@link NCLDiffTest.Engine#decline(String, char, Gender)}
+	 */
+	private static void addRule(Set<Integer> rules, String result) {
+		int rule = result.lastIndexOf(" #");
+		if (rule >= 0) {
+			rules.add(Integer.parseInt(result.substring(rule + 2)));
+		}
+	}
+
+	/**
+	 * Создает реализацию по имени класса, reference - эталон
+	 */
+	static NCLDiffTest.Engine engine(String name) throws ReflectiveOperationException {
+		if (name.equals("reference")) {
+			return new NCLDiffTest.ReferenceEngine();
+		}
+		return new NCLDiffTest.CoreEngine((NCLNameCaseCore) Class.forName(name).getDeclaredConstructor().newInstance());
+	}
+
+	/**
+	 * Счетчики обработки
+	 */
+	static class Stats {
+
+		long rows = 0;
+		long affected = 0;
+		long changed = 0;
+		long failed = 0;
+		long missed = 0;
+
+		void add(Stats other) {
+			this.rows += other.rows;
+			this.affected += other.affected;
+			this.changed += other.changed;
+			this.failed += other.failed;
+			this.missed += other.missed;
+		}
+	}
+
+	/**
+	 * Обрабатывает строки от <var>from</var> до <var>to</var>, результат записывает на их место
+	 */
+	static Stats process(List<String> lines, int from, int to, NCLAffectedSet affected, NCLDiffTest.Engine engine, boolean verify) {
+		Stats stats = new Stats();
+		for (int i = from; i < to; i++) {
+			String line = lines.get(i);
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			stats.rows++;
+			String[] fields = line.split("\t");
+			String word = fields[0];
+			NamePart namePart = NamePart.valueOf(fields[1]);
+			Gender gender = Gender.valueOf(fields[2]);
+			boolean hit = affected.affects(word, namePart, gender, Integer.parseInt(fields[3]));
+			if (hit) {
+				stats.affected++;
+			} else if (!verify) {
+				continue;
+			}
+			String result = engine.decline(word, namePart.name().charAt(0), gender);
+			if (result.startsWith("!")) {
+				stats.failed++;
+				continue;
+			}
+			int rule = result.lastIndexOf(" #");
+			String updated = word + "\t" + namePart + "\t" + gender + "\t" + result.substring(rule + 2) + "\t" + result.substring(0, rule);
+			if (!updated.equals(line)) {
+				if (hit) {
+					stats.changed++;
+					lines.set(i, updated);
+				} else {
+					stats.missed++;
+				}
+			}
+		}
+		return stats;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String oldEngine = "reference";
+		String newEngine = "namecaselib.NCLNameCaseUa";
+		Path affectedFile = null;
+		Path saveAffected = null;
+		Path in = null;
+		Path out = Paths.get("build", "ncl-redecline.tsv");
+		int suffixLength = 3;
+		int probeCount = 50000;
+		int randomCount = 20000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = 42;
+		boolean verify = false;
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--old": oldEngine = value;
+					break;
+				case "--new": newEngine = value;
+					break;
+				case "--affected": affectedFile = Paths.get(value);
+					break;
+				case "--save-affected": saveAffected = Paths.get(value);
+					break;
+				case "--in": in = Paths.get(value);
+					break;
+				case "--out": out = Paths.get(value);
+					break;
+				case "--suffix": suffixLength = Integer.parseInt(value);
+					break;
+				case "--probe": probeCount = Integer.parseInt(value);
+					break;
+				case "--random": randomCount = Integer.parseInt(value);
+					break;
+				case "--threads": threads = Integer.parseInt(value);
+					break;
+				case "--seed": seed = Long.parseLong(value);
+					break;
+				case "--verify": verify = Boolean.parseBoolean(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+			}
+		}
+
+		NCLAffectedSet affected;
+		long start = System.nanoTime();
+		if (affectedFile != null) {
+			try (BufferedReader reader = Files.newBufferedReader(affectedFile, StandardCharsets.UTF_8)) {
+				affected = NCLAffectedSet.read(reader);
+			}
+		} else {
+			Set<String> probes = new LinkedHashSet<>();
+			Collections.addAll(probes, NCLNameCorpus.MAN_FIRST_NAMES);
+			Collections.addAll(probes, NCLNameCorpus.WOMAN_FIRST_NAMES);
+			for (String[] pair : NCLNameCorpus.SECOND_NAMES) {
+				Collections.addAll(probes, pair);
+			}
+			for (String[] pair : NCLNameCorpus.FATHER_NAMES) {
+				Collections.addAll(probes, pair);
+			}
+			Random random = new Random(seed);
+			for (int i = 0; i < randomCount; i++) {
+				probes.add(NCLDiffTest.randomWord(random));
+			}
+			if (in != null) {
+				int added = 0;
+				try (BufferedReader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8)) {
+					String line;
+					while (added < probeCount && (line = reader.readLine()) != null) {
+						if (!line.isEmpty() && line.charAt(0) != '#' && probes.add(line.substring(0, line.indexOf('\t')))) {
+							added++;
+						}
+					}
+				}
+			}
+			affected = diff(engine(oldEngine), engine(newEngine), probes, suffixLength);
+			System.out.printf("compared %s -> %s on %d probe words in %.1f s%n", oldEngine, newEngine, probes.size(), (System.nanoTime() - start) / 1e9);
+		}
+		System.out.printf("affected: %d suffixes, %d exception words, rules %s%n", affected.getSuffixCount(), affected.getWordCount(), affected.getRules());
+		if (saveAffected != null) {
+			try (BufferedWriter writer = Files.newBufferedWriter(saveAffected, StandardCharsets.UTF_8)) {
+				affected.write(writer);
+			}
+		}
+		if (in == null) {
+			return;
+		}
+
+		String engineName = newEngine;
+		ThreadLocal<NCLDiffTest.Engine> engines = ThreadLocal.withInitial(() -> {
+			try {
+				return engine(engineName);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Stats total = new Stats();
+		start = System.nanoTime();
+		if (out.getParent() != null) {
+			Files.createDirectories(out.getParent());
+		}
+		try (BufferedReader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8);
+			 BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+			List<String> lines = new ArrayList<>(CHUNK);
+			String line;
+			boolean more = true;
+			while (more) {
+				lines.clear();
+				while (lines.size() < CHUNK && (line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+				more = lines.size() == CHUNK;
+				int slice = (lines.size() + threads - 1) / threads;
+				List<Future<Stats>> futures = new ArrayList<>();
+				for (int from = 0; from < lines.size(); from += slice) {
+					int to = Math.min(lines.size(), from + slice);
+					int sliceFrom = from;
+					boolean check = verify;
+					futures.add(executor.submit(() -> process(lines, sliceFrom, to, affected, engines.get(), check)));
+				}
+				for (Future<Stats> future : futures) {
+					total.add(future.get());
+				}
+				for (String result : lines) {
+					writer.write(result);
+					writer.newLine();
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("rows: %d, affected: %d (%.2f%%), changed: %d, failed: %d, %.1f s%n",
+				total.rows, total.affected, total.rows == 0 ? 0 : 100.0 * total.affected / total.rows, total.changed, total.failed, seconds);
+		if (verify) {
+			System.out.printf("verify: %d changed rows outside the affected set%n", total.missed);
+		}
+		System.out.printf("written to %s%n", out.toAbsolutePath());
+	}
+}
@@ -0,0 +1,387 @@
+package namecaselib.perf.reference;
+
+import namecaselib.perf.reference.NCL.Gender;
+import namecaselib.perf.reference.NCL.NamePart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * NCLNameCaseWord - класс, который служит для хранения всей информации о каждом слове
+ */
+public class NCLNameCaseWord {
+
+	/**
+	 * Слово в нижнем регистре, которое хранится в об’єкте класса
+	 */
+	private String word = "";
+
+	/**
+	 * Оригинальное слово
+	 */
+	private String wordOrig = "";
+
+	/**
+	 * Тип текущей записи (Фамилия/Имя/Отчество)
+	 * - <b>N</b> - ім’я
+	 * - <b>S</b> - прізвище
+	 * - <b>F</b> - по-батькові
+	 */
+	private NamePart namePart = null;
+
+	/**
+	 * Вероятность того, что текущей слово относится к мужскому полу
+	 */
+	public double genderMan = 0;
+
+	/**
+	 * Вероятность того, что текущей слово относится к женскому полу
+	 */
+	public double genderWoman = 0;
+
+	/**
+	 * Окончательное решение, к какому полу относится слово
+	 * - 0 - не определено
+	 * - NCL.MAN - мужской пол
+	 * - NCL.WOMAN - женский пол
+	 */
+	public Gender genderSolved = null;
+
+	/**
+	 * Маска больших букв в слове.
+	 *
+	 * Содержит информацию о том, какие буквы в слове были большими, а какие мальникими:
+	 * - x - маленькая буква
+	 * - X - больная буква
+	 * @var array
+	 */
+	private List<Character> letterMask = new ArrayList<>();
+
+	/**
+	 * Содержит true, если все слово было в верхнем регистре и false, если не было
+	 */
+	public boolean isUpperCase = false;
+
+	/**
+	 * Тип регистра слова. Для распространенных вариантов маска не нужна:
+	 * - LOWER - все буквы маленькие (иван)
+	 * - TITLE - первая буква большая, остальные маленькие (Іван)
+	 * - UPPER - все буквы большие (ІВАН)
+	 * - MIXED - любой другой вариант (МакДональд, Анна-Марія), используется маска <var>letterMask</var>
+	 */
+	enum LetterCase {
+		LOWER, TITLE, UPPER, MIXED
+	}
+
+	/**
+	 * Тип регистра текущего слова
+	 */
+	private LetterCase letterCase = LetterCase.MIXED;
+
+	/**
+	 * Массив содержит все падежи слова, полученые после склонения текущего слова
+	 * @var array
+	 */
+	private List<String> nameCases = new ArrayList<>();
+
+	/**
+	 * Номер правила, по которому было произведено склонение текущего слова
+	 */
+	private int rule = 0;
+
+	/**
+	 * Границы слова в строке с полным ФИО, из которой оно было получено. -1, если слово добавлено отдельно
+	 */
+	private int start = -1;
+	private int end = -1;
+
+	/**
+	 * Создание нового обьекта со словом
+	 */
+	public NCLNameCaseWord(String word) {
+		this.wordOrig = word;
+		this.letterCase = this.detectLetterCase(word);
+		if (this.letterCase == LetterCase.MIXED) {
+			this.letterMask = this.generateMask(word);
+		}
+		this.word = word.toLowerCase();
+	}
+
+	/**
+	 * Определяет тип регистра слова за один проход
+	 * @param word слово
+	 * @return тип регистра
+	 */
+	private LetterCase detectLetterCase(String word) {
+		int length = word.length();
+		int lower = 0;
+		for (int i = 0; i < length; i++) {
+			if (Character.isLowerCase(word.charAt(i))) {
+				lower++;
+			}
+		}
+		this.isUpperCase = lower == 0;
+		if (this.isUpperCase) {
+			return LetterCase.UPPER;
+		}
+		if (lower == length) {
+			return LetterCase.LOWER;
+		}
+		if (lower == length - 1 && !Character.isLowerCase(word.charAt(0))) {
+			return LetterCase.TITLE;
+		}
+		return LetterCase.MIXED;
+	}
+
+	/**
+	 * Генерирует маску, которая содержит информацию о том, какие буквы в слове были большими, а какие маленькими:
+	 * - x - маленькая буква
+	 * - X - больная буква
+	 */
+	private List<Character> generateMask(String word) {
+		List<Character> mask = new ArrayList<>();
+		for (char letter: word.toCharArray()) {
+			if (Character.isLowerCase(letter)) {
+				mask.add('x');
+			} else {
+				mask.add('X');
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Возвращает все падежи слова в начальную маску:
+	 * - x - маленькая буква
+	 * - X - больная буква
+	 */
+	private void returnMask() {
+		switch (this.letterCase) {
+			case LOWER:
+				//Падежи уже в нижнем регистре
+				break;
+			case UPPER:
+				for (int index = 0; index < this.nameCases.size(); index++) {
+					this.nameCases.set(index, this.nameCases.get(index).toUpperCase());
+				}
+				break;
+			case TITLE:
+				for (int index = 0; index < this.nameCases.size(); index++) {
+					String nameCase = this.nameCases.get(index);
+					if (!nameCase.isEmpty()) {
+						this.nameCases.set(index, Character.toUpperCase(nameCase.charAt(0)) + nameCase.substring(1));
+					}
+				}
+				break;
+			default:
+				this.returnLetterMask();
+		}
+	}
+
+	/**
+	 * Возвращает все падежи слова в начальную маску посимвольно. Нужно только для слов со смешанным регистром.
+	 */
+	private void returnLetterMask() {
+		List<Character> splitedMask = this.letterMask;
+		int maskLength = splitedMask.size();
+		for (int index = 0; index < this.nameCases.size(); index++) {
+			String nameCase = this.nameCases.get(index);
+			int caseLength = nameCase.length();
+			// origin code: $max = min(array($caseLength, $maskLength));
+			int max = Math.min(caseLength, maskLength);
+			StringBuilder newNameCase = new StringBuilder();
+			for (int letterIndex = 0; letterIndex < max; letterIndex++) {
+				char letter = nameCase.charAt(letterIndex);
+				if (splitedMask.get(letterIndex).equals('X')) {
+					letter = Character.toUpperCase(letter);
+				}
+				newNameCase.append(letter);
+			}
+			//Падеж может быть короче исходного слова (Кравець - Кравця), тогда хвоста нет
+			newNameCase.append(nameCase, max, caseLength);
+			this.nameCases.set(index, newNameCase.toString());
+		}
+	}
+
+	/**
+	 * Сохраняет результат склонения текущего слова
+	 */
+	public void setNameCases(List<String> nameCases, Boolean isReturnMask) {
+		this.nameCases = nameCases;
+		if (isReturnMask) {
+			this.returnMask();
+		}
+	}
+
+	/**
+	 * Сохраняет результат склонения текущего слова
+	 */
+	public void setNameCases(List<String> nameCases) {
+		this.nameCases = nameCases;
+		this.returnMask();
+	}
+
+	/**
+	 * Возвращает массив со всеми падежами текущего слова
+	 * @return array массив со всеми падежами
+	 */
+	public List<String> getNameCases() {
+		return this.nameCases;
+	}
+
+	/**
+	 * Возвращает строку с нужным падежом текущего слова
+	 * @param number нужный падеж
+	 * @return string строка с нужным падежом текущего слова
+	 */
+	public String getNameCase(int number) {
+		if (this.nameCases.size() > number) {
+			return this.nameCases.get(number);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Расчитывает и возвращает пол текущего слова
+	 * @return int пол текущего слова
+	 */
+	public Gender gender() {
+		if (this.genderSolved == null) {
+			if (this.genderMan >= this.genderWoman) {
+				this.genderSolved = Gender.MAN;
+			} else {
+				this.genderSolved = Gender.WOMAN;
+			}
+		}
+		return this.genderSolved;
+	}
+
+	/**
+	 * Устанавливает вероятности того, что даное слово является мужчиной или женщиной
+	 * @param man вероятность того, что слово мужчина
+	 * @param woman верятность того, что слово женщина
+	 */
+	public void setGender(double man, double woman) {
+		this.genderMan = man;
+		this.genderWoman = woman;
+	}
+
+	/**
+	 * Окончательно устанавливает пол человека
+	 * - null - не определено
+	 * - NCL.MAN - мужчина
+	 * - NCL.WOMAN - женщина
+	 * @param gender пол человека
+	 */
+	public void setTrueGender(Gender gender) {
+		this.genderSolved = gender;
+	}
+
+	/**
+	 * Возвращает массив вероятности того, что даное слово является мужчиной или женщиной
+	 * @return array массив вероятностей
+	 */
+	public Map<Gender, Double> getGender() {
+		Map<Gender, Double> gender = new HashMap<>();
+		gender.put(Gender.MAN, this.genderMan);
+		gender.put(Gender.WOMAN, this.genderWoman);
+		return gender;
+	}
+
+	/**
+	 * Устанавливает тип текущего слова
+	 * <b>Тип слова:</b>
+	 * - S - Фамилия
+	 * - N - Имя
+	 * - F - Отчество
+	 * @param namePart тип слова
+	 */
+	public void setNamePart(NamePart namePart) {
+		this.namePart = namePart;
+	}
+
+	/**
+	 * Возвращает тип текущего слова
+	 * <b>Тип слова:</b>
+	 * - S - Фамилия
+	 * - N - Имя
+	 * - F - Отчество
+	 * @return string $namePart тип слова
+	 */
+	public NamePart getNamePart() {
+		return this.namePart;
+	}
+
+	/**
+	 * Возвращает текущее слово.
+	 * @return string текущее слово
+	 */
+	public String getWord() {
+		return this.word;
+	}
+
+	/**
+	 * Возвращает текущее оригинальное слово.
+	 * @return string текущее слово
+	 */
+	public String getWordOrig() {
+		return this.wordOrig;
+	}
+
+	/**
+	 * Если уже был расчитан пол для всех слов системы, тогда каждому слову предается окончательное
+	 * решение. Эта функция определяет было ли принято окончательное решение.
+	 * @return bool было ли принято окончательное решение по поводу пола текущего слова
+	 */
+	public boolean isGenderSolved() {
+		return this.genderSolved != null;
+	}
+
+	/**
+	 * Запоминает границы слова в строке с полным ФИО
+	 * @param start позиция первой буквы слова
+	 * @param end позиция после последней буквы слова
+	 */
+	public void setPosition(int start, int end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Возвращает позицию первой буквы слова в строке с полным ФИО или -1, если слово добавлено отдельно
+	 * @return int позиция начала слова
+	 */
+	public int getStart() {
+		return this.start;
+	}
+
+	/**
+	 * Возвращает позицию после последней буквы слова в строке с полным ФИО или -1, если слово добавлено отдельно.
+	 * Вместе с {@link #getStart()} позволяет заменить слово в исходной строке нужным падежом.
+	 * @return int позиция конца слова
+	 */
+	public int getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * Устанавливает номер правила по которому склонялось текущее слово.
+	 * @param ruleId номер правила
+	 */
+	public void setRule(int ruleId) {
+		this.rule = ruleId;
+	}
+
+	/**
+	 * Возвращает номер правила, по которому склонялось текущее слово.
+	 * -1 - ни одно правило не подошло, 0 - слово еще не склонялось
+	 * @return int номер правила
+	 */
+	public int getRule() {
+		return this.rule;
+	}
+}
@@ -0,0 +1,138 @@
+package namecaselib.perf.reference;
+
+/**
+ * NCLTokenizer - разбивает строку с ФИО на слова без регулярных выражений и промежуточных массивов.
+ *
+ * Разделителем считается любой пробельный символ Unicode, включая табуляцию и неразрывные пробелы.
+ * Несколько разделителей подряд считаются одним. Для каждого слова доступны его границы в исходном
+ * тексте, поэтому результат можно записать обратно в исходный буфер.
+ *
+ * Обьект можно использовать повторно:
+ * <pre>
+ * tokenizer.reset(text);
+ * while (tokenizer.next()) {
+ *     tokenizer.start(); tokenizer.end();
+ * }
+ * </pre>
+ */
+public class NCLTokenizer {
+
+	/**
+	 * Текст, который разбивается на слова
+	 */
+	private CharSequence text = "";
+
+	/**
+	 * Позиция, на которой заканчивается разбор
+	 */
+	private int limit = 0;
+
+	/**
+	 * Позиция, с которой продолжится поиск следующего слова
+	 */
+	private int position = 0;
+
+	/**
+	 * Начало текущего слова
+	 */
+	private int start = -1;
+
+	/**
+	 * Конец текущего слова (не включительно)
+	 */
+	private int end = -1;
+
+	/**
+	 * Начинает разбор текста <var>text</var> с начала
+	 * @param text текст с ФИО
+	 * @return NCLTokenizer
+	 */
+	public NCLTokenizer reset(CharSequence text) {
+		return this.reset(text, 0, text.length());
+	}
+
+	/**
+	 * Начинает разбор части текста <var>text</var> от <var>from</var> до <var>to</var> (не включительно)
+	 * @param text текст с ФИО
+	 * @param from начало разбираемой части
+	 * @param to конец разбираемой части
+	 * @return NCLTokenizer
+	 */
+	public NCLTokenizer reset(CharSequence text, int from, int to) {
+		this.text = text;
+		this.position = from;
+		this.limit = to;
+		this.start = -1;
+		this.end = -1;
+		return this;
+	}
+
+	/**
+	 * Переходит к следующему слову
+	 * @return true, если слово найдено, false - если текст закончился
+	 */
+	public boolean next() {
+		int i = this.position;
+		while (i < this.limit && isSpace(this.text.charAt(i))) {
+			i++;
+		}
+		if (i >= this.limit) {
+			this.position = this.limit;
+			this.start = -1;
+			this.end = -1;
+			return false;
+		}
+		this.start = i;
+		while (i < this.limit && !isSpace(this.text.charAt(i))) {
+			i++;
+		}
+		this.end = i;
+		this.position = i;
+		return true;
+	}
+
+	/**
+	 * Возвращает начало текущего слова в исходном тексте
+	 */
+	public int start() {
+		return this.start;
+	}
+
+	/**
+	 * Возвращает конец текущего слова в исходном тексте (не включительно)
+	 */
+	public int end() {
+		return this.end;
+	}
+
+	/**
+	 * Возвращает длину текущего слова
+	 */
+	public int length() {
+		return this.end - this.start;
+	}
+
+	/**
+	 * Возвращает текст, который сейчас разбирается
+	 */
+	public CharSequence text() {
+		return this.text;
+	}
+
+	/**
+	 * Возвращает текущее слово строкой
+	 */
+	public String token() {
+		return this.text.subSequence(this.start, this.end).toString();
+	}
+
+	/**
+	 * Проверяет, является ли символ разделителем слов: любой пробельный символ Unicode,
+	 * в том числе неразрывный пробел, который не считается пробелом в {@link Character#isWhitespace(char)}
+	 * @param c символ
+	 * @return true, если символ разделяет слова
+	 */
+	public static boolean isSpace(char c) {
+		return Character.isWhitespace(c) || Character.isSpaceChar(c);
+	}
+}
@@ -0,0 +1,11 @@
+/**
+ * Замороженная копия библиотеки, которая служит эталоном для {@link namecaselib.perf.NCLDiffTest}.
+ *
+ * Классы скопированы из namecaselib без изменений, кроме имени пакета. Их не нужно исправлять
+ * вместе с основным кодом: любое расхождение с эталоном должно быть замечено и осознанно принято.
+ * Принятое расхождение переносится в эталон отдельной правкой, чтобы эталон снова совпадал с библиотекой.
+ *
+ * Принятые расхождения:
+ * - сумма оценок пола в solveGender считается в double, а не в int (дробные оценки больше не теряются)
+ */
+package namecaselib.perf.reference;